@@ -0,0 +1,34 @@
+package AdvancedJava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Test data shared by the benchmarks (fixed seed, so every run measures the same rows)
+final class BenchmarkData {
+    static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Sales", "Marketing", "Support", "Legal", "Operations"};
+
+    // A small pool of names keeps 50M rows from being mostly String data
+    private static final String[] NAMES = new String[1000];
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            NAMES[i] = "Employee" + i;
+        }
+    }
+
+    private BenchmarkData() {
+    }
+
+    static List<Employee> employees(int rows) {
+        Random random = new Random(42);
+        List<Employee> employees = new ArrayList<>(rows);
+        for (int id = 0; id < rows; id++) {
+            employees.add(new Employee(id,
+                    NAMES[random.nextInt(NAMES.length)],
+                    30_000 + random.nextInt(120_000),
+                    DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]));
+        }
+        return employees;
+    }
+}
@@ -0,0 +1,39 @@
+package AdvancedJava;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Entry point of benchmarks.jar
+ * -----------------------------------------
+ * - Accepts the normal JMH command line (e.g. "EmployeeService -p rows=1000").
+ * - Always adds the GC profiler, so every result has ops/s and the allocation rate
+ *   (gc.alloc.rate.norm = bytes allocated per operation).
+ * - Writes the results to jmh-result.json unless -rff is given; keep that file per release
+ *   to compare runs.
+ *
+ * Build and run:
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar EmployeeService -p rows=1000,1000000
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (!commandLine.getResult().hasValue()) {
+            options.result("jmh-result.json");
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package AdvancedJava;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Read scaling: one lock around EmployeeService vs ConcurrentEmployeeService
+ * -----------------------------------------
+ * - readLocked / readSnapshot: readers only; run with -t 1,2,4,8 to see how reads scale.
+ * - The "mixed" groups add one writer that changes a salary about once per millisecond
+ *   next to 7 readers (a read-mostly workload).
+ * - The reads are index lookups (count in a salary range), so the lock is a large
+ *   part of their cost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LockedState {
+        @Param({"100000"})
+        int rows;
+
+        EmployeeService service;
+        final Lock lock = new ReentrantLock();
+        int nextId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = EmployeeService.columnar(BenchmarkData.employees(rows));
+        }
+
+        int read() {
+            lock.lock();
+            try {
+                return service.countEmployeesWithSalaryBetween(60_000, 70_000);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SnapshotState {
+        @Param({"100000"})
+        int rows;
+
+        ConcurrentEmployeeService service;
+        int nextId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            service = new ConcurrentEmployeeService(BenchmarkData.employees(rows));
+        }
+    }
+
+    @Benchmark
+    public int readLocked(LockedState state) {
+        return state.read();
+    }
+
+    @Benchmark
+    public int readSnapshot(SnapshotState state) {
+        return state.service.countEmployeesWithSalaryBetween(60_000, 70_000);
+    }
+
+    @Benchmark
+    @Group("mixedLocked")
+    @GroupThreads(7)
+    public int mixedLockedRead(LockedState state) {
+        return state.read();
+    }
+
+    @Benchmark
+    @Group("mixedLocked")
+    @GroupThreads(1)
+    public boolean mixedLockedWrite(LockedState state) throws InterruptedException {
+        Thread.sleep(1);
+        int id = state.nextId++ % state.rows;
+        state.lock.lock();
+        try {
+            return state.service.updateEmployee(new Employee(id, "Employee" + id, 50_000 + id % 1000, "IT"));
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("mixedSnapshot")
+    @GroupThreads(7)
+    public int mixedSnapshotRead(SnapshotState state) {
+        return state.service.countEmployeesWithSalaryBetween(60_000, 70_000);
+    }
+
+    @Benchmark
+    @Group("mixedSnapshot")
+    @GroupThreads(1)
+    public boolean mixedSnapshotWrite(SnapshotState state) throws InterruptedException {
+        Thread.sleep(1);
+        int id = state.nextId++ % state.rows;
+        return state.service.updateEmployee(new Employee(id, "Employee" + id, 50_000 + id % 1000, "IT"));
+    }
+}
@@ -0,0 +1,79 @@
+package AdvancedJava;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Counter strategies under contention
+ * -----------------------------------------
+ * - lock: the ReentrantLock pattern SharedResource.increment() used before ScalableCounter
+ *   (without its println, which would dominate the measurement).
+ * - synchronizedBlock, atomicLong, longAdder: the usual alternatives.
+ * - striped, cells, perThread: the ScalableCounter modes.
+ * - All threads hit one shared counter; change the thread count with -t (e.g. -t 64).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CounterBenchmark {
+    private final Lock lock = new ReentrantLock();
+    private final Object monitor = new Object();
+    private final AtomicLong atomic = new AtomicLong();
+    private final LongAdder adder = new LongAdder();
+    private final ScalableCounter striped = ScalableCounter.create(ScalableCounter.Mode.STRIPED);
+    private final ScalableCounter cells = ScalableCounter.create(ScalableCounter.Mode.CELLS);
+    private final ScalableCounter perThread = ScalableCounter.create(ScalableCounter.Mode.PER_THREAD);
+    private long lockedCount;
+    private long synchronizedCount;
+
+    @Benchmark
+    public void lock() {
+        lock.lock();
+        try {
+            lockedCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    public void synchronizedBlock() {
+        synchronized (monitor) {
+            synchronizedCount++;
+        }
+    }
+
+    @Benchmark
+    public long atomicLong() {
+        return atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    public void longAdder() {
+        adder.increment();
+    }
+
+    @Benchmark
+    public void striped() {
+        striped.increment();
+    }
+
+    @Benchmark
+    public void cells() {
+        cells.increment();
+    }
+
+    @Benchmark
+    public void perThread() {
+        perThread.increment();
+    }
+}
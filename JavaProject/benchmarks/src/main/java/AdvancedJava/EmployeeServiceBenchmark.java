@@ -0,0 +1,339 @@
+package AdvancedJava;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * EmployeeService benchmarks
+ * -----------------------------------------
+ * - Every public query of EmployeeService, on 1K, 1M and 50M rows, for every storage layout.
+ * - SNAPSHOT saves the columnar data to a temp file and queries it through FileChannel.map.
+ * - OFF_HEAP keeps the rows in direct memory (OffHeapEmployeeStore), freed after the trial.
+ * - Indexes are built lazily, so the first warmup iteration pays for building them;
+ *   the measured iterations show the steady state.
+ * - 50M rows need a large heap (set below); pick sizes with: -p rows=1000,1000000
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class EmployeeServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ServiceState {
+        @Param({"1000", "1000000", "50000000"})
+        int rows;
+
+        @Param({"LIST", "COLUMNAR", "SNAPSHOT", "OFF_HEAP"})
+        String storage;
+
+        EmployeeService service;
+        OffHeapEmployeeStore offHeapStore;
+        double threshold;
+        int[] ids;
+        private int idCursor;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            List<Employee> employees = BenchmarkData.employees(rows);
+            if (storage.equals("LIST")) {
+                service = new EmployeeService(employees);
+            } else if (storage.equals("COLUMNAR")) {
+                service = EmployeeService.columnar(employees);
+            } else if (storage.equals("OFF_HEAP")) {
+                offHeapStore = new OffHeapEmployeeStore(employees);
+                service = EmployeeService.offHeap(offHeapStore);
+            } else {
+                Path file = Files.createTempFile("employees", ".snap");
+                file.toFile().deleteOnExit();
+                EmployeeService.columnar(employees).saveSnapshot(file);
+                service = EmployeeService.openSnapshot(file);
+            }
+            threshold = 140_000; // roughly the top 8% of salaries
+            ids = new java.util.Random(7).ints(100, 0, rows).toArray();
+        }
+
+        @TearDown(Level.Trial)
+        public void freeOffHeap() {
+            if (offHeapStore != null) offHeapStore.close();
+        }
+
+        // Walks through the ids in a scrambled order (odd step), so lookups do not hit the same slot
+        int nextId() {
+            idCursor = (idCursor + 7919) % rows;
+            return idCursor;
+        }
+    }
+
+    // Same data, with the scans running on a dedicated pool of all cores
+    @State(Scope.Benchmark)
+    public static class ParallelServiceState extends ServiceState {
+        ForkJoinPool pool;
+
+        @Override
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            super.setUp();
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            service.enableParallelMode(pool, 10_000);
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdown() {
+            pool.shutdown();
+        }
+    }
+
+    // Same data with the query result cache on (repeated queries, no changes in between)
+    @State(Scope.Benchmark)
+    public static class CachedServiceState extends ServiceState {
+        @Override
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            super.setUp();
+            service.enableQueryCache(1_000, 1L << 30);
+        }
+    }
+
+    // Same data with one change subscriber that takes everything, to measure the writer's extra cost
+    @State(Scope.Benchmark)
+    public static class SubscribedServiceState extends ServiceState {
+        @Override
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            super.setUp();
+            service.changes().subscribe(new Flow.Subscriber<List<EmployeeChange>>() {
+                public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+                public void onNext(List<EmployeeChange> batch) { }
+                public void onError(Throwable error) { }
+                public void onComplete() { }
+            });
+        }
+    }
+
+    // Just the columnar store, for the hand-written loops that queries are compared with
+    @State(Scope.Benchmark)
+    public static class ColumnarState {
+        @Param({"1000", "1000000", "50000000"})
+        int rows;
+
+        ColumnarEmployeeStore store;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            store = new ColumnarEmployeeStore(BenchmarkData.employees(rows));
+        }
+    }
+
+    @Benchmark
+    public List<Employee> getEmployeesWithSalaryAbove(ServiceState state) {
+        return state.service.getEmployeesWithSalaryAbove(state.threshold);
+    }
+
+    @Benchmark
+    public List<Employee> getEmployeesWithSalaryBetween(ServiceState state) {
+        return state.service.getEmployeesWithSalaryBetween(state.threshold, state.threshold + 1_000);
+    }
+
+    @Benchmark
+    public int countEmployeesWithSalaryBetween(ServiceState state) {
+        return state.service.countEmployeesWithSalaryBetween(50_000, 100_000);
+    }
+
+    @Benchmark
+    public double sumOfSalariesBetween(ServiceState state) {
+        return state.service.sumOfSalariesBetween(50_000, 100_000);
+    }
+
+    @Benchmark
+    public List<Employee> sortEmployeesBySalary(ServiceState state) {
+        return state.service.sortEmployeesBySalary();
+    }
+
+    @Benchmark
+    public List<Employee> topKBySalary(ServiceState state) {
+        return state.service.topKBySalary(10);
+    }
+
+    @Benchmark
+    public SalaryPage getSalaryPage(ServiceState state) {
+        return state.service.getSalaryPage(null, 50);
+    }
+
+    @Benchmark
+    public double getAverageSalary(ServiceState state) {
+        return state.service.getAverageSalary();
+    }
+
+    @Benchmark
+    public Map<String, SalaryStats> getSalaryStatsByDepartment(ServiceState state) {
+        return state.service.getSalaryStatsByDepartment();
+    }
+
+    // p99 from the sketches; compare with sortEmployeesBySalary(), the exact way
+    @Benchmark
+    public double getSalaryQuantile(ServiceState state) {
+        return state.service.getSalaryQuantile(0.99);
+    }
+
+    @Benchmark
+    public double getSalaryQuantileByDepartment(ServiceState state) {
+        return state.service.getSalaryQuantile("Legal", 0.5);
+    }
+
+    @Benchmark
+    public Map<String, List<Employee>> groupByDepartment(ServiceState state) {
+        return state.service.groupByDepartment();
+    }
+
+    @Benchmark
+    public Map<String, List<Employee>> groupByDepartmentCached(CachedServiceState state) {
+        return state.service.groupByDepartment();
+    }
+
+    @Benchmark
+    public List<Employee> getEmployeesWithSalaryAboveCached(CachedServiceState state) {
+        return state.service.getEmployeesWithSalaryAbove(state.threshold);
+    }
+
+    // Department summary (count, avg, max): one pass, no lists; compare with groupByDepartment
+    @Benchmark
+    public GroupedAggregates aggregateByDepartment(ServiceState state) {
+        return state.service.aggregateByDepartment(Aggregate.count(), Aggregate.avg(), Aggregate.max());
+    }
+
+    @Benchmark
+    public GroupedAggregates aggregateByDepartmentParallel(ParallelServiceState state) {
+        return state.service.aggregateByDepartment(Aggregate.count(), Aggregate.avg(), Aggregate.max());
+    }
+
+    @Benchmark
+    public Employee getById(ServiceState state) {
+        return state.service.getById(state.nextId());
+    }
+
+    @Benchmark
+    public boolean containsId(ServiceState state) {
+        return state.service.containsId(state.nextId());
+    }
+
+    @Benchmark
+    public List<Employee> getByIds(ServiceState state) {
+        return state.service.getByIds(state.ids);
+    }
+
+    // Report filter: department, salary range and name prefix. filterWithPredicate is the same
+    // condition as a lambda; handWrittenLoop is the loop over the columns the query should match.
+    static final EmployeeQuery REPORT = EmployeeQuery.and(
+            EmployeeQuery.namePrefix("Employee1"),
+            EmployeeQuery.departmentIn("IT", "Finance"),
+            EmployeeQuery.salaryBetween(120_000, 130_000));
+
+    @Benchmark
+    public long countWithQuery(ServiceState state) {
+        return state.service.count(REPORT);
+    }
+
+    @Benchmark
+    public long countWithPredicate(ServiceState state) {
+        return state.service.count(emp -> emp.getName().startsWith("Employee1")
+                && (emp.getDepartment().equals("IT") || emp.getDepartment().equals("Finance"))
+                && emp.getSalary() >= 120_000 && emp.getSalary() <= 130_000);
+    }
+
+    @Benchmark
+    public long countWithLoop(ColumnarState state) {
+        double[] salaries = state.store.salaryColumn();
+        int[] departments = state.store.departmentCodeColumn();
+        int it = DepartmentDictionary.lookup("IT"), finance = DepartmentDictionary.lookup("Finance");
+        long count = 0;
+        for (int row = 0; row < state.store.rowCount(); row++) {
+            double salary = salaries[row];
+            int department = departments[row];
+            if (salary >= 120_000 && salary <= 130_000 && (department == it || department == finance)
+                    && state.store.name(row).startsWith("Employee1")) count++;
+        }
+        return count;
+    }
+
+    // Typeahead: the first 10 suggestions (the names are "Employee0" .. "Employee999")
+    @Benchmark
+    public List<Employee> findByNamePrefix(ServiceState state) {
+        return state.service.findByNamePrefix("Employee12", false, 10);
+    }
+
+    @Benchmark
+    public List<Employee> findByNameContaining(ServiceState state) {
+        return state.service.findByNameContaining("YEE99", true, 10);
+    }
+
+    @Benchmark
+    public Map<String, Integer> countByDepartment(ServiceState state) {
+        return state.service.countByDepartment();
+    }
+
+    @Benchmark
+    public List<Employee> getByDepartment(ServiceState state) {
+        return state.service.getByDepartment("Legal");
+    }
+
+    // Sequential vs parallel scans, like stream() vs parallelStream() in _2_Java8Features
+    @Benchmark
+    public long countSequential(ServiceState state) {
+        return state.service.count(emp -> emp.getSalary() > state.threshold);
+    }
+
+    @Benchmark
+    public long countParallel(ParallelServiceState state) {
+        return state.service.count(emp -> emp.getSalary() > state.threshold);
+    }
+
+    @Benchmark
+    public List<Employee> filterSequential(ServiceState state) {
+        return state.service.filter(emp -> emp.getDepartment().equals("Legal") && emp.getSalary() > state.threshold);
+    }
+
+    @Benchmark
+    public List<Employee> filterParallel(ParallelServiceState state) {
+        return state.service.filter(emp -> emp.getDepartment().equals("Legal") && emp.getSalary() > state.threshold);
+    }
+
+    // Add one employee and remove it again, so the data set does not grow between calls
+    @Benchmark
+    public boolean addAndRemoveEmployee(ServiceState state) {
+        int id = -1;
+        state.service.addEmployee(new Employee(id, "Temp", 75_000, "IT"));
+        return state.service.removeEmployee(id);
+    }
+
+    @Benchmark
+    public boolean updateEmployee(ServiceState state) {
+        return state.service.updateEmployee(new Employee(0, "Employee0", 75_000, "IT"));
+    }
+
+    @Benchmark
+    public boolean updateEmployeeWithSubscriber(SubscribedServiceState state) {
+        return state.service.updateEmployee(new Employee(0, "Employee0", 75_000, "IT"));
+    }
+
+    // One batch over a whole department (identity adjustment, so the data stays the same);
+    // the dropped salary index is rebuilt by the next salary query
+    @Benchmark
+    public int adjustSalaries(ServiceState state) {
+        return state.service.adjustSalaries(EmployeeQuery.departmentIn("Legal"), salary -> salary);
+    }
+
+    @Benchmark
+    public int adjustSalariesParallel(ParallelServiceState state) {
+        return state.service.adjustSalaries(EmployeeQuery.departmentIn("Legal"), salary -> salary);
+    }
+}
@@ -0,0 +1,80 @@
+package AdvancedJava;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Scalar vs SIMD salary kernels (see SalaryKernels and VectorSalaryKernels)
+ * -----------------------------------------
+ * - The same scans on the same salary column, once with the scalar kernels and once with the
+ *   Vector API kernels (VECTOR falls back to scalar if the JVM cannot use them; the kernels in
+ *   use are printed at setup).
+ * - rowsAbove: selection masks -> row numbers, for a selective (top 8%) and a half/half threshold.
+ * - liveStats: sum, min and max; "withRemoved" has 0.1% removed rows, so the kernels run on
+ *   the stretches between them.
+ * - The fork adds --add-modules jdk.incubator.vector. The speedup depends on the vector width:
+ *   expect the most on AVX-512 hosts, less on AVX2, none without SIMD. Run it on JDK 19+ to
+ *   see the vector masks (older JVMs use the scalar masksAbove()).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g", "--add-modules=jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SalaryKernelBenchmark {
+    @Param({"1000", "1000000", "50000000"})
+    int rows;
+
+    @Param({"SCALAR", "VECTOR"})
+    String kernels;
+
+    SalaryKernels salaryKernels;
+    double[] salaries;
+    BitSet removed;
+    int liveCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        salaryKernels = kernels.equals("SCALAR") ? SalaryKernels.scalar() : SalaryKernels.get();
+        System.out.println("Kernels: " + salaryKernels.name());
+        List<Employee> employees = BenchmarkData.employees(rows);
+        salaries = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            salaries[row] = employees.get(row).getSalary();
+        }
+        removed = new BitSet(rows);
+        for (int row = 500; row < rows; row += 1000) {
+            removed.set(row);
+        }
+        liveCount = rows - removed.cardinality();
+    }
+
+    @Benchmark
+    public int[] rowsAboveSelective() {
+        return salaryKernels.rowsAbove(salaries, rows, null, 140_000);
+    }
+
+    @Benchmark
+    public int[] rowsAboveHalf() {
+        return salaryKernels.rowsAbove(salaries, rows, null, 90_000);
+    }
+
+    @Benchmark
+    public double sum() {
+        return salaryKernels.liveSum(salaries, rows, null);
+    }
+
+    @Benchmark
+    public SalaryStats liveStats() {
+        return salaryKernels.liveStats(salaries, rows, null, rows);
+    }
+
+    @Benchmark
+    public SalaryStats liveStatsWithRemoved() {
+        return salaryKernels.liveStats(salaries, rows, removed, liveCount);
+    }
+}
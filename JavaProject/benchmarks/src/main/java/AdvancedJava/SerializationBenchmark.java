@@ -0,0 +1,93 @@
+package AdvancedJava;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Java serialization vs BinaryCodec
+ * -----------------------------------------
+ * - One operation = one batch of 'batchSize' objects written to (or read from) memory.
+ * - Person is compared both ways; Employee is not Serializable, so only the codec is measured.
+ * - The encoded sizes are printed once per trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    @Param({"1000"})
+    int batchSize;
+
+    List<Person> persons;
+    List<Employee> employees;
+    byte[] javaPersons;
+    byte[] codecPersons;
+    byte[] codecEmployees;
+    BinaryCodec codec;
+    ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        persons = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            persons.add(new Person("Person" + i, 20 + i % 50));
+        }
+        employees = BenchmarkData.employees(batchSize);
+        codec = new BinaryCodec();
+        out = new ByteArrayOutputStream(1 << 16);
+
+        javaPersons = javaWrite();
+        codecPersons = codecWritePersons();
+        codecEmployees = codecWriteEmployees();
+        System.out.println("\nBytes per batch: Java serialization (Person) = " + javaPersons.length
+                + ", BinaryCodec (Person) = " + codecPersons.length
+                + ", BinaryCodec (Employee) = " + codecEmployees.length);
+    }
+
+    @Benchmark
+    public byte[] javaWrite() throws IOException {
+        out.reset();
+        try (ObjectOutputStream objects = new ObjectOutputStream(out)) {
+            objects.writeObject(persons);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Object javaRead() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(javaPersons))) {
+            return objects.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] codecWritePersons() throws IOException {
+        out.reset();
+        codec.writePersons(persons, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Person> codecReadPersons() throws IOException {
+        return codec.readPersons(Channels.newChannel(new ByteArrayInputStream(codecPersons)));
+    }
+
+    @Benchmark
+    public byte[] codecWriteEmployees() throws IOException {
+        out.reset();
+        codec.writeEmployees(employees, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Employee> codecReadEmployees() throws IOException {
+        return codec.readEmployees(Channels.newChannel(new ByteArrayInputStream(codecEmployees)));
+    }
+}
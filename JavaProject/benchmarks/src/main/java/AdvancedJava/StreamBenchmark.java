@@ -0,0 +1,54 @@
+package AdvancedJava;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Sequential vs parallel streams
+ * -----------------------------------------
+ * - The same reduce as in _2_Java8Features: numbers.stream() vs numbers.parallelStream().
+ * - Small lists are usually faster sequentially: splitting and joining costs more than the work.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+@State(Scope.Benchmark)
+public class StreamBenchmark {
+    @Param({"1000", "1000000", "50000000"})
+    int size;
+
+    List<Integer> numbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        numbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            numbers.add(i % 1000);
+        }
+    }
+
+    @Benchmark
+    public int sequentialSum() {
+        return numbers.stream().reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public int parallelSum() {
+        return numbers.parallelStream().reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public int sequentialMapToIntSum() {
+        return numbers.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Benchmark
+    public int parallelMapToIntSum() {
+        return numbers.parallelStream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,79 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCodecTest {
+
+    @Test
+    void roundTripsEmployeesWithNullNamesAndDepartments() throws IOException {
+        List<Employee> employees = List.of(
+                new Employee(1, "Alice", 100_000, "IT"),
+                new Employee(2, null, 90_000, null),
+                new Employee(3, "Zoë", 80_000, "HR"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinaryCodec(16).writeEmployees(employees, Channels.newChannel(bytes));
+
+        List<Employee> decoded = new BinaryCodec(16).readEmployees(channel(bytes.toByteArray()));
+        assertEquals(employees.toString(), decoded.toString());
+        assertNull(decoded.get(1).getName());
+        assertNull(decoded.get(1).getDepartment());
+    }
+
+    @Test
+    void rejectsARecordCountOverTheLimit() {
+        byte[] batch = header(Integer.MAX_VALUE).array();
+        IOException e = assertThrows(IOException.class, () -> new BinaryCodec().readEmployees(channel(batch)));
+        assertTrue(e.getMessage().contains("record count"), e.getMessage());
+    }
+
+    @Test
+    void aLargeCountWithoutTheRecordsEndsWithEof() {
+        ByteBuffer batch = header(BinaryCodec.MAX_RECORDS);
+        assertThrows(EOFException.class, () -> new BinaryCodec().readEmployees(channel(batch.array())));
+    }
+
+    @Test
+    void rejectsAStringLengthOverTheLimitBeforeAllocating() {
+        // varint 0x7FFFFFFF: a 2 GB name
+        byte[] batch = employeeWithNameLength(0xFF, 0xFF, 0xFF, 0xFF, 0x07);
+        IOException e = assertThrows(IOException.class, () -> new BinaryCodec().readEmployees(channel(batch)));
+        assertTrue(e.getMessage().contains("string length"), e.getMessage());
+    }
+
+    @Test
+    void rejectsANegativeStringLength() {
+        // varint 0xFFFFFFFF = -1
+        byte[] batch = employeeWithNameLength(0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+        assertThrows(IOException.class, () -> new BinaryCodec().readEmployees(channel(batch)));
+    }
+
+    private static ByteBuffer header(int count) {
+        ByteBuffer batch = ByteBuffer.allocate(64);
+        batch.putInt(0x454D5042).putShort((short) BinaryCodec.SCHEMA_VERSION).put((byte) 2).putInt(count);
+        return batch;
+    }
+
+    private static byte[] employeeWithNameLength(int... varint) {
+        ByteBuffer batch = header(1);
+        batch.putInt(1).putDouble(100_000);
+        for (int b : varint) {
+            batch.put((byte) b);
+        }
+        return batch.array();
+    }
+
+    private static ReadableByteChannel channel(byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,57 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarEmployeeStoreTest {
+
+    private static List<Employee> employees(int count) {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            employees.add(new Employee(i, "Name" + i, 50_000 + i, i % 2 == 0 ? "IT" : "HR"));
+        }
+        return employees;
+    }
+
+    @Test
+    void compactDropsNamesOfRemovedAndReplacedRows() {
+        ColumnarEmployeeStore store = new ColumnarEmployeeStore(employees(10));
+        store.set(3, new Employee(3, "Renamed", 1, "IT"));
+        store.remove(5);
+        assertEquals(11, store.nameDictionarySize());
+
+        store.compact();
+
+        assertEquals(9, store.nameDictionarySize());
+        assertEquals("Renamed", store.name(3));
+        assertEquals("Name6", store.name(5));
+    }
+
+    @Test
+    void repeatedRenamesDoNotGrowTheDictionaryWithoutBound() {
+        ColumnarEmployeeStore store = new ColumnarEmployeeStore(employees(100));
+        for (int i = 0; i < 50_000; i++) {
+            int row = i % 100;
+            store.set(row, new Employee(row, "Name" + row + "-" + i, 1, "IT"));
+        }
+        assertTrue(store.nameDictionarySize() <= 2 * 100 + 1024, "dictionary size " + store.nameDictionarySize());
+        for (int row = 0; row < 100; row++) {
+            assertEquals("Name" + row + "-" + (49_900 + row), store.name(row));
+        }
+    }
+
+    @Test
+    void keepsNullNames() {
+        List<Employee> employees = employees(3);
+        employees.add(new Employee(3, null, 1, "IT"));
+        ColumnarEmployeeStore store = new ColumnarEmployeeStore(employees);
+        store.remove(0);
+        store.compact();
+        assertNull(store.name(2));
+        assertNull(store.get(2).getName());
+    }
+}
@@ -0,0 +1,96 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentEmployeeServiceTest {
+
+    private static List<Employee> employees() {
+        return List.of(
+                new Employee(1, "Anna", 100_000, "IT"),
+                new Employee(3, "Carl", 80_000, "HR"),
+                new Employee(4, "Dora", 70_000, "HR"));
+    }
+
+    @Test
+    void aThrowingChangeFailsOnlyForItsOwnSubmitter() throws InterruptedException {
+        ConcurrentEmployeeService service = new ConcurrentEmployeeService(employees());
+        CountDownLatch bulkStarted = new CountDownLatch(1);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+
+        // A: a slow bulk change that holds the write lock
+        AtomicReference<Object> a = new AtomicReference<>();
+        Thread writerA = new Thread(() -> a.set(service.adjustSalaries(employee -> {
+            bulkStarted.countDown();
+            awaitQuietly(releaseBulk);
+            return employee.getId() == 1;
+        }, salary -> salary + 1)));
+        writerA.start();
+        bulkStarted.await();
+
+        // B and C queue up behind it; C's predicate throws after it matched the first employee
+        AtomicReference<Object> b = new AtomicReference<>();
+        Thread writerB = run(() -> {
+            service.addEmployee(new Employee(2, "Bert", 90_000, "IT"));
+            b.set("added");
+        }, b);
+        AtomicReference<Object> c = new AtomicReference<>();
+        Thread writerC = run(() -> c.set(service.adjustSalaries(employee -> {
+            if (employee.getId() == 3) throw new IllegalStateException("bad predicate");
+            return true;
+        }, salary -> salary * 2)), c);
+        releaseBulk.countDown();
+        for (Thread writer : List.of(writerA, writerB, writerC)) {
+            writer.join();
+        }
+
+        assertEquals(1, a.get());
+        assertEquals("added", b.get());
+        assertInstanceOf(IllegalStateException.class, c.get());
+        assertEquals("Bert", service.getById(2).getName());
+        // Nothing of C's half-done adjustment is published
+        assertEquals(100_001, service.getById(1).getSalary());
+        assertEquals(90_000, service.getById(2).getSalary());
+        assertEquals(4, service.count(employee -> true));
+    }
+
+    @Test
+    void aFailedFirstChangeDoesNotBlockTheRest() {
+        ConcurrentEmployeeService service = new ConcurrentEmployeeService(employees());
+        assertThrows(IllegalStateException.class, () -> service.adjustSalaries(employee -> {
+            throw new IllegalStateException("bad predicate");
+        }, salary -> salary));
+        assertTrue(service.updateEmployee(new Employee(4, "Dora", 75_000, "HR")));
+        assertEquals(75_000, service.getById(4).getSalary());
+        assertEquals(80_000, service.getById(3).getSalary());
+    }
+
+    // Starts the writer and waits until it is queued for the write lock
+    private static Thread run(Runnable write, AtomicReference<Object> outcome) {
+        Thread writer = new Thread(() -> {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                outcome.set(e);
+            }
+        });
+        writer.start();
+        while (writer.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        return writer;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
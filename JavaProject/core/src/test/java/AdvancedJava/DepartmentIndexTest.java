@@ -0,0 +1,96 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepartmentIndexTest {
+
+    @Test
+    void matchesASortedSetUnderRandomMovesAndRemoves() {
+        int it = DepartmentDictionary.code("IT");
+        int hr = DepartmentDictionary.code("HR");
+        DepartmentIndex index = new DepartmentIndex(new ColumnarEmployeeStore(Collections.emptyList()));
+        Map<Integer, TreeSet<Integer>> expected = new HashMap<>();
+        expected.put(it, new TreeSet<>());
+        expected.put(hr, new TreeSet<>());
+        Map<Integer, Integer> departmentOf = new HashMap<>();
+
+        Random random = new Random(3);
+        for (int row = 0; row < 20_000; row++) {
+            int code = random.nextBoolean() ? it : hr;
+            index.insert(row, code);
+            expected.get(code).add(row);
+            departmentOf.put(row, code);
+        }
+        for (int step = 0; step < 50_000; step++) {
+            int row = random.nextInt(20_000);
+            Integer code = departmentOf.get(row);
+            switch (random.nextInt(3)) {
+                case 0: // move to the other department
+                    if (code == null) break;
+                    int other = code == it ? hr : it;
+                    index.remove(row, code);
+                    index.insert(row, other);
+                    expected.get(code).remove(row);
+                    expected.get(other).add(row);
+                    departmentOf.put(row, other);
+                    break;
+                case 1: // update within the department
+                    if (code == null) break;
+                    index.remove(row, code);
+                    index.insert(row, code);
+                    break;
+                default: // remove, or add back
+                    if (code != null) {
+                        index.remove(row, code);
+                        expected.get(code).remove(row);
+                        departmentOf.remove(row);
+                    } else {
+                        index.insert(row, it);
+                        expected.get(it).add(row);
+                        departmentOf.put(row, it);
+                    }
+            }
+            if (step % 5_000 == 0) assertMatches(expected, index);
+        }
+        assertMatches(expected, index);
+    }
+
+    @Test
+    void dropsADepartmentWhenItsLastRowGoes() {
+        int it = DepartmentDictionary.code("IT");
+        DepartmentIndex index = new DepartmentIndex(new ColumnarEmployeeStore(Collections.emptyList()));
+        index.insert(5, it);
+        index.insert(2, it);
+        index.remove(5, it);
+        index.remove(2, it);
+        assertEquals(0, index.codes().length);
+        assertEquals(0, index.count("IT"));
+        assertArrayEquals(new int[0], index.rows("IT"));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        int it = DepartmentDictionary.code("IT");
+        DepartmentIndex index = new DepartmentIndex(new ColumnarEmployeeStore(Collections.emptyList()));
+        index.insert(1, it);
+        index.insert(3, it);
+        DepartmentIndex copy = index.copy();
+        copy.remove(1, it);
+        copy.insert(2, it);
+        assertArrayEquals(new int[] {1, 3}, index.rows("IT"));
+        assertArrayEquals(new int[] {2, 3}, copy.rows("IT"));
+    }
+
+    private static void assertMatches(Map<Integer, TreeSet<Integer>> expected, DepartmentIndex index) {
+        for (Map.Entry<Integer, TreeSet<Integer>> entry : expected.entrySet()) {
+            int[] rows = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            String department = DepartmentDictionary.department(entry.getKey());
+            assertArrayEquals(rows, index.rows(department), department);
+            assertEquals(rows.length, index.count(department));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableEmployeeServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void checkpointsAndRecoversNullNamedEmployees() throws IOException {
+        try (DurableEmployeeService durable = DurableEmployeeService.open(dir, 2)) {
+            durable.addEmployee(new Employee(1, null, 100_000, "IT"));
+            durable.addEmployee(new Employee(2, "Anna", 90_000, null));
+            durable.addEmployee(new Employee(3, "Bob", 80_000, "HR"));
+            assertNull(durable.checkpointFailure());
+        }
+        assertEquals(List.of("snapshot-2.snap", "wal.log"), files());
+
+        try (DurableEmployeeService reopened = DurableEmployeeService.open(dir, 2)) {
+            assertNull(reopened.query(s -> s.getById(1)).getName());
+            assertNull(reopened.query(s -> s.getById(2)).getDepartment());
+            assertEquals("Bob", reopened.query(s -> s.getById(3)).getName());
+        }
+    }
+
+    @Test
+    void aFailedCheckpointDoesNotFailTheWrite() throws IOException {
+        Path blocker = dir.resolve("snapshot-2.snap");
+        try (DurableEmployeeService durable = DurableEmployeeService.open(dir, 2)) {
+            // A non-empty directory where the snapshot for LSN 2 goes: the rename fails
+            Files.createDirectories(blocker);
+            Files.createFile(blocker.resolve("file"));
+
+            durable.addEmployee(new Employee(1, "Anna", 100_000, "IT"));
+            durable.addEmployee(new Employee(2, "Bob", 90_000, "IT"));
+            assertNotNull(durable.checkpointFailure());
+            assertEquals(List.of("snapshot-2.snap", "wal.log"), files(), "temp snapshot left behind");
+
+            // Retried after another checkpointInterval changes
+            durable.addEmployee(new Employee(3, "Carl", 80_000, "IT"));
+            assertNotNull(durable.checkpointFailure());
+            durable.addEmployee(new Employee(4, "Dora", 70_000, "IT"));
+            assertNull(durable.checkpointFailure());
+            assertEquals(4, size(durable));
+        }
+        Files.delete(blocker.resolve("file"));
+        Files.delete(blocker);
+
+        try (DurableEmployeeService reopened = DurableEmployeeService.open(dir, 2)) {
+            assertEquals(4, size(reopened));
+        }
+    }
+
+    @Test
+    void recoveryDropsATornRecordAtTheEndOfTheLog() throws IOException {
+        try (DurableEmployeeService durable = DurableEmployeeService.open(dir, 1000)) {
+            durable.addEmployee(new Employee(1, "Anna", 100_000, "IT"));
+            durable.addEmployee(new Employee(2, null, 90_000, "IT"));
+            durable.addEmployee(new Employee(3, "Carl", 80_000, "IT"));
+        }
+        Path wal = dir.resolve("wal.log");
+        try (FileChannel channel = FileChannel.open(wal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // the last record was only partly written
+        }
+
+        try (DurableEmployeeService reopened = DurableEmployeeService.open(dir, 1000)) {
+            assertNotNull(reopened.query(s -> s.getById(1)));
+            assertNull(reopened.query(s -> s.getById(2)).getName());
+            assertNull(reopened.query(s -> s.getById(3)));
+
+            // The torn bytes are cut off, so new records follow the last good one
+            reopened.addEmployee(new Employee(4, "Dora", 70_000, "IT"));
+        }
+        try (DurableEmployeeService reopened = DurableEmployeeService.open(dir, 1000)) {
+            assertEquals(3, size(reopened));
+            assertEquals("Dora", reopened.query(s -> s.getById(4)).getName());
+        }
+    }
+
+    @Test
+    void aFailedLogLeavesTheServiceUnchanged() throws IOException {
+        DurableEmployeeService durable = DurableEmployeeService.open(dir, 1000);
+        durable.addEmployee(new Employee(1, "Anna", 100_000, "IT"));
+
+        // An interrupt closes the log's channel in the middle of the write
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(IOException.class, () -> durable.addEmployee(new Employee(2, "Bob", 90_000, "IT")));
+        } finally {
+            Thread.interrupted();
+        }
+        assertNull(durable.query(s -> s.getById(2)));
+
+        // Every later write fails before it touches memory
+        assertThrows(IOException.class, () -> durable.updateEmployee(new Employee(1, "Anna", 1, "HR")));
+        assertThrows(IOException.class, () -> durable.removeEmployee(1));
+        assertEquals(100_000, durable.query(s -> s.getById(1)).getSalary());
+        assertEquals(1, size(durable));
+        // A change that does not apply is refused before the log is asked
+        assertFalse(durable.removeEmployee(7));
+        assertThrows(IOException.class, durable::close);
+
+        try (DurableEmployeeService reopened = DurableEmployeeService.open(dir, 1000)) {
+            assertEquals(1, size(reopened));
+            assertEquals(100_000, reopened.query(s -> s.getById(1)).getSalary());
+        }
+    }
+
+    @Test
+    void memoryMatchesTheRecoveredLogAfterConcurrentWrites() throws Exception {
+        DurableEmployeeService durable = DurableEmployeeService.open(dir, 50);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int base = t * 1000;
+            Thread writer = new Thread(() -> {
+                try {
+                    // Updates and removes right after the add of the same id (often still queued)
+                    for (int i = 0; i < 100; i++) {
+                        int id = base + i % 10;
+                        if (!durable.updateEmployee(new Employee(id, "E" + id, i, "IT"))) {
+                            durable.addEmployee(new Employee(id, "E" + id, i, "IT"));
+                        }
+                        if (i % 7 == 0) durable.removeEmployee(id);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(List.of(), failures);
+        Map<Integer, Double> salaries = salaries(durable);
+        assertEquals(size(durable), salaries.size(), "duplicate ids");
+        durable.close();
+
+        try (DurableEmployeeService reopened = DurableEmployeeService.open(dir, 50)) {
+            assertEquals(salaries, salaries(reopened));
+        }
+    }
+
+    private static Map<Integer, Double> salaries(DurableEmployeeService durable) {
+        Map<Integer, Double> salaries = new TreeMap<>();
+        Predicate<Employee> all = employee -> true;
+        for (Employee employee : durable.query(service -> service.filter(all))) {
+            salaries.put(employee.getId(), employee.getSalary());
+        }
+        return salaries;
+    }
+
+    private static long size(DurableEmployeeService durable) {
+        Predicate<Employee> all = employee -> true;
+        return durable.query(service -> service.count(all));
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeBulkLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesCsvWithHeaderQuotesAndBadLines() throws IOException {
+        String csv = "id,name,salary,department\r\n"
+                + "1,Anna,70000,IT\r\n"
+                + "2,\"Smith, \"\"Bob\"\"\",65000.50,\"HR\"\n"
+                + "3,Carl,not-a-number,IT\n"
+                + "\n"
+                + "-4,Zoë,1e5,IT";
+        EmployeeBulkLoader.LoadResult result = load(EmployeeBulkLoader.Format.CSV, csv, true);
+
+        assertEquals(3, result.getRowCount());
+        EmployeeService service = result.getService();
+        assertEquals("Anna", service.getById(1).getName());
+        assertEquals("Smith, \"Bob\"", service.getById(2).getName());
+        assertEquals(65000.5, service.getById(2).getSalary());
+        assertEquals("HR", service.getById(2).getDepartment());
+        assertEquals("Zoë", service.getById(-4).getName());
+        assertEquals(100_000, service.getById(-4).getSalary());
+
+        assertEquals(1, result.getErrorCount());
+        assertEquals(csv.indexOf("3,Carl"), result.getErrors().get(0).getOffset());
+    }
+
+    @Test
+    void reportsABadFirstLineInsteadOfTakingItForAHeader() throws IOException {
+        EmployeeBulkLoader.LoadResult csv = load(EmployeeBulkLoader.Format.CSV, "1,Anna,x,IT\n2,Bob,1,IT\n", false);
+        assertEquals(1, csv.getRowCount());
+        assertEquals(0, csv.getErrors().get(0).getOffset());
+
+        EmployeeBulkLoader.LoadResult json = load(EmployeeBulkLoader.Format.NDJSON,
+                "{\"id\":1,\"name\":\"Anna\"}\n{\"id\":2,\"name\":\"Bob\",\"salary\":1,\"department\":\"IT\"}\n", false);
+        assertEquals(1, json.getRowCount());
+        assertEquals(1, json.getErrorCount());
+        assertEquals(0, json.getErrors().get(0).getOffset());
+        assertNotNull(json.getService().getById(2));
+    }
+
+    @Test
+    void decodesJsonEscapesIncludingSurrogatePairs() throws IOException {
+        String json = "{\"id\":1, \"name\":\"A\\\"nna\\\\ \\u00e9\\ud83d\\ude00\", \"salary\":7e4, \"department\":\"I\\u0054\"}\n"
+                + "{ \"extra\" : true , \"department\":\"HR\",\"salary\":-1.5,\"name\":\"\\ud83d\",\"id\":2, \"note\":\"x\" }\n"
+                + "{\"id\":3,\"name\":\"Tab\\tNew\\nLine\",\"salary\":1,\"department\":\"IT\",\"skills\":[1]}\n";
+        EmployeeBulkLoader.LoadResult result = load(EmployeeBulkLoader.Format.NDJSON, json, false);
+
+        EmployeeService service = result.getService();
+        assertEquals("A\"nna\\ é\uD83D\uDE00", service.getById(1).getName());
+        assertEquals("IT", service.getById(1).getDepartment());
+        assertEquals(70_000, service.getById(1).getSalary());
+        // Keys in any order, unknown ones skipped; a lone surrogate becomes '?'
+        assertEquals("?", service.getById(2).getName());
+        assertEquals(-1.5, service.getById(2).getSalary());
+        // Nested values are not supported
+        assertNull(service.getById(3));
+        assertEquals(json.indexOf("{\"id\":3"), result.getErrors().get(0).getOffset());
+    }
+
+    @Test
+    void linesCutByAChunkBoundaryAreParsedWhole() throws IOException {
+        // About 4 MB: with one worker the file is split into 1 MB chunks, almost never at a line end
+        StringBuilder csv = new StringBuilder();
+        int rows = 100_000;
+        long badOffset = -1;
+        for (int i = 0; i < rows; i++) {
+            if (i == rows / 2) {
+                badOffset = csv.toString().getBytes(StandardCharsets.UTF_8).length;
+                csv.append(i).append(",Bad,,IT\n");
+                continue;
+            }
+            csv.append(i).append(",Employee number ").append(i).append(",").append(40_000 + i)
+                    .append(i % 3 == 0 ? ",Engineering\n" : ",Sales\n");
+        }
+        assertTrue(csv.length() > 4 << 20);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            for (boolean columnar : new boolean[]{true, false}) {
+                Path file = write(csv.toString());
+                EmployeeBulkLoader.LoadResult result =
+                        new EmployeeBulkLoader(EmployeeBulkLoader.Format.CSV, pool, columnar).load(file);
+                assertEquals(rows - 1, result.getRowCount());
+                assertEquals(List.of(badOffset), result.getErrors().stream().map(EmployeeBulkLoader.ParseError::getOffset).toList());
+                EmployeeService service = result.getService();
+                for (int i = 0; i < rows; i += 997) {
+                    if (i == rows / 2) continue;
+                    Employee employee = service.getById(i);
+                    assertEquals("Employee number " + i, employee.getName());
+                    assertEquals(40_000 + i, employee.getSalary());
+                    assertEquals(i % 3 == 0 ? "Engineering" : "Sales", employee.getDepartment());
+                }
+                assertEquals(rows / 3 + 1, service.getByDepartment("Engineering").size());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private EmployeeBulkLoader.LoadResult load(EmployeeBulkLoader.Format format, String content,
+                                               boolean columnar) throws IOException {
+        return new EmployeeBulkLoader(format, ForkJoinPool.commonPool(), columnar).load(write(content));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(dir, "employees", ".txt");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
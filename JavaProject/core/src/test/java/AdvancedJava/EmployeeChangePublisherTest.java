@@ -0,0 +1,209 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeChangePublisherTest {
+    private static final Employee ANNA = new Employee(1, "Anna", 100_000, "IT");
+    private static final Employee ANNA_RAISED = new Employee(1, "Anna", 110_000, "IT");
+    private static final Employee BOB = new Employee(2, "Bob", 90_000, "HR");
+    private static final Employee CARL = new Employee(3, "Carl", 80_000, "HR");
+
+    // Runs the delivery tasks right away on the calling thread, so every test is deterministic
+    private static EmployeeChangePublisher publisher(int bufferSize, int maxBatch) {
+        return new EmployeeChangePublisher(Runnable::run, bufferSize, maxBatch);
+    }
+
+    @Test
+    void deliversOnlyWhatWasRequested() {
+        EmployeeChangePublisher publisher = publisher(100, 2);
+        Recorder recorder = new Recorder(0);
+        publisher.subscribe(recorder);
+        assertNotNull(recorder.subscription);
+
+        publisher.publish(insert(ANNA, 1));
+        publisher.publish(insert(BOB, 2));
+        publisher.publish(insert(CARL, 3));
+        assertEquals(List.of(), recorder.batches, "no demand, nothing sent");
+
+        recorder.subscription.request(1);
+        assertEquals(List.of(List.of(1, 2)), recorder.ids(), "one batch of at most maxBatch");
+        recorder.subscription.request(5);
+        assertEquals(List.of(List.of(1, 2), List.of(3)), recorder.ids());
+
+        // Left-over demand is used by the next change right away
+        publisher.publish(delete(BOB, 4));
+        assertEquals(3, recorder.batches.size());
+        assertEquals(EmployeeChange.Type.DELETE, recorder.batches.get(2).get(0).getType());
+    }
+
+    @Test
+    void mergesWaitingChangesToTheSameId() {
+        EmployeeChangePublisher publisher = publisher(100, 100);
+        Recorder recorder = new Recorder(0);
+        publisher.subscribe(recorder);
+
+        publisher.publish(insert(ANNA, 1));
+        publisher.publish(update(ANNA, ANNA_RAISED, 2));   // insert + update = insert
+        publisher.publish(insert(BOB, 3));
+        publisher.publish(delete(BOB, 4));                 // insert + delete = nothing
+        publisher.publish(delete(CARL, 5));
+        publisher.publish(insert(CARL, 6));                // delete + insert = update
+        recorder.subscription.request(1);
+
+        List<EmployeeChange> batch = recorder.batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(EmployeeChange.Type.INSERT, batch.get(0).getType());
+        assertSame(ANNA_RAISED, batch.get(0).getAfter());
+        assertEquals(2, batch.get(0).getVersion());
+        assertEquals(EmployeeChange.Type.UPDATE, batch.get(1).getType());
+        assertSame(CARL, batch.get(1).getBefore());
+        assertSame(CARL, batch.get(1).getAfter());
+
+        // update + update keeps the first before and the last after
+        publisher.publish(update(ANNA, ANNA_RAISED, 7));
+        publisher.publish(update(ANNA_RAISED, ANNA, 8));
+        recorder.subscription.request(1);
+        EmployeeChange merged = recorder.batches.get(1).get(0);
+        assertEquals(EmployeeChange.Type.UPDATE, merged.getType());
+        assertSame(ANNA, merged.getBefore());
+        assertSame(ANNA, merged.getAfter());
+        assertEquals(8, merged.getVersion());
+    }
+
+    @Test
+    void aSubscriberThatFallsBehindGetsAnError() {
+        EmployeeChangePublisher publisher = publisher(2, 10);
+        Recorder slow = new Recorder(0);
+        Recorder fast = new Recorder(Long.MAX_VALUE);
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+
+        publisher.publish(insert(ANNA, 1));
+        publisher.publish(insert(BOB, 2));
+        publisher.publish(update(ANNA, ANNA_RAISED, 3)); // merged: still two ids pending
+        assertNull(slow.error);
+        publisher.publish(insert(CARL, 4));
+
+        assertInstanceOf(IllegalStateException.class, slow.error);
+        slow.subscription.request(10);
+        assertEquals(List.of(), slow.batches, "the pending changes are dropped");
+        assertEquals(4, fast.batches.size(), "other subscribers are not affected");
+
+        fast.subscription.cancel();
+        assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    void aNonPositiveRequestIsAnError() {
+        EmployeeChangePublisher publisher = publisher(10, 10);
+        Recorder recorder = new Recorder(0);
+        publisher.subscribe(recorder);
+        recorder.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, recorder.error);
+        assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    void nothingArrivesAfterCancel() {
+        EmployeeChangePublisher publisher = publisher(10, 10);
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        publisher.subscribe(recorder);
+        publisher.publish(insert(ANNA, 1));
+        recorder.subscription.cancel();
+        publisher.publish(insert(BOB, 2));
+
+        assertEquals(List.of(List.of(1)), recorder.ids());
+        assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    void throwingSubscribersAreDropped() {
+        EmployeeChangePublisher publisher = publisher(1, 10);
+        Recorder throwsOnNext = new Recorder(Long.MAX_VALUE) {
+            @Override
+            public void onNext(List<EmployeeChange> batch) {
+                super.onNext(batch);
+                throw new IllegalStateException("onNext");
+            }
+        };
+        Recorder throwsOnSubscribe = new Recorder(Long.MAX_VALUE) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                throw new IllegalStateException("onSubscribe");
+            }
+        };
+        Recorder healthy = new Recorder(Long.MAX_VALUE);
+        publisher.subscribe(throwsOnNext);
+        publisher.subscribe(throwsOnSubscribe);
+        publisher.subscribe(healthy);
+
+        // More changes than the buffer holds: a dropped subscriber would overflow into onError()
+        for (int id = 1; id <= 5; id++) {
+            publisher.publish(insert(new Employee(id, "E" + id, 1, "IT"), id));
+        }
+        assertEquals(List.of(List.of(1)), throwsOnNext.ids());
+        assertEquals(List.of(), throwsOnSubscribe.batches);
+        assertNull(throwsOnSubscribe.error);
+        assertEquals(5, healthy.batches.size());
+
+        healthy.subscription.cancel();
+        assertFalse(publisher.hasSubscribers());
+    }
+
+    private static EmployeeChange insert(Employee employee, long version) {
+        return new EmployeeChange(EmployeeChange.Type.INSERT, null, employee, version);
+    }
+
+    private static EmployeeChange update(Employee before, Employee after, long version) {
+        return new EmployeeChange(EmployeeChange.Type.UPDATE, before, after, version);
+    }
+
+    private static EmployeeChange delete(Employee employee, long version) {
+        return new EmployeeChange(EmployeeChange.Type.DELETE, employee, null, version);
+    }
+
+    private static class Recorder implements Flow.Subscriber<List<EmployeeChange>> {
+        private final long initialDemand;
+        Flow.Subscription subscription;
+        final List<List<EmployeeChange>> batches = new ArrayList<>();
+        Throwable error;
+
+        Recorder(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(List<EmployeeChange> batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        List<List<Integer>> ids() {
+            return batches.stream()
+                    .map(batch -> batch.stream().map(EmployeeChange::getId).collect(Collectors.toList()))
+                    .collect(Collectors.toList());
+        }
+    }
+}
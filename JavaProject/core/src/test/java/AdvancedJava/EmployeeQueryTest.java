@@ -0,0 +1,129 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeQueryTest {
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Sales", "Finance", null};
+    private static final String[] NAMES = {"Anna", "Andrew", "Bob", "Bea", "Carl", "", null};
+
+    // 20,000 rows with every 10th removed: more than 16 * 1024 live rows, so the compiler
+    // samples the store and orders the parts of and / or by their measured selectivity
+    private static final int ROWS = 20_000;
+
+    @Test
+    void compiledQueriesMatchTheirPredicateOnBothStores() {
+        List<Employee> employees = employees();
+        for (EmployeeService service : List.of(new EmployeeService(employees), EmployeeService.columnar(employees))) {
+            removeEveryTenth(service);
+            Random random = new Random(3);
+            for (int i = 0; i < 300; i++) {
+                EmployeeQuery query = randomQuery(random, 3);
+                assertSameResult(service, query);
+            }
+        }
+    }
+
+    @Test
+    void salaryBoundsAreExclusiveOrInclusiveAsNamed() {
+        EmployeeService service = EmployeeService.columnar(List.of(
+                new Employee(1, "A", 50_000, "IT"),
+                new Employee(2, "B", 50_000.01, "IT"),
+                new Employee(3, "C", 49_999.99, "IT")));
+        assertEquals(List.of(2), ids(service.filter(EmployeeQuery.salaryAbove(50_000))));
+        assertEquals(List.of(3), ids(service.filter(EmployeeQuery.salaryBelow(50_000))));
+        assertEquals(List.of(1), ids(service.filter(EmployeeQuery.salaryBetween(50_000, 50_000))));
+        assertEquals(List.of(1, 3), ids(service.filter(EmployeeQuery.salaryAbove(50_000).negate())));
+        assertEquals(List.of(), ids(service.filter(EmployeeQuery.salaryBetween(60_000, 40_000))));
+    }
+
+    @Test
+    void idQueriesUseTheIndexAndStillApplyTheOtherParts() {
+        List<Employee> employees = employees();
+        for (EmployeeService service : List.of(new EmployeeService(employees), EmployeeService.columnar(employees))) {
+            removeEveryTenth(service);
+            // 10 and 20 are removed, -5 and ROWS + 1 never existed
+            int[] ids = {7, 10, 20, 33, 1234, 19_999, -5, ROWS + 1};
+            List<EmployeeQuery> queries = List.of(
+                    EmployeeQuery.idIn(ids),
+                    EmployeeQuery.idIn(ids).and(EmployeeQuery.salaryAbove(70_000)),
+                    EmployeeQuery.idIn(ids).and(EmployeeQuery.idIn(7, 33, 99)),
+                    EmployeeQuery.or(EmployeeQuery.idIn(7), EmployeeQuery.idIn(33).and(EmployeeQuery.departmentIn("HR"))),
+                    EmployeeQuery.idIn(ids).and(EmployeeQuery.namePrefix("A").negate()),
+                    EmployeeQuery.idIn());
+            for (EmployeeQuery query : queries) {
+                assertSameResult(service, query);
+            }
+        }
+    }
+
+    @Test
+    void requiredIdsCombineThroughAndOr() {
+        EmployeeQuery small = EmployeeQuery.idIn(3, 1, 3);
+        EmployeeQuery large = EmployeeQuery.idIn(1, 2, 3, 4);
+        EmployeeQuery salary = EmployeeQuery.salaryAbove(10);
+
+        assertArrayEquals(new int[]{1, 3}, small.requiredIds(), "sorted, no duplicates");
+        assertArrayEquals(new int[]{1, 3}, large.and(salary).and(small).requiredIds(), "the smallest part");
+        assertArrayEquals(new int[]{1, 2, 3, 4}, EmployeeQuery.or(small, large).requiredIds(), "the union");
+        assertNull(EmployeeQuery.or(small, salary).requiredIds(), "one part accepts any id");
+        assertNull(small.negate().requiredIds());
+        assertNull(salary.requiredIds());
+        assertArrayEquals(new int[0], EmployeeQuery.or().requiredIds(), "an empty or accepts nothing");
+    }
+
+    private static void assertSameResult(EmployeeService service, EmployeeQuery query) {
+        List<Integer> expected = ids(service.filter(query::test));
+        assertEquals(expected, ids(service.filter(query)), query.toString());
+        assertEquals(expected.size(), service.count(query), query.toString());
+    }
+
+    // Leaves with thresholds on real salaries (boundaries), combined up to 'depth' levels
+    private static EmployeeQuery randomQuery(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 9 : 6);
+        double salary = 40_000 + 100 * random.nextInt(600);
+        switch (kind) {
+            case 0: return EmployeeQuery.salaryBetween(salary, salary + 100 * random.nextInt(200));
+            case 1: return EmployeeQuery.salaryAbove(salary);
+            case 2: return EmployeeQuery.salaryBelow(salary);
+            case 3: return EmployeeQuery.departmentIn(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                    DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+            case 4: return EmployeeQuery.namePrefix(random.nextBoolean() ? "A" : "B");
+            case 5: return EmployeeQuery.idIn(random.ints(random.nextInt(50), -10, ROWS + 10).toArray());
+            case 6: return randomQuery(random, depth - 1).negate();
+            default: {
+                EmployeeQuery[] parts = new EmployeeQuery[random.nextInt(4)];
+                for (int i = 0; i < parts.length; i++) {
+                    parts[i] = randomQuery(random, depth - 1);
+                }
+                return kind == 7 ? EmployeeQuery.and(parts) : EmployeeQuery.or(parts);
+            }
+        }
+    }
+
+    private static List<Employee> employees() {
+        Random random = new Random(5);
+        List<Employee> employees = new ArrayList<>(ROWS);
+        for (int id = 0; id < ROWS; id++) {
+            employees.add(new Employee(id, NAMES[random.nextInt(NAMES.length)],
+                    40_000 + 100 * random.nextInt(600), DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]));
+        }
+        return employees;
+    }
+
+    private static void removeEveryTenth(EmployeeService service) {
+        for (int id = 0; id < ROWS; id += 10) {
+            assertTrue(service.removeEmployee(id));
+        }
+    }
+
+    private static List<Integer> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+}
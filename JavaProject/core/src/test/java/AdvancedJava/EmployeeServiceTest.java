@@ -0,0 +1,179 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeServiceTest {
+
+    private static List<Employee> employees() {
+        String[] names = {"Carla", "alice", "Bob", null, "Alicia", "Carl", "Alice", "bobby", "Alice"};
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            employees.add(new Employee(i, names[i], 50_000 + 1_000 * i, i % 2 == 0 ? "IT" : "HR"));
+        }
+        return employees;
+    }
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Sales", "Ops"};
+
+    @Test
+    void listStoreIndexesStayConsistentUnderChanges() {
+        checkIndexesUnderChanges(EmployeeService::new);
+    }
+
+    @Test
+    void columnarStoreIndexesStayConsistentUnderChanges() {
+        checkIndexesUnderChanges(EmployeeService::columnar);
+    }
+
+    // Random adds, updates, removes and bulk changes, in phases that grow the service, shrink it
+    // far enough to compact the store, and grow it again; every query is compared with a model
+    private static void checkIndexesUnderChanges(Function<List<Employee>, EmployeeService> create) {
+        Random random = new Random(7);
+        Map<Integer, Employee> model = new HashMap<>();
+        EmployeeService service = create.apply(new ArrayList<>());
+        int nextId = 0;
+        int[] targets = {3_000, 300, 2_000};
+        for (int target : targets) {
+            for (int step = 0; step < 6_000; step++) {
+                boolean grow = model.size() < target;
+                int op = random.nextInt(10);
+                if (model.isEmpty() || op < (grow ? 6 : 1)) {
+                    Employee employee = randomEmployee(random, nextId++);
+                    service.addEmployee(employee);
+                    model.put(employee.getId(), employee);
+                } else if (op < (grow ? 8 : 3)) {
+                    int id = anyId(random, model);
+                    Employee employee = randomEmployee(random, id);
+                    assertTrue(service.updateEmployee(employee));
+                    model.put(id, employee);
+                } else {
+                    int id = anyId(random, model);
+                    assertTrue(service.removeEmployee(id));
+                    model.remove(id);
+                }
+                if (step % 500 == 0) {
+                    String department = DEPARTMENTS[random.nextInt(DEPARTMENTS.length)];
+                    int adjusted = service.adjustSalaries(e -> e.getDepartment().equals(department), s -> s + 100);
+                    int expected = 0;
+                    for (Employee e : new ArrayList<>(model.values())) {
+                        if (!e.getDepartment().equals(department)) continue;
+                        model.put(e.getId(), new Employee(e.getId(), e.getName(), e.getSalary() + 100, department));
+                        expected++;
+                    }
+                    assertEquals(expected, adjusted);
+                }
+                if (step % 250 == 0) assertMatches(model, service, random);
+            }
+            assertMatches(model, service, random);
+        }
+        assertFalse(service.removeEmployee(-1));
+        assertFalse(service.updateEmployee(new Employee(-1, "Nobody", 1, "IT")));
+    }
+
+    private static void assertMatches(Map<Integer, Employee> model, EmployeeService service, Random random) {
+        List<Employee> all = new ArrayList<>(model.values());
+        for (Employee employee : all) {
+            assertEquals(employee.toString(), String.valueOf(service.getById(employee.getId())));
+        }
+
+        double min = 40_000 + random.nextInt(60) * 1_000;
+        double max = min + random.nextInt(40) * 1_000;
+        List<Employee> between = all.stream()
+                .filter(e -> e.getSalary() >= min && e.getSalary() <= max).collect(Collectors.toList());
+        assertEquals(sortedIds(between), sortedIds(service.getEmployeesWithSalaryBetween(min, max)));
+        assertEquals(between.size(), service.countEmployeesWithSalaryBetween(min, max));
+        assertEquals(between.stream().mapToDouble(Employee::getSalary).sum(), service.sumOfSalariesBetween(min, max), 1e-6);
+        assertEquals(sortedIds(all.stream().filter(e -> e.getSalary() > min).collect(Collectors.toList())),
+                sortedIds(service.getEmployeesWithSalaryAbove(min)));
+
+        List<Double> salaries = all.stream().map(Employee::getSalary)
+                .sorted(Comparator.reverseOrder()).limit(10).collect(Collectors.toList());
+        assertEquals(salaries, service.topKBySalary(10).stream().map(Employee::getSalary).collect(Collectors.toList()));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (Employee employee : all) {
+            counts.merge(employee.getDepartment(), 1, Integer::sum);
+        }
+        assertEquals(counts, service.countByDepartment());
+        for (String department : DEPARTMENTS) {
+            List<Employee> members = all.stream()
+                    .filter(e -> e.getDepartment().equals(department)).collect(Collectors.toList());
+            assertEquals(sortedIds(members), sortedIds(service.getByDepartment(department)));
+            assertStats(members, service.getSalaryStats(department));
+        }
+        assertStats(all, service.getSalaryStats());
+    }
+
+    private static void assertStats(List<Employee> employees, SalaryStats stats) {
+        assertEquals(employees.size(), stats.getCount());
+        assertEquals(employees.stream().mapToDouble(Employee::getSalary).sum(), stats.getSum(), 1e-6);
+        if (employees.isEmpty()) return;
+        assertEquals(employees.stream().mapToDouble(Employee::getSalary).min().getAsDouble(), stats.getMin());
+        assertEquals(employees.stream().mapToDouble(Employee::getSalary).max().getAsDouble(), stats.getMax());
+    }
+
+    private static Employee randomEmployee(Random random, int id) {
+        return new Employee(id, "Name" + random.nextInt(500), 40_000 + random.nextInt(100) * 1_000,
+                DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+    }
+
+    private static int anyId(Random random, Map<Integer, Employee> model) {
+        List<Integer> ids = new ArrayList<>(model.keySet());
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static List<Integer> sortedIds(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void nameSearchWithoutIndexMatchesTheIndex() {
+        try (OffHeapEmployeeStore store = new OffHeapEmployeeStore(employees())) {
+            EmployeeService indexed = new EmployeeService(employees());
+            EmployeeService scanned = EmployeeService.offHeap(store);
+            for (boolean ignoreCase : new boolean[]{false, true}) {
+                for (String key : new String[]{"", "Al", "ali", "lic", "b", "Carl"}) {
+                    for (int limit : new int[]{0, 1, 2, 100}) {
+                        assertEquals(ids(indexed.findByNamePrefix(key, ignoreCase, limit)),
+                                ids(scanned.findByNamePrefix(key, ignoreCase, limit)));
+                        assertEquals(ids(indexed.findByNameContaining(key, ignoreCase, limit)),
+                                ids(scanned.findByNameContaining(key, ignoreCase, limit)));
+                    }
+                }
+            }
+            assertEquals(List.of(6, 8, 4), ids(indexed.findByNameContaining("Ali", false, 10)));
+            assertEquals(List.of(1, 6, 8, 4), ids(scanned.findByNameContaining("ali", true, 10)));
+        }
+    }
+
+    @Test
+    void rejectsANegativeLimit() {
+        try (OffHeapEmployeeStore store = new OffHeapEmployeeStore(employees())) {
+            EmployeeService indexed = new EmployeeService(employees());
+            EmployeeService scanned = EmployeeService.offHeap(store);
+            for (EmployeeService service : List.of(indexed, scanned)) {
+                assertThrows(IllegalArgumentException.class, () -> service.findByNamePrefix("A", false, -1));
+                assertThrows(IllegalArgumentException.class, () -> service.findByNameContaining("A", true, -1));
+            }
+        }
+    }
+
+    private static List<Integer> ids(List<Employee> employees) {
+        List<Integer> ids = new ArrayList<>();
+        for (Employee employee : employees) {
+            ids.add(employee.getId());
+        }
+        return ids;
+    }
+}
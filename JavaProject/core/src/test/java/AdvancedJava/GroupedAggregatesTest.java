@@ -0,0 +1,123 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupedAggregatesTest {
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Sales", "Finance", null};
+
+    private final Aggregate count = Aggregate.count();
+    private final Aggregate sum = Aggregate.sum();
+    private final Aggregate avg = Aggregate.avg();
+    private final Aggregate min = Aggregate.min();
+    private final Aggregate max = Aggregate.max();
+    private final Aggregate sumOfSquares = Aggregate.custom("sumOfSquares", 0.0, (acc, s) -> acc + s * s, Double::sum);
+
+    @Test
+    void matchesGroupByDepartmentOnBothStores() {
+        List<Employee> employees = employees(30_000);
+        for (EmployeeService service : List.of(new EmployeeService(employees), EmployeeService.columnar(employees))) {
+            for (int id = 0; id < employees.size(); id += 7) {
+                service.removeEmployee(id);
+            }
+            GroupedAggregates result = service.aggregateByDepartment(count, sum, avg, min, max, sumOfSquares);
+            Map<String, List<Employee>> groups = service.groupByDepartment();
+
+            assertEquals(groups.keySet(), result.departments());
+            for (Map.Entry<String, List<Employee>> group : groups.entrySet()) {
+                String department = group.getKey();
+                double[] salaries = group.getValue().stream().mapToDouble(Employee::getSalary).toArray();
+                double total = 0, squares = 0;
+                double lowest = Double.POSITIVE_INFINITY, highest = Double.NEGATIVE_INFINITY;
+                for (double salary : salaries) {
+                    total += salary;
+                    squares += salary * salary;
+                    lowest = Math.min(lowest, salary);
+                    highest = Math.max(highest, salary);
+                }
+                assertEquals(salaries.length, result.count(department), department);
+                assertEquals(salaries.length, result.get(department, count), department);
+                // The service sums with compensation, the plain loop above does not
+                assertEquals(total, result.get(department, sum), total * 1e-12, department);
+                assertEquals(total / salaries.length, result.get(department, avg), total / salaries.length * 1e-12, department);
+                assertEquals(lowest, result.get(department, min), department);
+                assertEquals(highest, result.get(department, max), department);
+                assertEquals(squares, result.get(department, sumOfSquares), squares * 1e-12, department);
+            }
+            assertEquals(groups.size(), result.toMap(avg).size());
+        }
+    }
+
+    @Test
+    void emptyGroupsHaveNeutralValues() {
+        EmployeeService service = EmployeeService.columnar(new ArrayList<>(List.of(
+                new Employee(1, "Anna", 70_000, "IT"),
+                new Employee(2, "Lea", 80_000, "Legal"))));
+        service.removeEmployee(2); // Legal is known, but has nobody left
+        Aggregate custom = Aggregate.custom("product", 1.0, (acc, s) -> acc * s, (a, b) -> a * b);
+        GroupedAggregates result = service.aggregateByDepartment(count, sum, avg, min, max, custom);
+
+        assertEquals(java.util.Set.of("IT"), result.departments());
+        for (String department : new String[]{"Legal", "Never heard of"}) {
+            assertEquals(0, result.count(department));
+            assertEquals(0.0, result.get(department, sum));
+            assertEquals(0.0, result.get(department, avg));
+            assertTrue(Double.isNaN(result.get(department, min)));
+            assertTrue(Double.isNaN(result.get(department, max)));
+            assertEquals(1.0, result.get(department, custom));
+        }
+        assertFalse(result.toMap(min).containsKey("Legal"));
+        assertThrows(IllegalArgumentException.class, () -> result.get("IT", Aggregate.sum()),
+                "only the aggregates it was computed with");
+    }
+
+    @Test
+    void parallelPartialsMergeToTheSequentialResult() {
+        List<Employee> employees = employees(200_000);
+        EmployeeService service = EmployeeService.columnar(employees);
+        for (int id = 0; id < employees.size(); id += 3) {
+            service.removeEmployee(id);
+        }
+        GroupedAggregates sequential = service.aggregateByDepartment(count, sum, avg, min, max, sumOfSquares);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            service.enableParallelMode(pool, 1);
+            GroupedAggregates parallel = service.aggregateByDepartment(count, sum, avg, min, max, sumOfSquares);
+            assertEquals(sequential.departments(), parallel.departments());
+            for (String department : sequential.departments()) {
+                assertEquals(sequential.count(department), parallel.count(department));
+                assertEquals(sequential.get(department, min), parallel.get(department, min));
+                assertEquals(sequential.get(department, max), parallel.get(department, max));
+                // Compensated sums: only the order of the additions differs
+                double total = sequential.get(department, sum);
+                assertEquals(total, parallel.get(department, sum), Math.abs(total) * 1e-15);
+                assertEquals(sequential.get(department, avg), parallel.get(department, avg),
+                        sequential.get(department, avg) * 1e-15);
+                double squares = sequential.get(department, sumOfSquares);
+                assertEquals(squares, parallel.get(department, sumOfSquares), squares * 1e-12);
+            }
+        } finally {
+            service.disableParallelMode();
+            pool.shutdown();
+        }
+    }
+
+    // Salaries with cents, so the sums are not exact in binary
+    private static List<Employee> employees(int n) {
+        Random random = new Random(9);
+        List<Employee> employees = new ArrayList<>(n);
+        for (int id = 0; id < n; id++) {
+            employees.add(new Employee(id, "E" + id, 30_000 + random.nextInt(9_000_000) / 100.0,
+                    DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]));
+        }
+        return employees;
+    }
+}
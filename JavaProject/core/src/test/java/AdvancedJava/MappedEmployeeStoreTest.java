@@ -0,0 +1,84 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedEmployeeStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsNullNamesAndDepartments() throws IOException {
+        ColumnarEmployeeStore source = new ColumnarEmployeeStore(List.of(
+                new Employee(1, null, 100_000, "IT"),
+                new Employee(2, "", 90_000, null),
+                new Employee(3, "Zoë", 80_000, "IT"),
+                new Employee(4, null, 70_000, null),
+                new Employee(5, "Bob", 60_000, "HR")));
+        source.remove(2);
+        Path file = dir.resolve("employees.snapshot");
+        MappedEmployeeStore.write(source, file);
+
+        MappedEmployeeStore store = MappedEmployeeStore.open(file);
+        assertEquals(4, store.rowCount());
+        assertNull(store.name(0));
+        assertEquals("", store.name(1));
+        assertNull(store.name(2));
+        assertEquals("Bob", store.name(3));
+        assertEquals("IT", store.department(0));
+        assertNull(store.department(1));
+        assertNull(store.department(2));
+        assertEquals(DepartmentDictionary.code(null), store.departmentCode(1));
+        assertEquals(5, store.id(3));
+
+        assertArrayEquals(new int[]{1, 2}, store.rowsInDepartment(null));
+        assertEquals(Map.of("IT", 1, "HR", 1), withoutNull(store.countByDepartment()));
+        assertEquals(2, store.countByDepartment().get(null));
+    }
+
+    @Test
+    void snapshotServiceFindsNullNamedEmployees() throws IOException {
+        EmployeeService service = new EmployeeService(List.of(
+                new Employee(1, null, 100_000, "IT"),
+                new Employee(2, "Anna", 90_000, "IT")));
+        Path file = dir.resolve("service.snapshot");
+        service.saveSnapshot(file);
+
+        EmployeeService snapshot = EmployeeService.openSnapshot(file);
+        assertNull(snapshot.getById(1).getName());
+        assertEquals(1, snapshot.findByNamePrefix("An", false, 10).size());
+    }
+
+    // A name larger than the 1 MB write buffer is written straight to the channel
+    @Test
+    void roundTripsNamesLargerThanTheWriteBuffer() throws IOException {
+        String large = "Ä".repeat(700_000); // 1.4 MB of UTF-8
+        ColumnarEmployeeStore source = new ColumnarEmployeeStore(List.of(
+                new Employee(1, "Anna", 100_000, "IT"),
+                new Employee(2, large, 90_000, "HR"),
+                new Employee(3, "Bob", 80_000, "IT")));
+        Path file = dir.resolve("large.snapshot");
+        MappedEmployeeStore.write(source, file);
+
+        MappedEmployeeStore store = MappedEmployeeStore.open(file);
+        assertEquals(3, store.rowCount());
+        assertEquals("Anna", store.name(0));
+        assertEquals(large, store.name(1));
+        assertEquals("Bob", store.name(2));
+        assertEquals(80_000, store.salary(2));
+        assertEquals("IT", store.department(2));
+    }
+
+    private static Map<String, Integer> withoutNull(Map<String, Integer> counts) {
+        counts.remove(null);
+        return counts;
+    }
+}
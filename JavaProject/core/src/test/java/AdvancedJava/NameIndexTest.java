@@ -0,0 +1,120 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameIndexTest {
+    private static final String[] NAMES = {
+            "Alice", "Alicia", "Bob", "Bobby", "Carla", "Carl", "Alina", "Lina", "Anna", "Hannah", "Al", "Zoë"};
+
+    @Test
+    void matchesABruteForceSearchUnderChurn() {
+        assertMatchesUnderChurn(NAMES, 5_000, new String[]{"", "a", "li", "lic", "Ali", "ann", "Carl", "obb", "zzz"});
+    }
+
+    // Thousands of distinct names: the recent run is merged many times, names are dropped,
+    // come back and have their ids reused, and the trigram map grows and shrinks
+    @Test
+    void matchesABruteForceSearchWithManyDistinctNames() {
+        Random random = new Random(7);
+        String[] syllables = {"an", "bo", "ca", "li", "ma", "ri", "to", "el", "ze", "ku"};
+        String[] pool = new String[3_000];
+        for (int i = 0; i < pool.length; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int s = 1 + random.nextInt(4); s > 0; s--) {
+                name.append(syllables[random.nextInt(syllables.length)]);
+            }
+            pool[i] = name.toString();
+        }
+        assertMatchesUnderChurn(pool, 20_000, new String[]{"", "l", "ma", "ali", "anbo", "kuze", "rito", "xyz"});
+    }
+
+    @Test
+    void bulkBuildMatchesIncrementalInserts() {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            employees.add(new Employee(i, i % 7 == 0 ? null : NAMES[i % NAMES.length] + (i % 40), 1, "IT"));
+        }
+        ListEmployeeStore store = new ListEmployeeStore(employees);
+        store.remove(3);
+        NameIndex bulk = new NameIndex(store, true);
+        NameIndex incremental = new NameIndex(new ListEmployeeStore(List.of()), true);
+        for (int row = 0; row < employees.size(); row++) {
+            if (row != 3) incremental.insert(row, employees.get(row).getName());
+        }
+        assertEquals(incremental.nameCount(), bulk.nameCount());
+        for (String key : new String[]{"", "a", "ALI", "bob1", "nna2", "9"}) {
+            assertArrayEquals(incremental.rowsWithPrefix(key, 1000), bulk.rowsWithPrefix(key, 1000), key);
+            assertArrayEquals(incremental.rowsContaining(key, 1000), bulk.rowsContaining(key, 1000), key);
+        }
+    }
+
+    private static void assertMatchesUnderChurn(String[] pool, int steps, String[] keys) {
+        Random random = new Random(42);
+        NameIndex index = new NameIndex(new ListEmployeeStore(List.of()), false);
+        List<String> model = new ArrayList<>(); // row -> name, null once removed
+        for (int step = 0; step < steps; step++) {
+            if (model.isEmpty() || random.nextInt(3) > 0) {
+                String name = pool[random.nextInt(pool.length)];
+                index.insert(model.size(), name);
+                model.add(name);
+            } else {
+                int row = random.nextInt(model.size());
+                if (model.get(row) == null) continue;
+                index.remove(row, model.get(row));
+                model.set(row, null);
+            }
+            if (step % (steps / 100) == 0) {
+                assertEquals(model.stream().filter(Objects::nonNull).distinct().count(), index.nameCount());
+                NameIndex copy = index.copy();
+                for (String key : keys) {
+                    for (int limit : new int[]{0, 1, 3, 10, Integer.MAX_VALUE}) {
+                        assertArrayEquals(expected(model, name -> name.contains(key), limit),
+                                index.rowsContaining(key, limit), "containing '" + key + "' limit " + limit);
+                        assertArrayEquals(expected(model, name -> name.startsWith(key), limit),
+                                copy.rowsWithPrefix(key, limit), "prefix '" + key + "' limit " + limit);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void dropsANameWhenItsLastRowGoes() {
+        NameIndex index = new NameIndex(new ListEmployeeStore(List.of()), true);
+        index.insert(0, "Alice");
+        index.insert(1, "ALICE");
+        index.insert(2, "Bob");
+        assertEquals(2, index.nameCount());
+
+        index.remove(0, "Alice");
+        assertEquals(2, index.nameCount());
+        index.remove(1, "ALICE");
+        assertEquals(1, index.nameCount());
+        assertArrayEquals(new int[0], index.rowsContaining("lic", 10));
+        assertArrayEquals(new int[0], index.rowsContaining("a", 10));
+
+        // A new name after a drop is found through the trigrams, also in a copy
+        index.insert(3, "Malice");
+        assertArrayEquals(new int[]{3}, index.rowsContaining("lic", 10));
+        assertArrayEquals(new int[]{3}, index.copy().rowsContaining("ali", 10));
+    }
+
+    // Rows whose name matches, in name order then row order, at most limit
+    private static int[] expected(List<String> model, Predicate<String> matches, int limit) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < model.size(); row++) {
+            if (model.get(row) != null && matches.test(model.get(row))) rows.add(row);
+        }
+        rows.sort(Comparator.comparing((Integer row) -> model.get(row)).thenComparing(row -> row));
+        return rows.stream().limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+}
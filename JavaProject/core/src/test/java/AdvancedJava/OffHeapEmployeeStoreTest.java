@@ -0,0 +1,122 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OffHeapEmployeeStoreTest {
+
+    private static List<Employee> employees() {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(new Employee(1, null, 100_000, "IT"));
+        employees.add(new Employee(2, "", 90_000, null));
+        employees.add(new Employee(3, "Zoë", 80_000, "IT"));
+        employees.add(new Employee(4, "Bob", 70_000, "HR"));
+        return employees;
+    }
+
+    @Test
+    void roundTripsNullAndNonAsciiNames() {
+        try (OffHeapEmployeeStore store = new OffHeapEmployeeStore(employees())) {
+            assertNull(store.name(0));
+            assertNull(store.get(0).getName());
+            assertEquals("", store.name(1));
+            assertNull(store.department(1));
+            assertEquals("Zoë", store.get(2).getName());
+
+            store.set(0, new Employee(1, "Anna", 100_000, "IT"));
+            store.set(2, new Employee(3, null, 80_000, "IT"));
+            assertEquals("Anna", store.name(0));
+            assertNull(store.name(2));
+            assertEquals(employees().get(3).toString(), store.get(3).toString());
+        }
+    }
+
+    @Test
+    void compactKeepsLiveRowsAndTheirNames() {
+        try (OffHeapEmployeeStore store = new OffHeapEmployeeStore(employees())) {
+            store.set(3, new Employee(4, "Bobby", 75_000, "HR"));
+            store.remove(1);
+            assertArrayEquals(new int[]{0, 2, 3}, store.rowsWithSalaryAbove(0));
+
+            store.compact();
+
+            assertEquals(3, store.rowCount());
+            assertEquals(3, store.liveCount());
+            assertNull(store.name(0));
+            assertEquals("Zoë", store.name(1));
+            assertEquals("Bobby", store.name(2));
+            assertEquals(75_000, store.salary(2));
+            assertEquals(Map.of("IT", 2, "HR", 1), store.countByDepartment());
+        }
+    }
+
+    @Test
+    void closeFreesTheMemoryAndRejectsFurtherUse() {
+        OffHeapEmployeeStore store = new OffHeapEmployeeStore(employees());
+        assertTrue(store.offHeapBytes() > 0);
+        store.close();
+        assertEquals(0, store.offHeapBytes());
+        assertThrows(IllegalStateException.class, () -> store.name(0));
+        assertThrows(IllegalStateException.class, () -> store.add(employees().get(0)));
+        store.close(); // a second close does nothing
+    }
+
+    @Test
+    void bothArenasHandOutZeroedMemoryAndFreeItOnClose() {
+        for (OffHeapArena arena : List.of(OffHeapArena.create(), OffHeapArena.directBuffers())) {
+            ByteBuffer buffer = arena.allocate(1024);
+            assertEquals(0, buffer.getLong(512), arena.name());
+            buffer.putLong(512, 42);
+            assertEquals(1024, arena.allocatedBytes());
+            arena.close();
+            assertEquals(0, arena.allocatedBytes());
+            assertThrows(IllegalStateException.class, () -> arena.allocate(8), arena.name());
+        }
+    }
+
+    // The surefire argLine adds jdk.incubator.foreign on JDK 17 (profile jdk17)
+    @Test
+    void foreignMemoryRejectsAReadRacingClose() throws InterruptedException {
+        assumeTrue(OffHeapArena.foreignAvailable(), "Foreign Memory API not available on this JVM");
+        OffHeapArena arena = OffHeapArena.create();
+        ByteBuffer buffer = arena.allocate(1 << 20);
+        CountDownLatch reading = new CountDownLatch(1);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            long sum = 0;
+            try {
+                while (true) {
+                    for (int at = 0; at < buffer.capacity(); at += 8) {
+                        sum += buffer.getLong(at);
+                    }
+                    reading.countDown();
+                }
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        reading.await();
+        // close() fails while the reader is inside an access; it succeeds on a later try
+        while (true) {
+            try {
+                arena.close();
+                break;
+            } catch (IllegalStateException e) {
+                Thread.onSpinWait();
+            }
+        }
+        reader.join();
+        assertInstanceOf(IllegalStateException.class, failure.get());
+        assertThrows(IllegalStateException.class, () -> buffer.getLong(0));
+    }
+}
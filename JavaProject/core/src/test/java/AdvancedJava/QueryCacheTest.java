@@ -0,0 +1,139 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+    // An empty list counts 40 bytes, every employee 36 more
+    private static final long EMPTY_LIST_BYTES = 40;
+    private static final long EMPLOYEE_BYTES = 36;
+
+    private final AtomicInteger computed = new AtomicInteger();
+
+    @Test
+    void countsHitsAndMissesAndForgetsEverythingOnANewVersion() {
+        QueryCache cache = new QueryCache(10, 1 << 20);
+        List<Employee> first = cache.list("salaryAbove", 50_000.0, 1, employees(2));
+        assertSame(first, cache.list("salaryAbove", 50_000.0, 1, employees(2)));
+        cache.list("salaryAbove", 60_000.0, 1, employees(1)); // other argument, other entry
+        cache.list("byDepartment", 60_000.0, 1, employees(1)); // other query, other entry
+        assertEquals(3, computed.get());
+
+        QueryCache.Stats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(0.25, stats.getHitRate());
+        assertEquals(3, stats.getEntries());
+        assertEquals(3 * EMPTY_LIST_BYTES + 4 * EMPLOYEE_BYTES, stats.getEstimatedBytes());
+
+        // Version 2: all three results are stale
+        assertNotSame(first, cache.list("salaryAbove", 50_000.0, 2, employees(2)));
+        stats = cache.stats();
+        assertEquals(3, stats.getInvalidations());
+        assertEquals(1, stats.getEntries());
+        assertEquals(EMPTY_LIST_BYTES + 2 * EMPLOYEE_BYTES, stats.getEstimatedBytes());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryWhenFull() {
+        QueryCache cache = new QueryCache(2, 1 << 20);
+        cache.list("q", 1, 1, employees(1));
+        cache.list("q", 2, 1, employees(1));
+        cache.list("q", 1, 1, employees(1)); // 1 is now the most recently used
+        cache.list("q", 3, 1, employees(1)); // evicts 2
+        assertEquals(1, cache.stats().getEvictions());
+
+        int before = computed.get();
+        cache.list("q", 1, 1, employees(1));
+        cache.list("q", 3, 1, employees(1));
+        assertEquals(before, computed.get(), "1 and 3 are still cached");
+        cache.list("q", 2, 1, employees(1));
+        assertEquals(before + 1, computed.get(), "2 was evicted");
+    }
+
+    @Test
+    void evictsByEstimatedBytes() {
+        // Room for two lists of 10 employees, not three
+        long tenEmployees = EMPTY_LIST_BYTES + 10 * EMPLOYEE_BYTES;
+        QueryCache cache = new QueryCache(100, 2 * tenEmployees + 50);
+        cache.list("q", 1, 1, employees(10));
+        cache.list("q", 2, 1, employees(10));
+        assertEquals(0, cache.stats().getEvictions());
+        cache.list("q", 3, 1, employees(10));
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(2, cache.stats().getEntries());
+        assertEquals(2 * tenEmployees, cache.stats().getEstimatedBytes());
+
+        // Larger than the whole cache: returned, but not stored (nothing else is evicted)
+        List<Employee> huge = cache.list("q", 4, 1, employees(100));
+        assertEquals(100, huge.size());
+        assertEquals(2, cache.stats().getEntries());
+        assertEquals(1, cache.stats().getEvictions());
+        cache.list("q", 4, 1, employees(100));
+        assertEquals(0, cache.stats().getHits(), "the large result is computed again");
+    }
+
+    @Test
+    void resultsCannotBeModified() {
+        QueryCache cache = new QueryCache(10, 1 << 20);
+        List<Employee> list = cache.list("q", null, 1, employees(2));
+        assertThrows(UnsupportedOperationException.class, list::clear);
+
+        Map<String, List<Employee>> groups = cache.groups("groups", null, 1, () -> {
+            Map<String, List<Employee>> result = new HashMap<>();
+            result.put("IT", employees(2).get());
+            return result;
+        });
+        assertThrows(UnsupportedOperationException.class, () -> groups.remove("IT"));
+        assertThrows(UnsupportedOperationException.class, () -> groups.get("IT").add(null));
+        assertSame(groups, cache.groups("groups", null, 1, Collections::emptyMap));
+    }
+
+    @Test
+    void serviceResultsFollowTheChanges() {
+        EmployeeService service = new EmployeeService(new ArrayList<>(List.of(
+                new Employee(1, "Anna", 70_000, "IT"),
+                new Employee(2, "Bob", 40_000, "HR"))));
+        assertNull(service.getQueryCacheStats());
+        service.enableQueryCache(10, 1 << 20);
+
+        assertEquals(1, service.getEmployeesWithSalaryAbove(50_000).size());
+        assertEquals(1, service.getEmployeesWithSalaryAbove(50_000).size());
+        assertEquals(1, service.getQueryCacheStats().getHits());
+
+        service.updateEmployee(new Employee(2, "Bob", 60_000, "HR"));
+        assertEquals(2, service.getEmployeesWithSalaryAbove(50_000).size());
+        assertEquals(2, service.getByDepartment("HR").size() + service.getByDepartment("IT").size());
+        assertEquals(1, service.getQueryCacheStats().getInvalidations());
+
+        service.disableQueryCache();
+        assertNull(service.getQueryCacheStats());
+    }
+
+    @Test
+    void rejectsNonPositiveLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new QueryCache(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new QueryCache(1, 0));
+    }
+
+    // A fresh, modifiable list of n employees; counts how often a result is computed
+    private Supplier<List<Employee>> employees(int n) {
+        return () -> {
+            computed.incrementAndGet();
+            List<Employee> employees = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                employees.add(new Employee(i, "E" + i, 1, "IT"));
+            }
+            return employees;
+        };
+    }
+}
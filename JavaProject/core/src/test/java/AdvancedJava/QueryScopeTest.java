@@ -0,0 +1,196 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryScopeTest {
+    private static final boolean JAVA_21 = Runtime.version().feature() >= 21;
+
+    @Test
+    void picksVirtualThreadsOnlyWhereTheJdkHasThem() throws Exception {
+        assertEquals(JAVA_21, QueryScope.usesVirtualThreads());
+        ExecutorService executor = QueryScope.newThreadPerTaskExecutor();
+        try {
+            // The cached pool is what Java 17 runs on
+            assertEquals(!JAVA_21, executor instanceof ThreadPoolExecutor);
+            Thread thread = executor.submit(Thread::currentThread).get();
+            assertEquals(JAVA_21, isVirtual(thread));
+        } finally {
+            executor.shutdown();
+        }
+
+        ExecutorService fallback = QueryScope.newThreadPerTaskExecutor(null);
+        try {
+            assertInstanceOf(ThreadPoolExecutor.class, fallback);
+            assertFalse(isVirtual(fallback.submit(Thread::currentThread).get()));
+        } finally {
+            fallback.shutdown();
+        }
+    }
+
+    @Test
+    void runsBlockingCallsAtTheSameTimeAndKeepsTheirOrder() throws Exception {
+        for (boolean fallback : new boolean[]{false, true}) {
+            // All tasks wait for each other: this only finishes if every one has its own thread
+            int tasks = 200;
+            CountDownLatch allStarted = new CountDownLatch(tasks);
+            List<Callable<Integer>> calls = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int value = i;
+                calls.add(() -> {
+                    allStarted.countDown();
+                    allStarted.await();
+                    return value * value;
+                });
+            }
+            List<Integer> results;
+            if (fallback) {
+                try (QueryScope scope = new QueryScope(Duration.ofSeconds(10), QueryScope.newThreadPerTaskExecutor(null))) {
+                    List<QueryScope.Task<Integer>> forked = new ArrayList<>();
+                    for (Callable<Integer> call : calls) {
+                        forked.add(scope.fork(call));
+                    }
+                    scope.join();
+                    results = new ArrayList<>();
+                    for (QueryScope.Task<Integer> task : forked) {
+                        results.add(task.get());
+                    }
+                }
+            } else {
+                results = QueryScope.invokeAll(Duration.ofSeconds(10), calls);
+            }
+            for (int i = 0; i < tasks; i++) {
+                assertEquals(i * i, results.get(i));
+            }
+        }
+    }
+
+    @Test
+    void theDeadlineCancelsWhatIsStillRunning() throws Exception {
+        for (ExecutorService executor : executors()) {
+            CountDownLatch interrupted = new CountDownLatch(1);
+            long start = System.nanoTime();
+            QueryScope.Task<String> slow;
+            QueryScope.Task<String> fast;
+            try (QueryScope scope = new QueryScope(Duration.ofMillis(200), executor)) {
+                fast = scope.fork(() -> "fast");
+                slow = scope.fork(() -> {
+                    try {
+                        Thread.sleep(60_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                    return "slow";
+                });
+                TimeoutException timeout = assertThrows(TimeoutException.class, scope::join);
+                assertTrue(timeout.getMessage().contains("1 task(s)"), timeout.getMessage());
+            }
+            assertTrue(interrupted.await(0, TimeUnit.SECONDS), "close() waited for the interrupted task");
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+            assertEquals("fast", fast.get());
+            assertThrows(IllegalStateException.class, slow::get);
+        }
+    }
+
+    @Test
+    void theFirstFailureCancelsTheOthers() throws Exception {
+        for (ExecutorService executor : executors()) {
+            AtomicInteger interrupted = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(3);
+            IllegalStateException cause = new IllegalStateException("backend down");
+            try (QueryScope scope = new QueryScope(Duration.ofSeconds(30), executor)) {
+                for (int i = 0; i < 3; i++) {
+                    scope.fork(() -> {
+                        started.countDown();
+                        try {
+                            Thread.sleep(60_000);
+                        } catch (InterruptedException e) {
+                            interrupted.incrementAndGet();
+                            // A cancelled task that fails itself is not reported
+                            throw new IllegalArgumentException("cancelled");
+                        }
+                        return null;
+                    });
+                }
+                scope.fork(() -> {
+                    started.await();
+                    throw cause;
+                });
+                ExecutionException failure = assertThrows(ExecutionException.class, scope::join);
+                assertSame(cause, failure.getCause());
+                assertThrows(IllegalStateException.class, () -> scope.fork(() -> 1), "no new tasks after a failure");
+            }
+            assertEquals(3, interrupted.get());
+        }
+    }
+
+    @Test
+    void closeWithoutJoinCancelsAndWaits() {
+        for (ExecutorService executor : executors()) {
+            AtomicInteger interrupted = new AtomicInteger();
+            QueryScope scope = new QueryScope(Duration.ofSeconds(30), executor);
+            CountDownLatch started = new CountDownLatch(1);
+            scope.fork(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+                return null;
+            });
+            assertDoesNotThrow(() -> started.await());
+            scope.close();
+            assertEquals(1, interrupted.get());
+            assertTrue(executor.isTerminated());
+            assertThrows(IllegalStateException.class, () -> scope.fork(() -> 1));
+        }
+    }
+
+    @Test
+    void onlyTheOwnerMayUseTheScope() throws Exception {
+        try (QueryScope scope = new QueryScope(Duration.ofSeconds(5))) {
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread other = new Thread(() -> {
+                try {
+                    scope.fork(() -> 1);
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            other.start();
+            other.join();
+            assertInstanceOf(IllegalStateException.class, error.get());
+            scope.join(); // nothing was forked
+        }
+    }
+
+    // The default executor for this JDK, and the cached-pool fallback
+    private static List<ExecutorService> executors() {
+        return List.of(QueryScope.newThreadPerTaskExecutor(), Executors.newCachedThreadPool());
+    }
+
+    // Thread.isVirtual() only exists on Java 21+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        if (!JAVA_21) return false;
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        return (boolean) isVirtual.invoke(thread);
+    }
+}
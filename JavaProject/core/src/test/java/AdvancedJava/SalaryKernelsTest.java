@@ -0,0 +1,99 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class SalaryKernelsTest {
+    private static final int[] SIZES = {0, 1, 3, 7, 63, 64, 65, 127, 4095, 4096, 4097, 10_007};
+
+    private final SalaryKernels scalar = SalaryKernels.scalar();
+    private final SalaryKernels vector = SalaryKernels.get();
+
+    // The surefire argLine adds the incubator module; without SIMD support there is nothing to compare
+    @BeforeAll
+    static void vectorKernelsAvailable() {
+        assumeFalse(SalaryKernels.get() == SalaryKernels.scalar(), "Vector kernels not available on this JVM");
+    }
+
+    @Test
+    void masksAboveMatchOnAnyRange() {
+        Random random = new Random(1);
+        double[] salaries = salaries(random, SalaryKernels.BLOCK + 200, true);
+        for (int from : new int[]{0, 1, 5, 64, 100}) {
+            for (int length : new int[]{0, 1, 9, 64, 65, 1000, SalaryKernels.BLOCK}) {
+                int to = from + length;
+                long[] expected = new long[SalaryKernels.BLOCK / 64];
+                long[] actual = new long[SalaryKernels.BLOCK / 64];
+                scalar.masksAbove(salaries, from, to, 70_000, expected);
+                vector.masksAbove(salaries, from, to, 70_000, actual);
+                int words = (length + 63) / 64;
+                for (int w = 0; w < words; w++) {
+                    assertEquals(expected[w], actual[w], "from " + from + ", length " + length + ", word " + w);
+                }
+            }
+        }
+    }
+
+    @Test
+    void scansMatchWithAndWithoutRemovedRows() {
+        Random random = new Random(2);
+        for (int size : SIZES) {
+            for (boolean wholeNumbers : new boolean[]{true, false}) {
+                double[] salaries = salaries(random, size, wholeNumbers);
+                for (BitSet removed : removedPatterns(random, size)) {
+                    String context = "size " + size + ", removed " + (removed == null ? "none" : removed.cardinality());
+                    for (double threshold : new double[]{-1, 50_000, 70_000, 95_000, 1e9}) {
+                        assertArrayEquals(scalar.rowsAbove(salaries, size, removed, threshold),
+                                vector.rowsAbove(salaries, size, removed, threshold), context + ", above " + threshold);
+                    }
+                    long live = size - (removed == null ? 0 : removed.get(0, size).cardinality());
+                    SalaryStats expected = scalar.liveStats(salaries, size, removed, live);
+                    SalaryStats actual = vector.liveStats(salaries, size, removed, live);
+                    assertEquals(expected.getCount(), actual.getCount(), context);
+                    assertEquals(expected.getMin(), actual.getMin(), context);
+                    assertEquals(expected.getMax(), actual.getMax(), context);
+                    // Whole numbers add up exactly; otherwise only the rounding may differ
+                    double tolerance = wholeNumbers ? 0 : 1e-9 * Math.max(1, Math.abs(expected.getSum()));
+                    assertEquals(expected.getSum(), actual.getSum(), tolerance, context);
+                    assertEquals(scalar.liveSum(salaries, size, removed),
+                            vector.liveSum(salaries, size, removed), tolerance, context);
+                }
+            }
+        }
+    }
+
+    // Salaries around 70,000, many of them exactly on the thresholds
+    private static double[] salaries(Random random, int size, boolean wholeNumbers) {
+        double[] salaries = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) == 0) {
+                salaries[i] = 70_000;
+            } else if (wholeNumbers) {
+                salaries[i] = 40_000 + random.nextInt(60_000);
+            } else {
+                salaries[i] = 40_000 + random.nextDouble() * 60_000;
+            }
+        }
+        return salaries;
+    }
+
+    private static BitSet[] removedPatterns(Random random, int size) {
+        BitSet sparse = new BitSet(size);
+        BitSet dense = new BitSet(size);
+        BitSet runs = new BitSet(size);
+        for (int row = 0; row < size; row++) {
+            if (random.nextInt(100) == 0) sparse.set(row);
+            if (random.nextInt(3) > 0) dense.set(row);
+            if ((row / 100) % 2 == 1) runs.set(row);
+        }
+        BitSet all = new BitSet(size);
+        all.set(0, size);
+        return new BitSet[]{null, new BitSet(), sparse, dense, runs, all};
+    }
+}
@@ -0,0 +1,127 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalarySketchTest {
+    // The documented bound is about 1.7% of the count for 99% of queries; a little slack keeps
+    // the test about the algorithm, not about one unlucky seed
+    private static final double RANK_ERROR = 0.02;
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+    @Test
+    void isExactUntilTheFirstLevelFills() {
+        SalarySketch sketch = new SalarySketch();
+        for (int salary = 100; salary > 0; salary--) {
+            sketch.add(salary);
+        }
+        assertEquals(100, sketch.retained());
+        for (int x = 0; x <= 100; x += 10) {
+            assertEquals(x, estimatedRank(sketch, x));
+        }
+    }
+
+    @Test
+    void keepsTheRankErrorBoundOnAMillionSalaries() {
+        int n = 1_000_000;
+        SalarySketch sketch = new SalarySketch();
+        for (int salary : shuffled(n)) {
+            sketch.add(salary);
+        }
+        assertEquals(n, sketch.count());
+        // About 3 * K values (the lowest levels keep at least MIN_CAPACITY each)
+        assertTrue(sketch.retained() < 4 * SalarySketch.K, "retained " + sketch.retained());
+        assertRanks(sketch, n);
+    }
+
+    @Test
+    void mergedSketchesKeepTheTotalWeightAndTheBound() {
+        int n = 400_000;
+        List<Integer> salaries = shuffled(n);
+        // Very different sizes, so the large sketch brings levels the small one does not have
+        SalarySketch small = new SalarySketch();
+        SalarySketch large = new SalarySketch();
+        for (int i = 0; i < n; i++) {
+            (i < 500 ? small : large).add(salaries.get(i));
+        }
+        small.merge(large);
+        assertEquals(n, small.count());
+        assertEquals(n, totalWeight(small));
+        assertRanks(small, n);
+
+        // And the other way round, with many equal parts (like parallel splits)
+        SalarySketch merged = new SalarySketch();
+        for (int part = 0; part < 8; part++) {
+            SalarySketch split = new SalarySketch();
+            for (int i = part; i < n; i += 8) {
+                split.add(salaries.get(i));
+            }
+            merged.merge(split);
+        }
+        assertEquals(n, totalWeight(merged));
+        assertRanks(merged, n);
+    }
+
+    @Test
+    void serviceQuantilesStayCloseAfterRemovals() {
+        int n = 200_000;
+        List<Employee> employees = new ArrayList<>();
+        List<Integer> salaries = shuffled(n);
+        for (int i = 0; i < n; i++) {
+            employees.add(new Employee(i, "E" + i, salaries.get(i), i % 2 == 0 ? "IT" : "HR"));
+        }
+        EmployeeService service = EmployeeService.columnar(employees);
+        assertEquals(n / 2.0, service.getSalaryQuantile(0.5), n * RANK_ERROR);
+
+        // Remove every employee with a salary below n / 4: the median moves to 5n/8
+        for (int i = 0; i < n; i++) {
+            if (salaries.get(i) < n / 4) service.removeEmployee(i);
+        }
+        int left = n - n / 4;
+        for (double q : QUANTILES) {
+            double expected = n / 4 + q * left;
+            // Removals are subtracted from a second sketch: up to twice the error of one sketch
+            assertEquals(expected, service.getSalaryQuantile(q), 2 * left * RANK_ERROR, "q = " + q);
+        }
+        assertTrue(Double.isNaN(service.getSalaryQuantile("Nobody", 0.5)));
+    }
+
+    // Salaries 0 .. n-1 make a quantile's value equal to its rank
+    private static void assertRanks(SalarySketch sketch, int n) {
+        for (double q : QUANTILES) {
+            double x = q * n;
+            assertEquals(x, estimatedRank(sketch, x), n * RANK_ERROR, "rank of " + x);
+        }
+    }
+
+    // Total weight of the kept values that are <= x
+    private static long estimatedRank(SalarySketch sketch, double x) {
+        double[] values = new double[sketch.retained()];
+        long[] weights = new long[values.length];
+        sketch.collect(values, weights, 0, false);
+        long rank = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] <= x) rank += weights[i];
+        }
+        return rank;
+    }
+
+    private static long totalWeight(SalarySketch sketch) {
+        return estimatedRank(sketch, Double.POSITIVE_INFINITY);
+    }
+
+    private static List<Integer> shuffled(int n) {
+        List<Integer> salaries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            salaries.add(i);
+        }
+        Collections.shuffle(salaries, new Random(11));
+        return salaries;
+    }
+}
@@ -0,0 +1,112 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableCounterTest {
+    private static final int THREADS = 16;
+    private static final int ADDS_PER_THREAD = 100_000;
+
+    // Thread t adds 1 + t each time
+    private static final long EXPECTED = (long) ADDS_PER_THREAD * THREADS * (THREADS + 1) / 2;
+
+    @Test
+    void sumCountsEveryAddFromManyThreads() throws InterruptedException {
+        for (ScalableCounter counter : counters()) {
+            runWriters(counter, () -> { });
+            assertEquals(EXPECTED, counter.sum(), counter.getClass().getSimpleName());
+            assertEquals(EXPECTED, counter.snapshot().getTotal(), counter.getClass().getSimpleName());
+        }
+    }
+
+    // Resets while the writers run: every add is reported by exactly one call
+    @Test
+    void sumThenResetNeverLosesOrRepeatsAnAdd() throws InterruptedException {
+        for (ScalableCounter counter : counters()) {
+            long[] reported = new long[1];
+            runWriters(counter, () -> reported[0] += counter.sumThenReset());
+            reported[0] += counter.sumThenReset();
+            assertEquals(EXPECTED, reported[0], counter.getClass().getSimpleName());
+            assertEquals(0, counter.sum(), counter.getClass().getSimpleName());
+            assertEquals(0, counter.snapshot().getTotal(), counter.getClass().getSimpleName());
+            assertEquals(0, counter.sumThenReset(), counter.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void perThreadCounterHasOneCellPerThread() throws InterruptedException {
+        ScalableCounter counter = ScalableCounter.create(ScalableCounter.Mode.PER_THREAD);
+        runWriters(counter, () -> { });
+        ScalableCounter.Snapshot snapshot = counter.snapshot();
+        assertEquals(THREADS, snapshot.getCellCount());
+        for (int i = 0; i < THREADS; i++) {
+            assertTrue(snapshot.getCell(i) > 0);
+        }
+    }
+
+    @Test
+    void stripesAreAPowerOfTwoAndAtLeastTwo() {
+        assertEquals(2, new StripedCounter(0).stripeCount());
+        assertEquals(2, new StripedCounter(1).stripeCount());
+        assertEquals(2, new StripedCounter(2).stripeCount());
+        assertEquals(8, new StripedCounter(5).stripeCount());
+        assertEquals(8, new StripedCounter(8).stripeCount());
+        assertEquals(16, new StripedCounter(9).stripeCount());
+    }
+
+    // Every mode, plus striped counters with far fewer stripes than threads (collisions)
+    private static List<ScalableCounter> counters() {
+        List<ScalableCounter> counters = new ArrayList<>();
+        for (ScalableCounter.Mode mode : ScalableCounter.Mode.values()) {
+            counters.add(ScalableCounter.create(mode));
+        }
+        counters.add(new StripedCounter(1));
+        counters.add(new StripedCounter(2));
+        return counters;
+    }
+
+    // Starts all writers together and calls 'reader' on this thread until they are done
+    private static void runWriters(ScalableCounter counter, Runnable reader) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long delta = 1 + t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    counter.add(delta);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        Thread watcher = new Thread(() -> {
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            done.set(true);
+        });
+        watcher.start();
+        while (!done.get()) {
+            reader.run();
+            Thread.yield();
+        }
+        watcher.join();
+    }
+}
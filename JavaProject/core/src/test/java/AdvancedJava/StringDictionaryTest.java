@@ -0,0 +1,52 @@
+package AdvancedJava;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+
+    @Test
+    void encodesEachDistinctValueOnceInFirstSeenOrder() {
+        StringDictionary dictionary = new StringDictionary();
+        assertEquals(0, dictionary.encode("IT"));
+        assertEquals(1, dictionary.encode("HR"));
+        assertEquals(0, dictionary.encode(new String("IT")));
+        assertEquals(2, dictionary.size());
+        assertEquals("HR", dictionary.decode(1));
+    }
+
+    @Test
+    void nullIsAnOrdinaryValue() {
+        StringDictionary dictionary = new StringDictionary();
+        assertEquals(-1, dictionary.lookup(null));
+        int code = dictionary.encode(null);
+        assertEquals(code, dictionary.lookup(null));
+        assertNull(dictionary.decode(code));
+    }
+
+    @Test
+    void keepsAllCodesAcrossResizes() {
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(i, dictionary.encode("name" + i));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(i, dictionary.lookup("name" + i));
+            assertEquals("name" + i, dictionary.decode(i));
+        }
+        assertEquals(-1, dictionary.lookup("missing"));
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionary.decode(100_000));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.encode("a");
+        StringDictionary copy = dictionary.copy();
+        copy.encode("b");
+        assertEquals(1, dictionary.size());
+        assertEquals(-1, dictionary.lookup("b"));
+        assertEquals(1, copy.lookup("b"));
+    }
+}
@@ -0,0 +1,38 @@
+package AdvancedJava;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Off-heap arena on the Foreign Memory API (JDK 17 incubator)
+ * -----------------------------------------
+ * Key Points:
+ * - Every buffer is a view of a MemorySegment allocated in one shared ResourceScope
+ *   (zero-filled, 8-byte aligned). Closing the scope frees all of them at once.
+ * - The buffers keep the scope: each get/put first checks that it is alive, so a use after
+ *   close() throws IllegalStateException. A shared scope can be closed from any thread; if
+ *   another thread is in the middle of an access, close() fails with IllegalStateException
+ *   (and can be tried again) - the memory is never freed under a running read.
+ * - Lives in its own source folder, compiled with --add-modules jdk.incubator.foreign, and is
+ *   only loaded by name (see OffHeapArena.create()): without the module the rest still runs.
+ */
+final class ForeignOffHeapArena extends OffHeapArena {
+    private final ResourceScope scope = ResourceScope.newSharedScope();
+
+    @Override
+    ByteBuffer newBuffer(int bytes) {
+        return MemorySegment.allocateNative(bytes, 8, scope).asByteBuffer();
+    }
+
+    @Override
+    void free() {
+        scope.close();
+    }
+
+    @Override
+    String name() {
+        return "foreign memory segments";
+    }
+}
@@ -0,0 +1,124 @@
+package AdvancedJava;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * Salary kernels with the Vector API (SIMD)
+ * -----------------------------------------
+ * Key Points:
+ * - SPECIES_PREFERRED is the widest vector the CPU has: 4 doubles with AVX2, 8 with AVX-512.
+ *   Each loop step loads that many salaries and compares / adds / mins them in one instruction;
+ *   the last few elements (fewer than one vector) run the scalar code.
+ * - masksAbove(): the comparison gives a VectorMask; toLong() turns it into bits that are
+ *   shifted into place - the selection masks are built without any branch. The JIT only
+ *   turns toLong() into one instruction from JDK 19 on; older JVMs keep the scalar loop there.
+ * - sum() keeps one compensated (Kahan) sum per lane and folds the lanes at the end, so the
+ *   result is as exact as the scalar sum (the order of the additions differs slightly).
+ * - Lives in its own source folder, compiled with --add-modules jdk.incubator.vector, and is
+ *   only loaded by name (see SalaryKernels.get()): without the module the rest still runs.
+ */
+final class VectorSalaryKernels extends SalaryKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final boolean MASK_TO_BITS = Runtime.version().feature() >= 19;
+
+    VectorSalaryKernels() {
+        // One double per vector would only add overhead
+        if (SPECIES.length() < 2) throw new UnsupportedOperationException("No SIMD registers for doubles");
+    }
+
+    @Override
+    String name() {
+        return "vector (" + SPECIES.length() + " doubles per instruction" + (MASK_TO_BITS ? ")" : ", scalar masks)");
+    }
+
+    @Override
+    void masksAbove(double[] salaries, int from, int to, double threshold, long[] masks) {
+        if (!MASK_TO_BITS) {
+            super.masksAbove(salaries, from, to, threshold, masks);
+            return;
+        }
+        DoubleVector limit = DoubleVector.broadcast(SPECIES, threshold);
+        int w = 0, start = from;
+        // Whole words: 64 / SPECIES.length() compares each
+        for (; start + 64 <= to; w++, start += 64) {
+            long bits = 0;
+            for (int i = 0; i < 64; i += SPECIES.length()) {
+                bits |= DoubleVector.fromArray(SPECIES, salaries, start + i).compare(VectorOperators.GT, limit).toLong() << i;
+            }
+            masks[w] = bits;
+        }
+        if (start < to) {
+            long bits = 0;
+            for (int i = start; i < to; i++) {
+                bits |= (salaries[i] > threshold ? 1L : 0L) << (i - start);
+            }
+            masks[w] = bits;
+        }
+    }
+
+    @Override
+    double sum(double[] salaries, int from, int to) {
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        DoubleVector compensation = DoubleVector.zero(SPECIES);
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector y = DoubleVector.fromArray(SPECIES, salaries, i).sub(compensation);
+            DoubleVector t = sum.add(y);
+            compensation = t.sub(sum).sub(y);
+            sum = t;
+        }
+        // Fold the lanes (and their lost low-order parts) and the tail into one compensated sum
+        double total = 0, c = 0;
+        for (int lane = 0; lane < SPECIES.length(); lane++) {
+            double value = sum.lane(lane);
+            double y = value - c;
+            double t = total + y;
+            c = (t - total) - y;
+            total = t;
+            y = -compensation.lane(lane) - c;
+            t = total + y;
+            c = (t - total) - y;
+            total = t;
+        }
+        for (; i < to; i++) {
+            double y = salaries[i] - c;
+            double t = total + y;
+            c = (t - total) - y;
+            total = t;
+        }
+        return total;
+    }
+
+    @Override
+    double min(double[] salaries, int from, int to) {
+        DoubleVector min = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; i < upper; i += SPECIES.length()) {
+            min = min.min(DoubleVector.fromArray(SPECIES, salaries, i));
+        }
+        double result = min.reduceLanes(VectorOperators.MIN);
+        for (; i < to; i++) {
+            result = Math.min(result, salaries[i]);
+        }
+        return result;
+    }
+
+    @Override
+    double max(double[] salaries, int from, int to) {
+        DoubleVector max = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        for (; i < upper; i += SPECIES.length()) {
+            max = max.max(DoubleVector.fromArray(SPECIES, salaries, i));
+        }
+        double result = max.reduceLanes(VectorOperators.MAX);
+        for (; i < to; i++) {
+            result = Math.max(result, salaries[i]);
+        }
+        return result;
+    }
+}
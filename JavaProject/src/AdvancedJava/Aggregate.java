@@ -0,0 +1,80 @@
+package AdvancedJava;
+
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+
+/*
+ * Aggregate - one value computed over the salaries of a group
+ * -----------------------------------------
+ * Key Points:
+ * - count, sum, avg, min, max, or a custom function, for EmployeeService.aggregateByDepartment().
+ * - Every aggregate keeps its running state in a few double slots (no objects per group or row).
+ * - A custom aggregate is a primitive fold: start value, how to add one salary, and how to
+ *   combine two partial results (needed when parallel mode splits the rows). Example:
+ *     Aggregate sumOfSquares = Aggregate.custom("sumOfSquares", 0.0, (acc, s) -> acc + s * s, Double::sum);
+ * - Like getAverageSalary(), avg of an empty group is 0.0; min and max are NaN.
+ */
+public final class Aggregate {
+    static final int COUNT = 0;
+    static final int SUM = 1;
+    static final int AVG = 2;
+    static final int MIN = 3;
+    static final int MAX = 4;
+    static final int CUSTOM = 5;
+
+    final int kind;
+    final String name;
+    final double identity;
+    final DoubleBinaryOperator accumulator;
+    final DoubleBinaryOperator combiner;
+
+    private Aggregate(int kind, String name, double identity,
+                      DoubleBinaryOperator accumulator, DoubleBinaryOperator combiner) {
+        this.kind = kind;
+        this.name = name;
+        this.identity = identity;
+        this.accumulator = accumulator;
+        this.combiner = combiner;
+    }
+
+    public static Aggregate count() {
+        return new Aggregate(COUNT, "count", 0, null, null);
+    }
+
+    public static Aggregate sum() {
+        return new Aggregate(SUM, "sum", 0, null, null);
+    }
+
+    public static Aggregate avg() {
+        return new Aggregate(AVG, "avg", 0, null, null);
+    }
+
+    public static Aggregate min() {
+        return new Aggregate(MIN, "min", Double.POSITIVE_INFINITY, null, null);
+    }
+
+    public static Aggregate max() {
+        return new Aggregate(MAX, "max", Double.NEGATIVE_INFINITY, null, null);
+    }
+
+    public static Aggregate custom(String name, double identity,
+                                   DoubleBinaryOperator accumulator, DoubleBinaryOperator combiner) {
+        return new Aggregate(CUSTOM, Objects.requireNonNull(name), identity,
+                Objects.requireNonNull(accumulator), Objects.requireNonNull(combiner));
+    }
+
+    // Number of double slots of running state (count is kept once per group, not per aggregate)
+    int slots() {
+        switch (kind) {
+            case COUNT: return 0;
+            case SUM:
+            case AVG: return 2; // compensated sum: value and lost low-order bits
+            default: return 1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
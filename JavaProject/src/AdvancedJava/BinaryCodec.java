@@ -0,0 +1,243 @@
+package AdvancedJava;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Compact binary format for Employee and Person batches
+ * -----------------------------------------
+ * Key Points:
+ * - ObjectOutputStream writes class names, field names and type descriptors into the stream
+ *   and uses reflection for every object - slow and bloated.
+ * - Here the schema is fixed in code, so only the values are written:
+ *     batch header : magic "EMPB" (int), schema version (short), record type (byte), count (int)
+ *     Employee     : id (int), salary (double), name (string), department (string)
+ *     Person       : age (int), name (string)
+ *     string       : varint (UTF-8 length + 1, 0 = null) followed by the UTF-8 bytes
+ * - Like Java serialization, transient fields are not written: a decoded Person has
+ *   sensitiveData == null.
+ * - One ByteBuffer is reused for every batch; it is flushed to / refilled from the channel
+ *   when it runs out, so the batch size is not limited by the buffer size.
+ * - Bytes read past the end of a batch stay in the buffer, so consecutive batches can be read
+ *   from the same channel.
+ * - A codec is not thread-safe (it owns the buffer); use one per thread.
+ * - Counts and lengths read from the input are checked before anything is allocated: a
+ *   corrupt batch gives an IOException, not an OutOfMemoryError. The list is pre-sized for at
+ *   most MAX_PRESIZE records and grows only as records are actually read.
+ */
+public final class BinaryCodec {
+    public static final int SCHEMA_VERSION = 1;
+    public static final int MAX_RECORDS = 1 << 28;
+    public static final int MAX_STRING_BYTES = 1 << 24; // 16 MB
+
+    private static final int MAGIC = 0x454D5042; // "EMPB"
+    private static final byte TYPE_PERSON = 1;
+    private static final byte TYPE_EMPLOYEE = 2;
+    private static final int MAX_PRESIZE = 4096;
+
+    private ByteBuffer buffer;
+    private byte[] scratch = new byte[256];
+
+    // Channel whose unread bytes are still in the buffer (null while writing)
+    private ReadableByteChannel source;
+
+    public BinaryCodec() {
+        this(64 * 1024);
+    }
+
+    public BinaryCodec(int bufferSize) {
+        buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    // 1. Employees
+    public void writeEmployees(List<Employee> employees, WritableByteChannel out) throws IOException {
+        startWrite(TYPE_EMPLOYEE, employees.size());
+        for (Employee emp : employees) {
+            ensure(out, 12);
+            buffer.putInt(emp.getId());
+            buffer.putDouble(emp.getSalary());
+            writeString(emp.getName(), out);
+            writeString(emp.getDepartment(), out);
+        }
+        flush(out);
+    }
+
+    public List<Employee> readEmployees(ReadableByteChannel in) throws IOException {
+        int count = startRead(TYPE_EMPLOYEE, in);
+        List<Employee> employees = new ArrayList<>(Math.min(count, MAX_PRESIZE));
+        for (int i = 0; i < count; i++) {
+            require(in, 12);
+            int id = buffer.getInt();
+            double salary = buffer.getDouble();
+            String name = readString(in);
+            String department = readString(in);
+            employees.add(new Employee(id, name, salary, department));
+        }
+        return employees;
+    }
+
+    // 2. Persons (Person is package-private, so are these)
+    void writePersons(List<Person> persons, WritableByteChannel out) throws IOException {
+        startWrite(TYPE_PERSON, persons.size());
+        for (Person person : persons) {
+            ensure(out, 4);
+            buffer.putInt(person.getAge());
+            writeString(person.getName(), out);
+        }
+        flush(out);
+    }
+
+    List<Person> readPersons(ReadableByteChannel in) throws IOException {
+        int count = startRead(TYPE_PERSON, in);
+        List<Person> persons = new ArrayList<>(Math.min(count, MAX_PRESIZE));
+        for (int i = 0; i < count; i++) {
+            require(in, 4);
+            int age = buffer.getInt();
+            persons.add(Person.restore(readString(in), age));
+        }
+        return persons;
+    }
+
+    // ---------- writing ----------
+
+    private void startWrite(byte type, int count) throws IOException {
+        if (count > MAX_RECORDS) throw new IOException("Batch of " + count + " records, the limit is " + MAX_RECORDS);
+        source = null;
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) SCHEMA_VERSION);
+        buffer.put(type);
+        buffer.putInt(count);
+    }
+
+    private void writeString(String value, WritableByteChannel out) throws IOException {
+        if (value == null) {
+            ensure(out, 1);
+            buffer.put((byte) 0);
+            return;
+        }
+        // ASCII fast path: the characters are the bytes, no byte[] needed
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            checkStringLength(length);
+            ensure(out, 5 + length);
+            putVarint(length + 1);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            checkStringLength(bytes.length);
+            ensure(out, 5 + bytes.length);
+            putVarint(bytes.length + 1);
+            buffer.put(bytes);
+        }
+    }
+
+    private static void checkStringLength(int length) throws IOException {
+        if (length > MAX_STRING_BYTES) {
+            throw new IOException("String of " + length + " bytes, the limit is " + MAX_STRING_BYTES);
+        }
+    }
+
+    // 7 bits per byte, high bit set on every byte except the last
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // Makes room for n more bytes, writing out the buffer (or growing it) if needed
+    private void ensure(WritableByteChannel out, int n) throws IOException {
+        if (buffer.remaining() >= n) return;
+        flush(out);
+        if (buffer.capacity() < n) {
+            buffer = ByteBuffer.allocate(Math.max(n, buffer.capacity() * 2));
+        }
+    }
+
+    private void flush(WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // ---------- reading ----------
+
+    private int startRead(byte type, ReadableByteChannel in) throws IOException {
+        if (source != in) {
+            source = in;
+            buffer.clear();
+            buffer.flip(); // empty, in read mode
+        }
+        require(in, 11);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not an employee binary batch (bad magic number)");
+        }
+        int version = buffer.getShort();
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IOException("Unsupported schema version " + version + " (this codec reads up to " + SCHEMA_VERSION + ")");
+        }
+        byte actualType = buffer.get();
+        if (actualType != type) {
+            throw new IOException("Expected record type " + type + " but found " + actualType);
+        }
+        int count = buffer.getInt();
+        if (count < 0 || count > MAX_RECORDS) throw new IOException("Bad record count " + count);
+        return count;
+    }
+
+    private String readString(ReadableByteChannel in) throws IOException {
+        int lengthPlusOne = readVarint(in);
+        if (lengthPlusOne == 0) return null;
+        int length = lengthPlusOne - 1;
+        if (length < 0 || length > MAX_STRING_BYTES) throw new IOException("Bad string length " + length);
+        require(in, length);
+        if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int readVarint(ReadableByteChannel in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            require(in, 1);
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    // Makes sure n bytes can be read, refilling (or growing) the buffer from the channel
+    private void require(ReadableByteChannel in, int n) throws IOException {
+        if (buffer.remaining() >= n) return;
+        if (buffer.capacity() < n) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(n, buffer.capacity() * 2));
+            bigger.put(buffer);
+            buffer = bigger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < n) {
+            if (in.read(buffer) < 0) {
+                throw new EOFException("Batch ended early: needed " + n + " bytes");
+            }
+        }
+        buffer.flip();
+    }
+}
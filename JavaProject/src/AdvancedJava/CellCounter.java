@@ -0,0 +1,38 @@
+package AdvancedJava;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * LongAdder-backed counter (ScalableCounter.Mode.CELLS)
+ * - LongAdder starts with a single base value and only adds padded cells when a CAS fails,
+ *   so it is as cheap as an AtomicLong while uncontended and spreads out under contention.
+ * - LongAdder does not expose its cells, so snapshot() reports the total as one cell.
+ */
+final class CellCounter implements ScalableCounter {
+    private final LongAdder adder = new LongAdder();
+
+    @Override
+    public void increment() {
+        adder.increment();
+    }
+
+    @Override
+    public void add(long delta) {
+        adder.add(delta);
+    }
+
+    @Override
+    public long sum() {
+        return adder.sum();
+    }
+
+    @Override
+    public long sumThenReset() {
+        return adder.sumThenReset();
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return new Snapshot(new long[] {adder.sum()});
+    }
+}
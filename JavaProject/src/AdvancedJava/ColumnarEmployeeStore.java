@@ -0,0 +1,272 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Columnar storage - one primitive array per field
+ * -----------------------------------------
+ * Key Points:
+ * - A List<Employee> stores one object per row; every query follows one pointer per row.
+ * - Here each field is its own array: ids in an int[], salaries in a double[].
+ * - Department and name are dictionary encoded: the column stores an int code that maps back
+ *   to the String (departments use the shared DepartmentDictionary, names a StringDictionary).
+ * - Names replaced by set() stay in the name dictionary until it is rebuilt from the rows:
+ *   on compact(), or once it holds twice as many names as there are rows.
+ * - A salary scan walks one contiguous double[] - friendly to the CPU cache and
+ *   it creates no garbage for the GC.
+ * - Employee objects are only built for the rows a query returns.
+ * - Removed rows are flagged in a BitSet until compact() is called.
+ * - The salary scans run SalaryKernels over the salary array (SIMD when the Vector API is there).
+ */
+public class ColumnarEmployeeStore implements EmployeeStore {
+    private StringDictionary nameDictionary;
+
+    private int[] ids;
+    private double[] salaries;
+    private int[] departmentCodes;
+    private int[] nameCodes;
+    private int size;
+
+    private final BitSet removed;
+    private int removedCount;
+
+    public ColumnarEmployeeStore(List<Employee> employees) {
+        nameDictionary = new StringDictionary();
+        removed = new BitSet();
+        int n = Math.max(employees.size(), 16);
+        ids = new int[n];
+        salaries = new double[n];
+        departmentCodes = new int[n];
+        nameCodes = new int[n];
+        for (Employee emp : employees) {
+            add(emp);
+        }
+    }
+
+    private ColumnarEmployeeStore(ColumnarEmployeeStore source) {
+        nameDictionary = source.nameDictionary.copy();
+        removed = (BitSet) source.removed.clone();
+        removedCount = source.removedCount;
+        size = source.size;
+        ids = source.ids.clone();
+        salaries = source.salaries.clone();
+        departmentCodes = source.departmentCodes.clone();
+        nameCodes = source.nameCodes.clone();
+    }
+
+    // Independent copy: changes to the copy are not visible in this store (array copies, no objects)
+    ColumnarEmployeeStore copy() {
+        return new ColumnarEmployeeStore(this);
+    }
+
+    // The column arrays themselves, for compiled queries (valid until the next add or compact)
+    double[] salaryColumn() {
+        return salaries;
+    }
+
+    int[] departmentCodeColumn() {
+        return departmentCodes;
+    }
+
+    int[] idColumn() {
+        return ids;
+    }
+
+    // Distinct names the dictionary holds, including names no row uses any more
+    int nameDictionarySize() {
+        return nameDictionary.size();
+    }
+
+    @Override
+    public int rowCount() {
+        return size;
+    }
+
+    @Override
+    public int liveCount() {
+        return size - removedCount;
+    }
+
+    @Override
+    public boolean isLive(int row) {
+        return removedCount == 0 || !removed.get(row);
+    }
+
+    @Override
+    public int id(int row) {
+        return ids[row];
+    }
+
+    @Override
+    public String name(int row) {
+        return nameDictionary.decode(nameCodes[row]);
+    }
+
+    @Override
+    public double salary(int row) {
+        return salaries[row];
+    }
+
+    @Override
+    public String department(int row) {
+        return DepartmentDictionary.department(departmentCodes[row]);
+    }
+
+    @Override
+    public int departmentCode(int row) {
+        return departmentCodes[row];
+    }
+
+    @Override
+    public int add(Employee employee) {
+        return add(employee.getId(), employee.getName(), employee.getSalary(), employee.getDepartmentCode());
+    }
+
+    // Appends a row from its field values (no Employee object needed, e.g. for bulk loading)
+    public int add(int id, String name, double salary, String department) {
+        return add(id, name, salary, DepartmentDictionary.code(department));
+    }
+
+    private int add(int id, String name, double salary, int departmentCode) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            departmentCodes = Arrays.copyOf(departmentCodes, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+        }
+        set(size, id, name, salary, departmentCode);
+        return size++;
+    }
+
+    @Override
+    public void set(int row, Employee employee) {
+        set(row, employee.getId(), employee.getName(), employee.getSalary(), employee.getDepartmentCode());
+        // Only replacements leave unused names behind
+        if (nameDictionary.size() > 2 * size + 1024) rebuildNameDictionary();
+    }
+
+    private void set(int row, int id, String name, double salary, int departmentCode) {
+        ids[row] = id;
+        salaries[row] = salary;
+        departmentCodes[row] = departmentCode;
+        nameCodes[row] = nameDictionary.encode(name);
+    }
+
+    // Re-encodes the names of all rows (removed ones too) so names no row uses are dropped
+    private void rebuildNameDictionary() {
+        StringDictionary used = new StringDictionary();
+        for (int row = 0; row < size; row++) {
+            nameCodes[row] = used.encode(nameDictionary.decode(nameCodes[row]));
+        }
+        nameDictionary = used;
+    }
+
+    @Override
+    public void setSalary(int row, double salary) {
+        salaries[row] = salary;
+    }
+
+    @Override
+    public void remove(int row) {
+        removed.set(row);
+        removedCount++;
+    }
+
+    @Override
+    public void compact() {
+        int target = 0;
+        for (int row = 0; row < size; row++) {
+            if (removed.get(row)) continue;
+            ids[target] = ids[row];
+            salaries[target] = salaries[row];
+            departmentCodes[target] = departmentCodes[row];
+            nameCodes[target] = nameCodes[row];
+            target++;
+        }
+        size = target;
+        removed.clear();
+        removedCount = 0;
+        rebuildNameDictionary();
+    }
+
+    @Override
+    public int[] rowsWithSalaryAbove(double salary) {
+        return SalaryKernels.get().rowsAbove(salaries, size, removedRows(), salary);
+    }
+
+    @Override
+    public double salarySum() {
+        return SalaryKernels.get().liveSum(salaries, size, removedRows());
+    }
+
+    @Override
+    public SalaryStats salaryStats() {
+        return SalaryKernels.get().liveStats(salaries, size, removedRows(), liveCount());
+    }
+
+    private BitSet removedRows() {
+        return removedCount == 0 ? null : removed;
+    }
+
+    @Override
+    public int[] rowsSortedBySalaryDescending() {
+        int[] rows = new int[liveCount()];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (isLive(row)) rows[count++] = row;
+        }
+        PrimitiveSort.sortRowsByKeyDescending(rows, salaries);
+        return rows;
+    }
+
+    @Override
+    public int[] rowsInDepartment(String department) {
+        int code = DepartmentDictionary.lookup(department);
+        IntList rows = new IntList();
+        if (code < 0) return rows.toArray();
+        for (int row = 0; row < size; row++) {
+            if (departmentCodes[row] == code && isLive(row)) rows.add(row);
+        }
+        return rows.toArray();
+    }
+
+    @Override
+    public Map<String, Integer> countByDepartment() {
+        int[] counts = new int[DepartmentDictionary.size()];
+        for (int row = 0; row < size; row++) {
+            if (isLive(row)) counts[departmentCodes[row]]++;
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) result.put(DepartmentDictionary.department(code), counts[code]);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, List<Employee>> groupByDepartment() {
+        // 1. Count the rows of each department code (no String hashing per row)
+        int[] counts = new int[DepartmentDictionary.size()];
+        for (int row = 0; row < size; row++) {
+            if (isLive(row)) counts[departmentCodes[row]]++;
+        }
+
+        // 2. Create every group list with its final size, then fill them in row order
+        List<List<Employee>> groups = new ArrayList<>(counts.length);
+        for (int count : counts) {
+            groups.add(new ArrayList<>(count));
+        }
+        for (int row = 0; row < size; row++) {
+            if (isLive(row)) groups.get(departmentCodes[row]).add(get(row));
+        }
+
+        Map<String, List<Employee>> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(DepartmentDictionary.department(code), groups.get(code));
+            }
+        }
+        return result;
+    }
+}
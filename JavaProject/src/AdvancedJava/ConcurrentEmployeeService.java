@@ -0,0 +1,406 @@
+package AdvancedJava;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/*
+ * ConcurrentEmployeeService - thread-safe EmployeeService for read-mostly workloads
+ * -----------------------------------------
+ * Key Points:
+ * - Putting one lock around EmployeeService makes every reader wait for every other reader.
+ *   Even a read-write lock (or StampedLock's read lock) updates one shared counter per read,
+ *   and that cache line bouncing between cores stops reads from scaling.
+ * - Here readers take no lock at all: they read one volatile reference to an immutable
+ *   snapshot (an EmployeeService whose indexes are all built and which is never changed again).
+ * - Writers build the next snapshot on a copy (copy-on-write) and publish it with a single
+ *   volatile write. A reader sees either the old or the new snapshot, never a mix.
+ * - The copy duplicates the column arrays and the indexes (O(n), no Employee objects); the
+ *   indexes are carried over and updated by the changes instead of being rebuilt. Every write
+ *   call therefore costs O(n) - see "Write cost" above addEmployee().
+ * - Writers batch: each change is put in a queue, and the thread that gets the write lock
+ *   applies every queued change to one copy (flat combining). Under write bursts one copy
+ *   serves many changes.
+ * - A change that throws fails only for its own caller: the exception is handed back to the
+ *   thread that submitted it, and the other changes of the batch are still published. A bulk
+ *   change runs on a copy of its own, so one that fails halfway leaves nothing behind.
+ * - Each call reads the latest snapshot; use snapshot() to run several queries on the same data.
+ * - changes() subscribers are told about a change only after the snapshot containing it is
+ *   published, so a query made in response to an event already sees the change.
+ */
+public class ConcurrentEmployeeService {
+
+    // The published snapshot - never modified after publication
+    private volatile EmployeeService current;
+
+    // Store behind current (only used by the thread holding writeLock to make the next copy)
+    private ColumnarEmployeeStore currentStore;
+
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final Lock writeLock = new ReentrantLock();
+    private final EmployeeChangePublisher changes = new EmployeeChangePublisher();
+
+    public ConcurrentEmployeeService(List<Employee> employees) {
+        currentStore = new ColumnarEmployeeStore(employees);
+        EmployeeService service = new EmployeeService(currentStore);
+        service.prepareForSharing();
+        current = service;
+    }
+
+    // Read-only view of the current data; stays unchanged however many writes follow
+    public Snapshot snapshot() {
+        return new Snapshot(current);
+    }
+
+    // 1. Queries (lock-free: each one runs on the snapshot published last)
+    public List<Employee> getEmployeesWithSalaryAbove(double salary) {
+        return current.getEmployeesWithSalaryAbove(salary);
+    }
+
+    public List<Employee> sortEmployeesBySalary() {
+        return current.sortEmployeesBySalary();
+    }
+
+    public List<Employee> topKBySalary(int k) {
+        return current.topKBySalary(k);
+    }
+
+    public SalaryPage getSalaryPage(SalaryPage.Cursor after, int pageSize) {
+        return current.getSalaryPage(after, pageSize);
+    }
+
+    public double getAverageSalary() {
+        return current.getAverageSalary();
+    }
+
+    public SalaryStats getSalaryStats() {
+        return current.getSalaryStats();
+    }
+
+    public SalaryStats getSalaryStats(String department) {
+        return current.getSalaryStats(department);
+    }
+
+    public Map<String, SalaryStats> getSalaryStatsByDepartment() {
+        return current.getSalaryStatsByDepartment();
+    }
+
+    public double getSalaryQuantile(double q) {
+        return current.getSalaryQuantile(q);
+    }
+
+    public double getSalaryQuantile(String department, double q) {
+        return current.getSalaryQuantile(department, q);
+    }
+
+    public Map<String, List<Employee>> groupByDepartment() {
+        return current.groupByDepartment();
+    }
+
+    public List<Employee> getByDepartment(String department) {
+        return current.getByDepartment(department);
+    }
+
+    public Map<String, Integer> countByDepartment() {
+        return current.countByDepartment();
+    }
+
+    public GroupedAggregates aggregateByDepartment(Aggregate... aggregates) {
+        return current.aggregateByDepartment(aggregates);
+    }
+
+    public Employee getById(int id) {
+        return current.getById(id);
+    }
+
+    public boolean containsId(int id) {
+        return current.containsId(id);
+    }
+
+    public List<Employee> getByIds(int[] ids) {
+        return current.getByIds(ids);
+    }
+
+    public List<Employee> findByNamePrefix(String prefix, boolean ignoreCase, int limit) {
+        return current.findByNamePrefix(prefix, ignoreCase, limit);
+    }
+
+    public List<Employee> findByNameContaining(String text, boolean ignoreCase, int limit) {
+        return current.findByNameContaining(text, ignoreCase, limit);
+    }
+
+    public List<Employee> getEmployeesWithSalaryBetween(double min, double max) {
+        return current.getEmployeesWithSalaryBetween(min, max);
+    }
+
+    public int countEmployeesWithSalaryBetween(double min, double max) {
+        return current.countEmployeesWithSalaryBetween(min, max);
+    }
+
+    public double sumOfSalariesBetween(double min, double max) {
+        return current.sumOfSalariesBetween(min, max);
+    }
+
+    public List<Employee> filter(Predicate<Employee> condition) {
+        return current.filter(condition);
+    }
+
+    public long count(Predicate<Employee> condition) {
+        return current.count(condition);
+    }
+
+    public List<Employee> filter(EmployeeQuery query) {
+        return current.filter(query);
+    }
+
+    public long count(EmployeeQuery query) {
+        return current.count(query);
+    }
+
+    // 2. Changes (visible to every query started after the call returns)
+    //
+    // Write cost: every write batch copies the whole store before changing it - all columns,
+    // the name dictionary and every built index (salary, id, department, names) - so one call
+    // costs O(n) time and O(n) garbage, however small the change. Concurrent calls share one
+    // copy (see the header), but one thread calling addEmployee() in a loop pays the copy every
+    // time: k single changes on n rows cost O(k * n). For many changes at once use bulkInsert(),
+    // bulkDelete() or adjustSalaries() (one copy for the whole batch). For a write-heavy
+    // workload this class is the wrong tool: use an EmployeeService behind a lock.
+
+    // O(n): copies the store (see "Write cost" above)
+    public void addEmployee(Employee employee) {
+        submit(new Change(Change.ADD, employee, employee.getId()));
+    }
+
+    // O(n): copies the store; returns false if the id is unknown
+    public boolean updateEmployee(Employee employee) {
+        return submit(new Change(Change.UPDATE, employee, employee.getId()));
+    }
+
+    // O(n): copies the store; returns false if the id is unknown
+    public boolean removeEmployee(int id) {
+        return submit(new Change(Change.REMOVE, null, id));
+    }
+
+    // Bulk changes are applied to the copy as one change (see EmployeeService.adjustSalaries()):
+    // one O(n) copy plus the work of the change itself, however many rows it touches
+    public int adjustSalaries(EmployeeQuery query, DoubleUnaryOperator adjustment) {
+        return submitBulk(service -> service.adjustSalaries(query, adjustment));
+    }
+
+    public int adjustSalaries(Predicate<Employee> condition, DoubleUnaryOperator adjustment) {
+        return submitBulk(service -> service.adjustSalaries(condition, adjustment));
+    }
+
+    public void bulkInsert(Collection<Employee> employees) {
+        List<Employee> batch = new ArrayList<>(employees);
+        submitBulk(service -> {
+            service.bulkInsert(batch);
+            return batch.size();
+        });
+    }
+
+    public int bulkDelete(int... ids) {
+        int[] batch = ids.clone();
+        return submitBulk(service -> service.bulkDelete(batch));
+    }
+
+    // Inserts, updates and deletes in batches, with backpressure (see EmployeeChangePublisher)
+    public Flow.Publisher<List<EmployeeChange>> changes() {
+        return changes;
+    }
+
+    private boolean submit(Change change) {
+        pending.add(change);
+        writeLock.lock();
+        try {
+            // Another writer may already have applied our change while we waited for the lock
+            if (!change.done) applyPending();
+        } finally {
+            writeLock.unlock();
+        }
+        // done/result/failure were written under writeLock, which we held since
+        if (change.failure instanceof RuntimeException) throw (RuntimeException) change.failure;
+        if (change.failure != null) throw (Error) change.failure;
+        return change.result;
+    }
+
+    private int submitBulk(ToIntFunction<EmployeeService> operation) {
+        Change change = new Change(operation);
+        submit(change);
+        return change.count;
+    }
+
+    // Applies every queued change to one copy and publishes it (caller holds writeLock)
+    private void applyPending() {
+        ColumnarEmployeeStore store = currentStore.copy();
+        EmployeeService next = current.copyWith(store);
+        boolean changed = false;
+        List<EmployeeChange> applied = new ArrayList<>();
+        boolean listening = changes.hasSubscribers();
+        if (listening) next.setChangeListener(applied::add);
+        Change change;
+        while ((change = pending.poll()) != null) {
+            try {
+                switch (change.type) {
+                    case Change.ADD:
+                        next.addEmployee(change.employee);
+                        change.result = true;
+                        break;
+                    case Change.UPDATE:
+                        change.result = next.updateEmployee(change.employee);
+                        break;
+                    case Change.BULK:
+                        // Run on a copy unless nothing was applied yet: if the operation throws
+                        // halfway, only the copy is half-changed
+                        ColumnarEmployeeStore bulkStore = changed ? store.copy() : store;
+                        EmployeeService bulkNext = changed ? next.copyWith(bulkStore) : next;
+                        List<EmployeeChange> bulkApplied = new ArrayList<>();
+                        if (listening) bulkNext.setChangeListener(bulkApplied::add);
+                        change.count = change.bulk.applyAsInt(bulkNext);
+                        change.result = change.count > 0;
+                        store = bulkStore;
+                        next = bulkNext;
+                        applied.addAll(bulkApplied);
+                        if (listening) next.setChangeListener(applied::add);
+                        break;
+                    default:
+                        change.result = next.removeEmployee(change.id);
+                }
+                changed = true;
+            } catch (RuntimeException | Error e) {
+                change.failure = e;
+                if (!changed) {
+                    // Nothing else is in the copy yet: start again from the published snapshot
+                    store = currentStore.copy();
+                    next = current.copyWith(store);
+                    applied.clear();
+                    if (listening) next.setChangeListener(applied::add);
+                }
+            }
+            change.done = true;
+        }
+        if (!changed) return;
+        next.setChangeListener(null);
+        next.prepareForSharing();
+        currentStore = store;
+        current = next;
+        for (EmployeeChange event : applied) {
+            changes.publish(event);
+        }
+    }
+
+    private static final class Change {
+        static final int ADD = 1;
+        static final int UPDATE = 2;
+        static final int REMOVE = 3;
+        static final int BULK = 4;
+
+        final int type;
+        final Employee employee;
+        final int id;
+        final ToIntFunction<EmployeeService> bulk;
+
+        // Written by the thread that applies the change (under writeLock)
+        boolean done;
+        boolean result;
+        int count;
+        Throwable failure; // what the change threw, rethrown to its submitter
+
+        Change(int type, Employee employee, int id) {
+            this.type = type;
+            this.employee = employee;
+            this.id = id;
+            this.bulk = null;
+        }
+
+        Change(ToIntFunction<EmployeeService> bulk) {
+            this.type = BULK;
+            this.employee = null;
+            this.id = 0;
+            this.bulk = bulk;
+        }
+    }
+
+    // Consistent read-only view: every query sees the same data
+    public static final class Snapshot {
+        private final EmployeeService service;
+
+        private Snapshot(EmployeeService service) {
+            this.service = service;
+        }
+
+        public List<Employee> getEmployeesWithSalaryAbove(double salary) {
+            return service.getEmployeesWithSalaryAbove(salary);
+        }
+
+        public List<Employee> sortEmployeesBySalary() {
+            return service.sortEmployeesBySalary();
+        }
+
+        public List<Employee> topKBySalary(int k) {
+            return service.topKBySalary(k);
+        }
+
+        public SalaryPage getSalaryPage(SalaryPage.Cursor after, int pageSize) {
+            return service.getSalaryPage(after, pageSize);
+        }
+
+        public SalaryStats getSalaryStats() {
+            return service.getSalaryStats();
+        }
+
+        public Map<String, SalaryStats> getSalaryStatsByDepartment() {
+            return service.getSalaryStatsByDepartment();
+        }
+
+        public double getSalaryQuantile(double q) {
+            return service.getSalaryQuantile(q);
+        }
+
+        public double getSalaryQuantile(String department, double q) {
+            return service.getSalaryQuantile(department, q);
+        }
+
+        public Map<String, List<Employee>> groupByDepartment() {
+            return service.groupByDepartment();
+        }
+
+        public Map<String, Integer> countByDepartment() {
+            return service.countByDepartment();
+        }
+
+        public GroupedAggregates aggregateByDepartment(Aggregate... aggregates) {
+            return service.aggregateByDepartment(aggregates);
+        }
+
+        public Employee getById(int id) {
+            return service.getById(id);
+        }
+
+        public List<Employee> findByNamePrefix(String prefix, boolean ignoreCase, int limit) {
+            return service.findByNamePrefix(prefix, ignoreCase, limit);
+        }
+
+        public List<Employee> findByNameContaining(String text, boolean ignoreCase, int limit) {
+            return service.findByNameContaining(text, ignoreCase, limit);
+        }
+
+        public List<Employee> filter(Predicate<Employee> condition) {
+            return service.filter(condition);
+        }
+
+        public List<Employee> filter(EmployeeQuery query) {
+            return service.filter(query);
+        }
+    }
+}
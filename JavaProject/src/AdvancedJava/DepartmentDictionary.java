@@ -0,0 +1,78 @@
+package AdvancedJava;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Department dictionary - one shared String and one int code per department
+ * -----------------------------------------
+ * Key Points:
+ * - Millions of employees share a handful of departments. Read from files, every row would
+ *   otherwise carry its own "IT" String (40+ bytes each).
+ * - The dictionary is global: every Employee, every store and every index uses the same codes,
+ *   so codes can be compared and used as array indexes anywhere without translation.
+ * - Employee keeps only the code; getDepartment() returns the one canonical String for it.
+ * - Grouping and filtering compare int codes instead of calling String.equals() / hashCode().
+ * - Code 0 means "no department" (null). Codes are never reused or removed.
+ * - Thread-safe: lookups are lock-free; only a department seen for the first time takes a lock.
+ */
+public final class DepartmentDictionary {
+    static final int NONE = 0;
+
+    private static final Map<String, Integer> CODES = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+
+    // code -> department; only the first 'size' entries are used
+    private static volatile String[] departments = new String[16];
+    private static volatile int size = 1;
+
+    private DepartmentDictionary() {
+    }
+
+    // Code of the department, assigning a new code if it was never seen
+    public static int code(String department) {
+        if (department == null) return NONE;
+        Integer code = CODES.get(department);
+        return code != null ? code : add(department);
+    }
+
+    // Code of the department, or -1 if no employee ever had it (nothing is added)
+    public static int lookup(String department) {
+        if (department == null) return NONE;
+        Integer code = CODES.get(department);
+        return code == null ? -1 : code;
+    }
+
+    public static String department(int code) {
+        return departments[code];
+    }
+
+    // The shared instance equal to the given department
+    public static String canonical(String department) {
+        return departments[code(department)];
+    }
+
+    // Number of codes handed out so far (including NONE) - every code is below it
+    public static int size() {
+        return size;
+    }
+
+    private static int add(String department) {
+        synchronized (LOCK) {
+            Integer code = CODES.get(department);
+            if (code != null) return code;
+            int next = size;
+            String[] table = departments;
+            if (next == table.length) {
+                table = Arrays.copyOf(table, next * 2);
+            }
+            // The name is stored before the code becomes visible, so department(code) never misses it
+            table[next] = department;
+            departments = table;
+            size = next + 1;
+            CODES.put(department, next);
+            return next;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Department index - rows of every department, kept up to date
+ * -----------------------------------------
+ * - Collectors.groupingBy() regroups the whole list on every call.
+ * - This index is built once and then changed by each add / remove / department move.
+ * - The rows of a department sit in an array slot indexed by its DepartmentDictionary code,
+ *   so building and updating the index never hashes or compares department Strings.
+ * - Looking up one department is a single array read; the rows come back in row order.
+ * - Updates never shift a whole department's row array: a removed row is only marked
+ *   (tombstone), and a row added in the middle goes to a small sorted side list. Both are
+ *   merged into the main array in one pass once there are enough of them.
+ */
+final class DepartmentIndex {
+    private Rows[] rowsByCode = new Rows[DepartmentDictionary.size()];
+
+    DepartmentIndex(EmployeeStore store) {
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (store.isLive(row)) insert(row, store.departmentCode(row));
+        }
+    }
+
+    private DepartmentIndex(DepartmentIndex source) {
+        rowsByCode = new Rows[source.rowsByCode.length];
+        for (int code = 0; code < rowsByCode.length; code++) {
+            if (source.rowsByCode[code] != null) rowsByCode[code] = source.rowsByCode[code].copy();
+        }
+    }
+
+    // Independent copy (O(n) array copies, no re-grouping)
+    DepartmentIndex copy() {
+        return new DepartmentIndex(this);
+    }
+
+    void insert(int row, int code) {
+        if (code >= rowsByCode.length) {
+            rowsByCode = Arrays.copyOf(rowsByCode, Math.max(code + 1, DepartmentDictionary.size()));
+        }
+        if (rowsByCode[code] == null) rowsByCode[code] = new Rows();
+        rowsByCode[code].insert(row);
+    }
+
+    void remove(int row, int code) {
+        Rows rows = code < rowsByCode.length ? rowsByCode[code] : null;
+        if (rows != null && rows.remove(row) && rows.count == 0) {
+            rowsByCode[code] = null;
+        }
+    }
+
+    // Rows of the department in row order (empty if the department has no employees)
+    int[] rows(String department) {
+        Rows rows = rowsOf(department);
+        return rows == null ? new int[0] : rows.toArray();
+    }
+
+    int[] rows(int code) {
+        return rowsByCode[code].toArray();
+    }
+
+    int count(String department) {
+        Rows rows = rowsOf(department);
+        return rows == null ? 0 : rows.count;
+    }
+
+    int count(int code) {
+        return rowsByCode[code].count;
+    }
+
+    // Codes of the departments that have employees
+    int[] codes() {
+        IntList codes = new IntList();
+        for (int code = 0; code < rowsByCode.length; code++) {
+            if (rowsByCode[code] != null) codes.add(code);
+        }
+        return codes.toArray();
+    }
+
+    private Rows rowsOf(String department) {
+        int code = DepartmentDictionary.lookup(department);
+        return code < 0 || code >= rowsByCode.length ? null : rowsByCode[code];
+    }
+
+    // Rows of one department: sorted array with tombstones + sorted side list of recent additions
+    private static final class Rows {
+        private static final int MAX_ADDED = 1024;
+
+        private int[] sorted = new int[8];
+        private int sortedSize;
+        private BitSet removed = new BitSet(); // positions in sorted
+        private int removedCount;
+        private IntList added = new IntList(); // rows added before the end of sorted, not merged yet
+        int count; // live rows
+
+        Rows copy() {
+            Rows copy = new Rows();
+            copy.sorted = Arrays.copyOf(sorted, Math.max(sortedSize, 1));
+            copy.sortedSize = sortedSize;
+            copy.removed = (BitSet) removed.clone();
+            copy.removedCount = removedCount;
+            copy.added = added.copy();
+            copy.count = count;
+            return copy;
+        }
+
+        void insert(int row) {
+            if (added.size() == 0 && (sortedSize == 0 || sorted[sortedSize - 1] < row)) {
+                // Common case: new rows come at the end
+                if (sortedSize == sorted.length) sorted = Arrays.copyOf(sorted, sortedSize * 2);
+                sorted[sortedSize++] = row;
+                count++;
+                return;
+            }
+            int i = Arrays.binarySearch(sorted, 0, sortedSize, row);
+            if (i >= 0) {
+                // The row was removed and comes back (e.g. an update within the department)
+                if (removed.get(i)) {
+                    removed.clear(i);
+                    removedCount--;
+                    count++;
+                }
+                return;
+            }
+            int before = added.size();
+            added.addSorted(row);
+            if (added.size() == before) return;
+            count++;
+            if (added.size() > MAX_ADDED) merge();
+        }
+
+        boolean remove(int row) {
+            int i = Arrays.binarySearch(sorted, 0, sortedSize, row);
+            if (i >= 0) {
+                if (removed.get(i)) return false;
+                removed.set(i);
+                removedCount++;
+            } else if (!added.removeSorted(row)) {
+                return false;
+            }
+            count--;
+            if (removedCount > 64 && removedCount > sortedSize / 2) merge();
+            return true;
+        }
+
+        // Live rows of sorted and added, in row order (only reads: safe for shared snapshots)
+        int[] toArray() {
+            int[] result = new int[count];
+            int n = 0, j = 0;
+            for (int i = 0; i < sortedSize; i++) {
+                if (removedCount > 0 && removed.get(i)) continue;
+                while (j < added.size() && added.get(j) < sorted[i]) {
+                    result[n++] = added.get(j++);
+                }
+                result[n++] = sorted[i];
+            }
+            while (j < added.size()) {
+                result[n++] = added.get(j++);
+            }
+            return result;
+        }
+
+        private void merge() {
+            sorted = toArray();
+            sortedSize = sorted.length;
+            if (sortedSize == 0) sorted = new int[8];
+            removed.clear();
+            removedCount = 0;
+            added = new IntList();
+        }
+    }
+}
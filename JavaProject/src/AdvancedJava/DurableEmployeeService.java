@@ -0,0 +1,271 @@
+package AdvancedJava;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+ * DurableEmployeeService - EmployeeService whose changes survive a restart
+ * -----------------------------------------
+ * Key Points:
+ * - The data directory holds the last snapshot ("snapshot-<lsn>.snap", see MappedEmployeeStore)
+ *   and a write-ahead log ("wal.log", see WriteAheadLog) of the changes made since.
+ * - add/update/remove first check that the change applies (update/remove need the id),
+ *   then append a log record, wait until it is on disk and only then change the in-memory
+ *   EmployeeService. Many threads writing at once share one fsync (group commit), so the
+ *   cost is not one disk flush per change.
+ * - Logged changes are applied strictly in LSN order: whoever returns from the wait applies
+ *   every durable change queued before its own. A change to an id that still has a queued
+ *   change waits for that one first, so the check never looks at a stale state.
+ * - If the log fails (append or fsync throws), the change is never applied: memory always
+ *   matches what recovery would rebuild, and every later write fails as well.
+ * - Every checkpointInterval changes, checkpoint() writes a new snapshot and empties the log,
+ *   so the log (and the replay time) stays short.
+ * - A failed checkpoint does not fail the write that triggered it: that change is already
+ *   in the log and stays durable. The error is kept (checkpointFailure()) and the checkpoint
+ *   is tried again after another checkpointInterval changes; until then the log just grows.
+ * - On open, the newest snapshot is loaded and the log records after it are replayed.
+ *   A record torn by a crash is dropped - it was never acknowledged.
+ * - EmployeeService is not thread-safe: every call goes through one lock. Only the wait for
+ *   the disk happens outside the lock, which is what lets the writers batch up.
+ * - Queries only ever see durable changes.
+ */
+public class DurableEmployeeService implements AutoCloseable {
+    private static final String LOG_FILE = "wal.log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path directory;
+    private final int checkpointInterval;
+    private final EmployeeService service;
+    private final WriteAheadLog log;
+    private final Lock lock = new ReentrantLock();
+    // Changes appended to the log but not applied yet, in LSN order (guarded by lock)
+    private final ArrayDeque<LoggedChange> logged = new ArrayDeque<>();
+
+    // LSN of the last change contained in the newest snapshot
+    private volatile long checkpointLsn;
+    // LSN at which the last checkpoint failed (0 = none), and why
+    private volatile long failedCheckpointLsn;
+    private volatile Exception checkpointFailure;
+
+    private DurableEmployeeService(Path directory, int checkpointInterval, EmployeeService service,
+                                   WriteAheadLog log, long checkpointLsn) {
+        this.directory = directory;
+        this.checkpointInterval = checkpointInterval;
+        this.service = service;
+        this.log = log;
+        this.checkpointLsn = checkpointLsn;
+    }
+
+    // Opens (or creates) the data directory and recovers its contents
+    public static DurableEmployeeService open(Path directory, int checkpointInterval) throws IOException {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        Files.createDirectories(directory);
+
+        // 1. Load the newest snapshot into a (writable) columnar store
+        long snapshotLsn = newestSnapshotLsn(directory);
+        ColumnarEmployeeStore store = new ColumnarEmployeeStore(Collections.emptyList());
+        if (snapshotLsn > 0) {
+            MappedEmployeeStore snapshot = MappedEmployeeStore.open(snapshotFile(directory, snapshotLsn));
+            for (int row = 0; row < snapshot.rowCount(); row++) {
+                store.add(snapshot.id(row), snapshot.name(row), snapshot.salary(row), snapshot.department(row));
+            }
+        }
+        EmployeeService service = new EmployeeService(store);
+
+        // 2. Replay the changes made after it
+        WriteAheadLog log = WriteAheadLog.open(directory.resolve(LOG_FILE), snapshotLsn,
+                (lsn, type, employee, id) -> apply(service, type, employee, id));
+        return new DurableEmployeeService(directory, checkpointInterval, service, log, snapshotLsn);
+    }
+
+    private static boolean apply(EmployeeService service, byte type, Employee employee, int id) {
+        switch (type) {
+            case WriteAheadLog.ADD:
+                service.addEmployee(employee);
+                return true;
+            case WriteAheadLog.UPDATE:
+                return service.updateEmployee(employee);
+            case WriteAheadLog.REMOVE:
+                return service.removeEmployee(id);
+            default:
+                throw new IllegalStateException("Unknown log record type " + type);
+        }
+    }
+
+    // 1. Changes (each returns once the change is on disk)
+    public void addEmployee(Employee employee) throws IOException {
+        write(WriteAheadLog.ADD, employee, employee.getId());
+    }
+
+    // false if no employee has the same id (nothing is logged then)
+    public boolean updateEmployee(Employee employee) throws IOException {
+        return write(WriteAheadLog.UPDATE, employee, employee.getId());
+    }
+
+    public boolean removeEmployee(int id) throws IOException {
+        return write(WriteAheadLog.REMOVE, null, id);
+    }
+
+    private boolean write(byte type, Employee employee, int id) throws IOException {
+        long lsn;
+        lock.lock();
+        try {
+            if (isQueued(id)) {
+                // Rare: the id has a change still on its way to disk; check against its result
+                long last = log.lastLsn();
+                log.sync(last);
+                applyLogged(last);
+            }
+            if (type != WriteAheadLog.ADD && !service.containsId(id)) return false;
+            // Appended under the lock, so the log order is the order of the checks
+            lsn = log.append(type, employee, id);
+            logged.add(new LoggedChange(lsn, type, employee, id));
+        } finally {
+            lock.unlock();
+        }
+        // A failed sync leaves the change unapplied (the log refuses every later record too)
+        log.sync(lsn);
+        lock.lock();
+        try {
+            applyLogged(lsn);
+        } finally {
+            lock.unlock();
+        }
+        if (lsn - Math.max(checkpointLsn, failedCheckpointLsn) >= checkpointInterval) {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                // The change itself is durable; only the log truncation has to wait
+                failedCheckpointLsn = lsn;
+                checkpointFailure = e;
+            }
+        }
+        return true;
+    }
+
+    private boolean isQueued(int id) {
+        for (LoggedChange change : logged) {
+            if (change.id == id) return true;
+        }
+        return false;
+    }
+
+    // Applies the queued changes up to lsn (all durable) in log order; the caller holds the lock
+    private void applyLogged(long lsn) {
+        while (!logged.isEmpty() && logged.peekFirst().lsn <= lsn) {
+            LoggedChange change = logged.pollFirst();
+            apply(service, change.type, change.employee, change.id);
+        }
+    }
+
+    // Why the last automatic checkpoint failed, or null if it succeeded (or none ran yet)
+    public Exception checkpointFailure() {
+        return checkpointFailure;
+    }
+
+    // 2. Queries run under the lock, e.g. service.query(s -> s.getEmployeesWithSalaryAbove(50000))
+    public <T> T query(Function<EmployeeService, T> query) {
+        lock.lock();
+        try {
+            return query.apply(service);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 3. Checkpoint: snapshot everything logged so far, then empty the log
+    public void checkpoint() throws IOException {
+        lock.lock();
+        try {
+            long lsn = log.lastLsn();
+            if (lsn == checkpointLsn) return;
+            // The snapshot has to contain every logged change, including the queued ones
+            log.sync(lsn);
+            applyLogged(lsn);
+
+            // Write to a temp file first: a crash never leaves a half-written snapshot behind
+            Path temp = directory.resolve(SNAPSHOT_PREFIX + lsn + SNAPSHOT_SUFFIX + ".tmp");
+            try {
+                service.saveSnapshot(temp);
+                Files.move(temp, snapshotFile(directory, lsn), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                deleteQuietly(temp, e);
+                throw e;
+            }
+            syncDirectory();
+
+            // From here on recovery starts at the new snapshot, so the old log is not needed
+            log.reset();
+            long previous = checkpointLsn;
+            checkpointLsn = lsn;
+            failedCheckpointLsn = 0;
+            checkpointFailure = null;
+            if (previous > 0) Files.deleteIfExists(snapshotFile(directory, previous));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static final class LoggedChange {
+        final long lsn;
+        final byte type;
+        final Employee employee;
+        final int id;
+
+        LoggedChange(long lsn, byte type, Employee employee, int id) {
+            this.lsn = lsn;
+            this.type = type;
+            this.employee = employee;
+            this.id = id;
+        }
+    }
+
+    // A failed delete is recorded on the original error instead of replacing it
+    private static void deleteQuietly(Path file, Exception failure) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    // Makes the rename itself durable (not supported on every platform)
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Windows cannot open a directory as a channel; the rename is still atomic there
+        }
+    }
+
+    private static Path snapshotFile(Path directory, long lsn) {
+        return directory.resolve(SNAPSHOT_PREFIX + lsn + SNAPSHOT_SUFFIX);
+    }
+
+    // 0 if the directory has no snapshot yet
+    private static long newestSnapshotLsn(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .mapToLong(name -> Long.parseLong(
+                            name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())))
+                    .max()
+                    .orElse(0);
+        }
+    }
+}
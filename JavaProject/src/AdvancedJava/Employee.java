@@ -6,19 +6,29 @@ public class Employee {
     private int id;
     private String name;
     private double salary;
-    private String department;
+    // Dictionary code instead of a String: all employees share one String per department
+    private int departmentCode;
 
     public Employee(int id, String name, double salary, String department) {
         this.id = id;
         this.name = name;
         this.salary = salary;
-        this.department = department;
+        this.departmentCode = DepartmentDictionary.code(department);
+    }
+
+    // For stores that already hold the department code (no dictionary lookup)
+    Employee(int id, String name, double salary, int departmentCode) {
+        this.id = id;
+        this.name = name;
+        this.salary = salary;
+        this.departmentCode = departmentCode;
     }
 
     public int getId() { return id; }
     public String getName() { return name; }
     public double getSalary() { return salary; }
-    public String getDepartment() { return department; }
+    public String getDepartment() { return DepartmentDictionary.department(departmentCode); }
+    int getDepartmentCode() { return departmentCode; }
 
     @Override
     public String toString() {
@@ -26,7 +36,7 @@ public class Employee {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", salary=" + salary +
-                ", department='" + department + '\'' +
+                ", department='" + getDepartment() + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,614 @@
+package AdvancedJava;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ * Bulk loading of employee files (CSV or NDJSON)
+ * -----------------------------------------
+ * Key Points:
+ * - BufferedReader.readLine() creates a String for every line, then split() creates more.
+ * - Here the file is memory-mapped (FileChannel.map): the OS pages it in, no read() copies.
+ * - The file is cut into chunks at newline boundaries and every chunk is parsed on its own core.
+ * - Fields are parsed straight from the bytes: numbers never become Strings, and department
+ *   values are looked up by their bytes, so each distinct department becomes one String.
+ *   JSON keys are compared as bytes too; only the name becomes a String per line.
+ * - Bad lines are skipped and reported with the byte offset where the line starts.
+ *
+ * Formats:
+ *   CSV    - id,name,salary,department   (optional header line, "quoted" fields allowed)
+ *   NDJSON - {"id":1,"name":"Alice","salary":70000,"department":"IT"}   (one object per line)
+ */
+public class EmployeeBulkLoader {
+    public enum Format { CSV, NDJSON }
+
+    private static final int MIN_CHUNK_SIZE = 1 << 20;      // 1 MB
+    private static final int MAX_CHUNK_SIZE = 1 << 30;      // a MappedByteBuffer holds at most 2 GB
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final Format format;
+    private final ForkJoinPool pool;
+    private final boolean columnar;
+
+    public EmployeeBulkLoader(Format format) {
+        this(format, ForkJoinPool.commonPool(), true);
+    }
+
+    // columnar = true loads into a ColumnarEmployeeStore, false into a List<Employee>
+    public EmployeeBulkLoader(Format format, ForkJoinPool pool, boolean columnar) {
+        this.format = format;
+        this.pool = pool;
+        this.columnar = columnar;
+    }
+
+    public LoadResult load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+
+            // 1. Parse every chunk in parallel
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i], end = bounds[i + 1];
+                boolean first = i == 0;
+                tasks.add(() -> {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    return new ChunkParser(buffer, start, format, first).parse();
+                });
+            }
+            List<Chunk> chunks = new ArrayList<>();
+            for (Future<Chunk> future : pool.invokeAll(tasks)) {
+                chunks.add(future.get());
+            }
+
+            // 2. Append the chunks in file order
+            return assemble(chunks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Loading was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Loading failed", e.getCause());
+        }
+    }
+
+    // Chunk start offsets (plus the file size at the end); every chunk ends right after a '\n'
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parts = Math.max(pool.getParallelism() * 4, 1);
+        long chunkSize = Math.min(Math.max(size / parts, MIN_CHUNK_SIZE), MAX_CHUNK_SIZE);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+        while (start + chunkSize < size) {
+            long end = nextLineStart(channel, start + chunkSize, probe);
+            if (end >= size) break;
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line longer than 2 GB near offset " + start);
+            }
+            bounds.add(end);
+            start = end;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Offset of the first byte after the next '\n' at or after position
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) return channel.size();
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+    }
+
+    private LoadResult assemble(List<Chunk> chunks) {
+        // One canonical String per department value across all chunks
+        Map<String, String> canonical = new HashMap<>();
+        int rows = 0;
+        long errorCount = 0;
+        List<ParseError> errors = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.departments.size(); i++) {
+                chunk.departments.set(i, canonical.computeIfAbsent(chunk.departments.get(i), d -> d));
+            }
+            rows += chunk.count;
+            errorCount += chunk.errorCount;
+            for (ParseError error : chunk.errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) errors.add(error);
+            }
+        }
+
+        EmployeeStore store;
+        if (columnar) {
+            ColumnarEmployeeStore columns = new ColumnarEmployeeStore(Collections.emptyList());
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.count; i++) {
+                    columns.add(chunk.ids[i], chunk.names[i], chunk.salaries[i], chunk.departments.get(chunk.departmentCodes[i]));
+                }
+            }
+            store = columns;
+        } else {
+            List<Employee> employees = new ArrayList<>(rows);
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.count; i++) {
+                    employees.add(new Employee(chunk.ids[i], chunk.names[i], chunk.salaries[i], chunk.departments.get(chunk.departmentCodes[i])));
+                }
+            }
+            store = new ListEmployeeStore(employees);
+        }
+        return new LoadResult(new EmployeeService(store), rows, errorCount, errors);
+    }
+
+    // Result of a load: the ready service plus the lines that could not be parsed
+    public static final class LoadResult {
+        private final EmployeeService service;
+        private final int rowCount;
+        private final long errorCount;
+        private final List<ParseError> errors;
+
+        LoadResult(EmployeeService service, int rowCount, long errorCount, List<ParseError> errors) {
+            this.service = service;
+            this.rowCount = rowCount;
+            this.errorCount = errorCount;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        public EmployeeService getService() { return service; }
+        public int getRowCount() { return rowCount; }
+        public long getErrorCount() { return errorCount; }
+
+        // The first 1000 errors in file order
+        public List<ParseError> getErrors() { return errors; }
+    }
+
+    public static final class ParseError {
+        private final long offset;
+        private final String message;
+
+        ParseError(long offset, String message) {
+            this.offset = offset;
+            this.message = message;
+        }
+
+        // Byte offset of the start of the bad line
+        public long getOffset() { return offset; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "ParseError{offset=" + offset + ", message='" + message + "'}";
+        }
+    }
+
+    // Parsed columns of one chunk; departments hold chunk-local codes
+    private static final class Chunk {
+        int[] ids = new int[1024];
+        double[] salaries = new double[1024];
+        String[] names = new String[1024];
+        int[] departmentCodes = new int[1024];
+        final List<String> departments = new ArrayList<>();
+        int count;
+        final List<ParseError> errors = new ArrayList<>();
+        long errorCount;
+
+        void add(int id, String name, double salary, int departmentCode) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                salaries = Arrays.copyOf(salaries, capacity);
+                names = Arrays.copyOf(names, capacity);
+                departmentCodes = Arrays.copyOf(departmentCodes, capacity);
+            }
+            ids[count] = id;
+            names[count] = name;
+            salaries[count] = salary;
+            departmentCodes[count++] = departmentCode;
+        }
+
+        void error(long offset, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) errors.add(new ParseError(offset, message));
+        }
+    }
+
+    // Thrown for a bad line; no stack trace, so bad files do not slow the parser down
+    private static final class BadLineException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BadLineException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /*
+     * Parses one chunk, line by line, directly from the mapped bytes.
+     * 'pos' is the read position inside the current line, 'end' the end of that line.
+     */
+    private static final class ChunkParser {
+        private static final double[] POWERS_OF_TEN = {
+                1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+        private static final byte[] ID_KEY = ascii("id");
+        private static final byte[] NAME_KEY = ascii("name");
+        private static final byte[] SALARY_KEY = ascii("salary");
+        private static final byte[] DEPARTMENT_KEY = ascii("department");
+
+        private final ByteBuffer buffer;
+        private final long fileOffset;
+        private final Format format;
+        private final boolean firstChunk;
+        private final Chunk chunk = new Chunk();
+
+        // Department bytes -> chunk-local code, without creating a String per row
+        private byte[][] departmentBytes = new byte[16][];
+        private int[] departmentSlots = new int[32];
+
+        private byte[] scratch = new byte[256];
+        private int pos;
+        private int end;
+
+        ChunkParser(ByteBuffer buffer, long fileOffset, Format format, boolean firstChunk) {
+            this.buffer = buffer;
+            this.fileOffset = fileOffset;
+            this.format = format;
+            this.firstChunk = firstChunk;
+            Arrays.fill(departmentSlots, -1);
+        }
+
+        Chunk parse() {
+            int limit = buffer.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') lineEnd++;
+                pos = lineStart;
+                end = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                skipSpaces();
+                if (pos < end && !(firstChunk && lineStart == 0 && isCsvHeader())) {
+                    try {
+                        if (format == Format.CSV) parseCsvLine(); else parseJsonLine();
+                    } catch (BadLineException e) {
+                        chunk.error(fileOffset + lineStart, e.getMessage());
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+            return chunk;
+        }
+
+        private boolean isCsvHeader() {
+            byte b = buffer.get(pos);
+            return format == Format.CSV && b != '-' && (b < '0' || b > '9');
+        }
+
+        // ---------- CSV ----------
+
+        private void parseCsvLine() throws BadLineException {
+            int id = (int) parseLong();
+            expect(',');
+            int nameLength = readCsvString();
+            String name = new String(scratch, 0, nameLength, StandardCharsets.UTF_8);
+            expect(',');
+            double salary = parseDouble();
+            expect(',');
+            int department = departmentCode(readCsvString());
+            skipSpaces();
+            if (pos != end) throw new BadLineException("Expected end of line after department");
+            chunk.add(id, name, salary, department);
+        }
+
+        // Copies the field into scratch (removing quotes) and returns its length
+        private int readCsvString() throws BadLineException {
+            int length = 0;
+            if (pos < end && buffer.get(pos) == '"') {
+                pos++;
+                while (true) {
+                    if (pos >= end) throw new BadLineException("Unterminated quoted field");
+                    byte b = buffer.get(pos++);
+                    if (b == '"') {
+                        if (pos < end && buffer.get(pos) == '"') {
+                            pos++; // "" inside quotes is one "
+                        } else {
+                            break;
+                        }
+                    }
+                    length = put(length, b);
+                }
+            } else {
+                while (pos < end && buffer.get(pos) != ',') {
+                    length = put(length, buffer.get(pos++));
+                }
+            }
+            return length;
+        }
+
+        // ---------- NDJSON ----------
+
+        private void parseJsonLine() throws BadLineException {
+            int id = 0;
+            double salary = 0;
+            String name = null;
+            int department = -1;
+            boolean hasId = false, hasSalary = false;
+
+            expect('{');
+            skipSpaces();
+            if (pos < end && buffer.get(pos) == '}') throw new BadLineException("Empty object");
+            while (true) {
+                skipSpaces();
+                int keyLength = readJsonString();
+                skipSpaces();
+                expect(':');
+                skipSpaces();
+                // The key stays in scratch only until the value is read: compare it first
+                if (isKey(ID_KEY, keyLength)) {
+                    id = (int) parseLong();
+                    hasId = true;
+                } else if (isKey(SALARY_KEY, keyLength)) {
+                    salary = parseDouble();
+                    hasSalary = true;
+                } else if (isKey(NAME_KEY, keyLength)) {
+                    name = new String(scratch, 0, readJsonString(), StandardCharsets.UTF_8);
+                } else if (isKey(DEPARTMENT_KEY, keyLength)) {
+                    department = departmentCode(readJsonString());
+                } else {
+                    skipJsonValue();
+                }
+                skipSpaces();
+                if (pos < end && buffer.get(pos) == ',') {
+                    pos++;
+                    continue;
+                }
+                expect('}');
+                break;
+            }
+            skipSpaces();
+            if (pos != end) throw new BadLineException("Expected end of line after '}'");
+            if (!hasId || !hasSalary || name == null || department < 0) {
+                throw new BadLineException("Missing field: id, name, salary and department are required");
+            }
+            chunk.add(id, name, salary, department);
+        }
+
+        // Copies the string value into scratch (decoding escapes) and returns its length
+        private int readJsonString() throws BadLineException {
+            expect('"');
+            int length = 0;
+            while (true) {
+                if (pos >= end) throw new BadLineException("Unterminated string");
+                byte b = buffer.get(pos++);
+                if (b == '"') return length;
+                if (b != '\\') {
+                    length = put(length, b);
+                    continue;
+                }
+                if (pos >= end) throw new BadLineException("Unterminated escape");
+                byte escaped = buffer.get(pos++);
+                switch (escaped) {
+                    case 'n': length = put(length, (byte) '\n'); break;
+                    case 't': length = put(length, (byte) '\t'); break;
+                    case 'r': length = put(length, (byte) '\r'); break;
+                    case 'b': length = put(length, (byte) '\b'); break;
+                    case 'f': length = put(length, (byte) '\f'); break;
+                    case 'u': length = putUtf8(length, parseUnicodeEscape()); break;
+                    default: length = put(length, escaped); // \" \\ \/
+                }
+            }
+        }
+
+        // Code point of a unicode escape; a surrogate pair (two escapes in a row) is one code point
+        private int parseUnicodeEscape() throws BadLineException {
+            char c = (char) parseHex4();
+            if (Character.isHighSurrogate(c) && pos + 6 <= end
+                    && buffer.get(pos) == '\\' && buffer.get(pos + 1) == 'u') {
+                int next = pos;
+                pos += 2;
+                char low = (char) parseHex4();
+                if (Character.isLowSurrogate(low)) return Character.toCodePoint(c, low);
+                pos = next; // not a pair: the second escape is decoded on its own
+            }
+            // A lone surrogate cannot be encoded in UTF-8; it becomes '?' like in String.getBytes
+            return Character.isSurrogate(c) ? '?' : c;
+        }
+
+        private int parseHex4() throws BadLineException {
+            if (pos + 4 > end) throw new BadLineException("Bad \\u escape");
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(buffer.get(pos++), 16);
+                if (digit < 0) throw new BadLineException("Bad \\u escape");
+                value = value * 16 + digit;
+            }
+            return value;
+        }
+
+        private void skipJsonValue() throws BadLineException {
+            if (pos < end && buffer.get(pos) == '"') {
+                readJsonString();
+                return;
+            }
+            // number, true, false or null
+            int start = pos;
+            while (pos < end && buffer.get(pos) != ',' && buffer.get(pos) != '}') {
+                byte b = buffer.get(pos);
+                if (b == '{' || b == '[') throw new BadLineException("Nested values are not supported");
+                pos++;
+            }
+            if (pos == start) throw new BadLineException("Missing value");
+        }
+
+        // ---------- shared helpers ----------
+
+        private long parseLong() throws BadLineException {
+            boolean negative = pos < end && buffer.get(pos) == '-';
+            if (negative) pos++;
+            int start = pos;
+            long value = 0;
+            while (pos < end) {
+                byte b = buffer.get(pos);
+                if (b < '0' || b > '9') break;
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE + 1L) throw new BadLineException("Id out of range");
+                pos++;
+            }
+            if (pos == start) throw new BadLineException("Expected a number at column " + columnOf(pos));
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) throw new BadLineException("Id out of range");
+            return value;
+        }
+
+        /*
+         * Fast path: up to 15 significant digits and a small exponent are exact as
+         * mantissa / 10^n (or * 10^n). Anything else falls back to Double.parseDouble.
+         */
+        private double parseDouble() throws BadLineException {
+            int start = pos;
+            boolean negative = pos < end && buffer.get(pos) == '-';
+            if (negative || (pos < end && buffer.get(pos) == '+')) pos++;
+            long mantissa = 0;
+            int digits = 0, scale = 0;
+            boolean seenDigit = false, seenDot = false;
+            while (pos < end) {
+                byte b = buffer.get(pos);
+                if (b >= '0' && b <= '9') {
+                    seenDigit = true;
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (mantissa != 0) digits++;
+                        if (seenDot) scale++;
+                    } else if (!seenDot) {
+                        scale--; // digits beyond precision only move the decimal point
+                    }
+                } else if (b == '.' && !seenDot) {
+                    seenDot = true;
+                } else {
+                    break;
+                }
+                pos++;
+            }
+            if (!seenDigit) throw new BadLineException("Expected a number");
+            if (pos < end && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+                return slowDouble(start);
+            }
+            if (digits > 15 || scale < 0 || scale >= POWERS_OF_TEN.length) {
+                return slowDouble(start);
+            }
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        private double slowDouble(int start) throws BadLineException {
+            pos = start;
+            while (pos < end) {
+                byte b = buffer.get(pos);
+                if (b == ',' || b == '}' || b == ' ' || b == '\t') break;
+                pos++;
+            }
+            byte[] bytes = new byte[pos - start];
+            buffer.get(start, bytes);
+            try {
+                return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new BadLineException("Bad number: " + new String(bytes, StandardCharsets.US_ASCII));
+            }
+        }
+
+        private void expect(char c) throws BadLineException {
+            if (pos >= end || buffer.get(pos) != c) {
+                throw new BadLineException("Expected '" + c + "' at column " + columnOf(pos));
+            }
+            pos++;
+        }
+
+        private int columnOf(int position) {
+            int lineStart = position;
+            while (lineStart > 0 && buffer.get(lineStart - 1) != '\n') lineStart--;
+            return position - lineStart + 1;
+        }
+
+        private void skipSpaces() {
+            while (pos < end && (buffer.get(pos) == ' ' || buffer.get(pos) == '\t')) pos++;
+        }
+
+        private int put(int length, byte b) {
+            if (length == scratch.length) scratch = Arrays.copyOf(scratch, length * 2);
+            scratch[length] = b;
+            return length + 1;
+        }
+
+        private int putUtf8(int length, int codePoint) {
+            if (codePoint < 0x80) return put(length, (byte) codePoint);
+            if (codePoint < 0x800) {
+                length = put(length, (byte) (0xC0 | codePoint >> 6));
+            } else {
+                if (codePoint < 0x10000) {
+                    length = put(length, (byte) (0xE0 | codePoint >> 12));
+                } else {
+                    length = put(length, (byte) (0xF0 | codePoint >> 18));
+                    length = put(length, (byte) (0x80 | (codePoint >> 12 & 0x3F)));
+                }
+                length = put(length, (byte) (0x80 | (codePoint >> 6 & 0x3F)));
+            }
+            return put(length, (byte) (0x80 | (codePoint & 0x3F)));
+        }
+
+        private boolean isKey(byte[] key, int length) {
+            return Arrays.equals(scratch, 0, length, key, 0, key.length);
+        }
+
+        private static byte[] ascii(String key) {
+            return key.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        // Chunk-local code of the department in scratch[0..length); a String is made only for new values
+        private int departmentCode(int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) hash = 31 * hash + scratch[i];
+            int mask = departmentSlots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int code = departmentSlots[slot];
+                if (code < 0) {
+                    code = chunk.departments.size();
+                    chunk.departments.add(new String(scratch, 0, length, StandardCharsets.UTF_8));
+                    if (code == departmentBytes.length) departmentBytes = Arrays.copyOf(departmentBytes, code * 2);
+                    departmentBytes[code] = Arrays.copyOf(scratch, length);
+                    departmentSlots[slot] = code;
+                    if (chunk.departments.size() * 2 > departmentSlots.length) rehashDepartments();
+                    return code;
+                }
+                if (Arrays.equals(departmentBytes[code], 0, departmentBytes[code].length, scratch, 0, length)) {
+                    return code;
+                }
+            }
+        }
+
+        private void rehashDepartments() {
+            departmentSlots = new int[departmentSlots.length * 2];
+            Arrays.fill(departmentSlots, -1);
+            int mask = departmentSlots.length - 1;
+            for (int code = 0; code < chunk.departments.size(); code++) {
+                byte[] bytes = departmentBytes[code];
+                int hash = 1;
+                for (byte b : bytes) hash = 31 * hash + b;
+                int slot = hash & mask;
+                while (departmentSlots[slot] >= 0) slot = (slot + 1) & mask;
+                departmentSlots[slot] = code;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package AdvancedJava;
+
+/*
+ * EmployeeChange - one insert, update or delete, as sent to change subscribers
+ * -----------------------------------------
+ * Key Points:
+ * - before is the employee as it was (null for an insert), after as it is now (null for a delete).
+ * - version is the service's version right after the change; a consumer that also queries the
+ *   service can tell whether its query already saw this change.
+ * - A slow subscriber's pending changes to the same id are merged into one (see coalesce()),
+ *   so applying every change received still ends with the same data.
+ */
+public final class EmployeeChange {
+    public enum Type { INSERT, UPDATE, DELETE }
+
+    private final Type type;
+    private final Employee before;
+    private final Employee after;
+    private final long version;
+
+    // Result of coalesce() when two changes cancel out
+    static final EmployeeChange NONE = new EmployeeChange(null, null, null, -1);
+
+    EmployeeChange(Type type, Employee before, Employee after, long version) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+        this.version = version;
+    }
+
+    public Type getType() { return type; }
+    public Employee getBefore() { return before; }
+    public Employee getAfter() { return after; }
+    public long getVersion() { return version; }
+
+    public int getId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    // One change with the effect of this change followed by next (same id).
+    // Returns NONE if they cancel out (insert, then delete), null if they cannot be merged
+    // (only with duplicate ids, e.g. two inserts).
+    EmployeeChange coalesce(EmployeeChange next) {
+        switch (type) {
+            case INSERT:
+                if (next.type == Type.UPDATE) return new EmployeeChange(Type.INSERT, null, next.after, next.version);
+                if (next.type == Type.DELETE) return NONE;
+                return null;
+            case UPDATE:
+                if (next.type == Type.INSERT) return null;
+                return new EmployeeChange(next.type, before, next.after, next.version);
+            default:
+                if (next.type == Type.INSERT) return new EmployeeChange(Type.UPDATE, before, next.after, next.version);
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + "{before=" + before + ", after=" + after + ", version=" + version + "}";
+    }
+}
@@ -0,0 +1,194 @@
+package AdvancedJava;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Change publisher - pushes employee changes to subscribers (java.util.concurrent.Flow)
+ * -----------------------------------------
+ * Key Points:
+ * - Each onNext() delivers a batch: every change pending for the subscriber, up to maxBatch.
+ *   request(n) asks for n more batches (backpressure); nothing is sent without demand.
+ * - Every subscriber has its own bounded buffer. The writer only adds to the buffers and
+ *   never waits for a subscriber; delivery runs on the executor (common pool by default),
+ *   one task at a time per subscriber, so onNext() calls never overlap.
+ * - While a change waits, a later change to the same id is merged into it (update + update
+ *   is one update with the first before and the last after; insert + delete is nothing).
+ *   A slow subscriber therefore needs room only for the ids that changed, not every change.
+ * - If even that does not fit (more than bufferSize different ids pending), the subscriber
+ *   has fallen too far behind: its changes are dropped and it gets onError(). It should
+ *   reload from the service and subscribe again. Writers are never slowed down.
+ * - Changes to the same id arrive in order; changes to different ids may be reordered by
+ *   merging. Applying every batch received ends with the same data as the service.
+ */
+final class EmployeeChangePublisher implements Flow.Publisher<List<EmployeeChange>> {
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+    static final int DEFAULT_MAX_BATCH = 256;
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final int maxBatch;
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    EmployeeChangePublisher() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BATCH);
+    }
+
+    EmployeeChangePublisher(Executor executor, int bufferSize, int maxBatch) {
+        if (bufferSize <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Buffer and batch sizes must be positive: " + bufferSize + ", " + maxBatch);
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.bufferSize = bufferSize;
+        this.maxBatch = maxBatch;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<EmployeeChange>> subscriber) {
+        ChangeSubscription subscription = new ChangeSubscription(Objects.requireNonNull(subscriber));
+        subscriptions.add(subscription);
+        subscription.schedule(); // onSubscribe() runs on the executor too
+    }
+
+    boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    // Called by the writer after the change is applied; never blocks
+    void publish(EmployeeChange change) {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    private final class ChangeSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super List<EmployeeChange>> subscriber;
+        private final AtomicInteger scheduled = new AtomicInteger(); // > 0 while a delivery task runs
+
+        // Guarded by this. Pending changes in arrival order, one per id (see offer())
+        private final LinkedHashMap<Object, EmployeeChange> pending = new LinkedHashMap<>();
+        private long requested;
+        private Throwable error;
+        private boolean cancelled;
+
+        // Only touched by the delivery task
+        private boolean subscribed;
+
+        ChangeSubscription(Flow.Subscriber<? super List<EmployeeChange>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(EmployeeChange change) {
+            synchronized (this) {
+                if (cancelled || error != null) return;
+                Integer id = change.getId();
+                EmployeeChange waiting = pending.get(id);
+                EmployeeChange merged = waiting == null ? null : waiting.coalesce(change);
+                if (merged == EmployeeChange.NONE) {
+                    pending.remove(id);
+                } else if (merged != null) {
+                    pending.put(id, merged); // keeps the position of the first change
+                } else if (pending.size() >= bufferSize) {
+                    pending.clear();
+                    error = new IllegalStateException("Subscriber fell behind: more than " + bufferSize
+                            + " changed employees pending");
+                } else {
+                    // Cannot merge (duplicate ids): the waiting change keeps its own, unique key
+                    if (waiting != null) pending.put(new Object(), pending.remove(id));
+                    pending.put(id, change);
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    if (error == null) error = new IllegalArgumentException("request() needs a positive count: " + n);
+                } else {
+                    requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                pending.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        void schedule() {
+            if (scheduled.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        // Delivery task: sends batches while there is demand, then exits. A schedule() during
+        // the run makes the loop go around once more instead of starting a second task.
+        // No subscriber exception may escape: 'scheduled' would never drop back to 0 and
+        // the subscription would never be served again.
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (RuntimeException e) {
+                        cancel(); // dropped like a throwing onNext(); the loop below then ends
+                    }
+                }
+                while (deliverOne()) {
+                    // keep going while there is demand and data
+                }
+                missed = scheduled.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private boolean deliverOne() {
+            List<EmployeeChange> batch;
+            Throwable failure = null;
+            synchronized (this) {
+                if (cancelled) return false;
+                if (error != null) {
+                    failure = error;
+                    cancelled = true;
+                    batch = null;
+                } else {
+                    if (requested == 0 || pending.isEmpty()) return false;
+                    batch = new ArrayList<>(Math.min(maxBatch, pending.size()));
+                    Iterator<EmployeeChange> changes = pending.values().iterator();
+                    while (batch.size() < maxBatch && changes.hasNext()) {
+                        batch.add(changes.next());
+                        changes.remove();
+                    }
+                    if (requested != Long.MAX_VALUE) requested--;
+                }
+            }
+            if (failure != null) {
+                subscriptions.remove(this);
+                try {
+                    subscriber.onError(failure);
+                } catch (RuntimeException e) {
+                    // Nothing left to tell it; the delivery task must still end normally
+                }
+                return false;
+            }
+            try {
+                subscriber.onNext(Collections.unmodifiableList(batch));
+            } catch (RuntimeException e) {
+                cancel(); // a subscriber that throws is dropped (Flow rule 2.13)
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * EmployeeQuery - conditions on employee fields that EmployeeService can compile
+ * -----------------------------------------
+ * Key Points:
+ * - Built from small pieces: salary ranges, departments, name prefix, ids, combined with
+ *   and / or / not. Example:
+ *     EmployeeQuery q = EmployeeQuery.departmentIn("IT", "Finance")
+ *             .and(EmployeeQuery.salaryBetween(50000, 90000))
+ *             .and(EmployeeQuery.namePrefix("A").negate());
+ *     List<Employee> result = service.filter(q);
+ * - A Predicate<Employee> is a black box: the service must build an Employee per row and
+ *   run the lambdas in the order they were written. A query is data, so the service can
+ *   look inside it (see QueryCompiler):
+ *   - each condition reads only its own column (no Employee object per row),
+ *   - the whole query becomes one matcher that is run in a single pass over the rows,
+ *   - the conditions of an and / or are reordered so the cheap, most selective ones run first,
+ *   - a query that only accepts a few ids looks them up in the id index instead of scanning.
+ * - Queries are immutable and can be reused and shared between threads.
+ */
+public abstract class EmployeeQuery {
+
+    EmployeeQuery() {
+    }
+
+    // 1. Conditions
+    // min <= salary <= max
+    public static EmployeeQuery salaryBetween(double min, double max) {
+        return new SalaryRange(min, max);
+    }
+
+    public static EmployeeQuery salaryAbove(double salary) {
+        return new SalaryRange(Math.nextUp(salary), Double.POSITIVE_INFINITY);
+    }
+
+    public static EmployeeQuery salaryBelow(double salary) {
+        return new SalaryRange(Double.NEGATIVE_INFINITY, Math.nextDown(salary));
+    }
+
+    public static EmployeeQuery departmentIn(String... departments) {
+        return new DepartmentIn(departments);
+    }
+
+    public static EmployeeQuery namePrefix(String prefix) {
+        return new NamePrefix(Objects.requireNonNull(prefix));
+    }
+
+    public static EmployeeQuery idIn(int... ids) {
+        return new IdIn(ids);
+    }
+
+    // 2. Combining conditions
+    // Nested and / or are flattened, so a.and(b).and(c) can reorder all three parts
+    public static EmployeeQuery and(EmployeeQuery... queries) {
+        List<EmployeeQuery> parts = new ArrayList<>();
+        for (EmployeeQuery query : queries) {
+            if (query instanceof And) {
+                parts.addAll(((And) query).queries);
+            } else {
+                parts.add(Objects.requireNonNull(query));
+            }
+        }
+        return new And(parts);
+    }
+
+    public static EmployeeQuery or(EmployeeQuery... queries) {
+        List<EmployeeQuery> parts = new ArrayList<>();
+        for (EmployeeQuery query : queries) {
+            if (query instanceof Or) {
+                parts.addAll(((Or) query).queries);
+            } else {
+                parts.add(Objects.requireNonNull(query));
+            }
+        }
+        return new Or(parts);
+    }
+
+    public static EmployeeQuery not(EmployeeQuery query) {
+        return query instanceof Not ? ((Not) query).query : new Not(query);
+    }
+
+    public EmployeeQuery and(EmployeeQuery other) {
+        return and(this, other);
+    }
+
+    public EmployeeQuery or(EmployeeQuery other) {
+        return or(this, other);
+    }
+
+    public EmployeeQuery negate() {
+        return not(this);
+    }
+
+    // Checks one Employee object (same result as the compiled query on that employee's row)
+    public abstract boolean test(Employee employee);
+
+    // Matcher for the rows of the compiler's store
+    abstract QueryCompiler.RowMatcher compile(QueryCompiler compiler);
+
+    // Rough cost of checking one row (a salary comparison is 1)
+    abstract double cost();
+
+    // Sorted ids that every match must have, or null if the query does not restrict the id
+    int[] requiredIds() {
+        return null;
+    }
+
+    // 3. The conditions
+    private static final class SalaryRange extends EmployeeQuery {
+        private final double min;
+        private final double max;
+
+        SalaryRange(double min, double max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            double salary = employee.getSalary();
+            return salary >= min && salary <= max;
+        }
+
+        @Override
+        QueryCompiler.RowMatcher compile(QueryCompiler compiler) {
+            return compiler.salaryBetween(min, max);
+        }
+
+        @Override
+        double cost() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return "salary in [" + min + ", " + max + "]";
+        }
+    }
+
+    private static final class DepartmentIn extends EmployeeQuery {
+        private final String[] departments;
+
+        DepartmentIn(String[] departments) {
+            this.departments = departments.clone();
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            for (String department : departments) {
+                if (Objects.equals(department, employee.getDepartment())) return true;
+            }
+            return false;
+        }
+
+        @Override
+        QueryCompiler.RowMatcher compile(QueryCompiler compiler) {
+            // One flag per department code: the check is an array read, not String.equals()
+            boolean[] accepted = new boolean[DepartmentDictionary.size()];
+            for (String department : departments) {
+                int code = DepartmentDictionary.lookup(department);
+                if (code >= 0 && code < accepted.length) accepted[code] = true;
+            }
+            return compiler.departmentIn(accepted);
+        }
+
+        @Override
+        double cost() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return "department in " + Arrays.toString(departments);
+        }
+    }
+
+    private static final class NamePrefix extends EmployeeQuery {
+        private final String prefix;
+
+        NamePrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            return employee.getName() != null && employee.getName().startsWith(prefix);
+        }
+
+        @Override
+        QueryCompiler.RowMatcher compile(QueryCompiler compiler) {
+            return compiler.namePrefix(prefix);
+        }
+
+        // Decodes a String per row (and compares characters)
+        @Override
+        double cost() {
+            return 8;
+        }
+
+        @Override
+        public String toString() {
+            return "name starts with '" + prefix + "'";
+        }
+    }
+
+    private static final class IdIn extends EmployeeQuery {
+        private final int[] ids; // sorted, no duplicates
+
+        IdIn(int[] ids) {
+            this.ids = Arrays.stream(ids).sorted().distinct().toArray();
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            return Arrays.binarySearch(ids, employee.getId()) >= 0;
+        }
+
+        @Override
+        QueryCompiler.RowMatcher compile(QueryCompiler compiler) {
+            return compiler.idIn(ids);
+        }
+
+        // Binary search over the ids
+        @Override
+        double cost() {
+            return 1 + (32 - Integer.numberOfLeadingZeros(ids.length)) / 4.0;
+        }
+
+        @Override
+        int[] requiredIds() {
+            return ids;
+        }
+
+        @Override
+        public String toString() {
+            return "id in " + Arrays.toString(ids);
+        }
+    }
+
+    private static final class And extends EmployeeQuery {
+        private final List<EmployeeQuery> queries;
+
+        And(List<EmployeeQuery> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            for (EmployeeQuery query : queries) {
+                if (!query.test(employee)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        QueryCompiler.RowMatcher compile(QueryCompiler compiler) {
+            return compiler.and(queries);
+        }
+
+        @Override
+        double cost() {
+            return queries.stream().mapToDouble(EmployeeQuery::cost).sum();
+        }
+
+        // The smallest id set of the parts (every match must pass all of them)
+        @Override
+        int[] requiredIds() {
+            int[] best = null;
+            for (EmployeeQuery query : queries) {
+                int[] ids = query.requiredIds();
+                if (ids != null && (best == null || ids.length < best.length)) best = ids;
+            }
+            return best;
+        }
+
+        @Override
+        public String toString() {
+            return join(queries, " AND ");
+        }
+    }
+
+    private static final class Or extends EmployeeQuery {
+        private final List<EmployeeQuery> queries;
+
+        Or(List<EmployeeQuery> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            for (EmployeeQuery query : queries) {
+                if (query.test(employee)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        QueryCompiler.RowMatcher compile(QueryCompiler compiler) {
+            return compiler.or(queries);
+        }
+
+        @Override
+        double cost() {
+            return queries.stream().mapToDouble(EmployeeQuery::cost).sum();
+        }
+
+        // Every part must restrict the ids; a match has one of the ids of its part
+        @Override
+        int[] requiredIds() {
+            if (queries.isEmpty()) return new int[0];
+            IntList ids = new IntList();
+            for (EmployeeQuery query : queries) {
+                int[] partIds = query.requiredIds();
+                if (partIds == null) return null;
+                for (int id : partIds) {
+                    ids.add(id);
+                }
+            }
+            return Arrays.stream(ids.toArray()).sorted().distinct().toArray();
+        }
+
+        @Override
+        public String toString() {
+            return join(queries, " OR ");
+        }
+    }
+
+    private static final class Not extends EmployeeQuery {
+        private final EmployeeQuery query;
+
+        Not(EmployeeQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public boolean test(Employee employee) {
+            return !query.test(employee);
+        }
+
+        @Override
+        QueryCompiler.RowMatcher compile(QueryCompiler compiler) {
+            return compiler.not(query.compile(compiler));
+        }
+
+        @Override
+        double cost() {
+            return query.cost();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT (" + query + ")";
+        }
+    }
+
+    private static String join(List<EmployeeQuery> queries, String operator) {
+        StringJoiner joiner = new StringJoiner(operator, "(", ")");
+        for (EmployeeQuery query : queries) {
+            joiner.add(query.toString());
+        }
+        return joiner.toString();
+    }
+}
@@ -1,41 +1,871 @@
 //Business Logic using Streams & Lambda
 package AdvancedJava;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 public class EmployeeService {
-    private List<Employee> employees;
+    private final EmployeeStore store;
 
+    // false for a mapped snapshot or off-heap store: queries scan the store instead of building heap indexes
+    private final boolean indexed;
+
+    // Indexes are built on first use and then kept up to date by every change
+    private SalaryIndex salaryIndex;
+    private DepartmentIndex departmentIndex;
+    private SalaryAggregates aggregates;
+    private IdIndex idIndex;
+
+    // Name indexes (exact case / ignore case). volatile: a shared snapshot may build them on
+    // first use from a reader thread (see prepareForSharing()).
+    private volatile NameIndex nameIndex;
+    private volatile NameIndex nameIndexIgnoreCase;
+
+    // Salary quantile sketches, built on first use (volatile for the same reason)
+    private volatile SalaryQuantiles quantiles;
+
+    // Bumped by every change; rowEpoch is bumped when compaction renumbers the rows
+    private long version;
+    private long rowEpoch;
+
+    // Cached salary order, valid while version is unchanged. One immutable object (not two fields),
+    // so a shared snapshot can fill the cache from several reader threads without a lock.
+    private SalaryOrder salaryOrder;
+
+    // Results of repeated queries, valid while version is unchanged (null when disabled)
+    private QueryCache queryCache;
+
+    // Change events: the publisher behind changes(), and whoever gets each change (null if nobody)
+    private EmployeeChangePublisher changePublisher;
+    private Consumer<EmployeeChange> changeListener;
+
+    // Parallel mode: full scans run on this pool once the store has at least parallelThreshold rows
+    private ForkJoinPool pool;
+    private int parallelThreshold;
+
+    // Object storage: keeps a copy of the given List<Employee>
     public EmployeeService(List<Employee> employees) {
-        this.employees = employees;
+        this(new ListEmployeeStore(employees));
+    }
+
+    public EmployeeService(EmployeeStore store) {
+        this(store, true);
+    }
+
+    EmployeeService(EmployeeStore store, boolean indexed) {
+        this.store = store;
+        this.indexed = indexed;
+    }
+
+    // Columnar storage: copies the employees into primitive arrays (see ColumnarEmployeeStore)
+    public static EmployeeService columnar(List<Employee> employees) {
+        return new EmployeeService(new ColumnarEmployeeStore(employees));
+    }
+
+    // Off-heap storage (see OffHeapEmployeeStore): queries scan the records instead of building
+    // heap indexes, so the heap stays flat (lookups by id still use the id index). The caller
+    // owns the store and closes it once the service is no longer used.
+    public static EmployeeService offHeap(OffHeapEmployeeStore store) {
+        return new EmployeeService(store, false);
+    }
+
+    // Opens a snapshot file in place (see MappedEmployeeStore); the service is read-only
+    public static EmployeeService openSnapshot(Path file) throws IOException {
+        return new EmployeeService(MappedEmployeeStore.open(file), false);
+    }
+
+    // Writes the current employees as a snapshot file that openSnapshot() can map
+    public void saveSnapshot(Path file) throws IOException {
+        MappedEmployeeStore.write(store, file);
     }
 
     // 1. Filter Employees by Salary
     public List<Employee> getEmployeesWithSalaryAbove(double salary) {
-        return employees.stream()
-                .filter(emp -> emp.getSalary() > salary)
-                .collect(Collectors.toList());
+        if (queryCache != null) {
+            return queryCache.list("salaryAbove", salary, version, () -> employeesWithSalaryAbove(salary));
+        }
+        return employeesWithSalaryAbove(salary);
+    }
+
+    private List<Employee> employeesWithSalaryAbove(double salary) {
+        if (!indexed) return toEmployees(store.rowsWithSalaryAbove(salary));
+        return toEmployeesInRowOrder(salaryIndex().rowsAbove(salary, false));
     }
 
     // 2. Sort Employees by Salary
     public List<Employee> sortEmployeesBySalary() {
-        return employees.stream()
-                .sorted(Comparator.comparingDouble(Employee::getSalary).reversed())
-                .collect(Collectors.toList());
+        if (queryCache != null) {
+            return queryCache.list("sortedBySalary", null, version, () -> toEmployees(salaryOrder()));
+        }
+        return toEmployees(salaryOrder());
+    }
+
+    // The k best paid employees, highest first (bounded heap - no full sort)
+    public List<Employee> topKBySalary(int k) {
+        if (k < 0) throw new IllegalArgumentException("k must not be negative: " + k);
+        SalaryOrder cached = salaryOrder;
+        if (cached != null && cached.version == version) {
+            return toEmployees(Arrays.copyOf(cached.rows, Math.min(k, cached.rows.length)));
+        }
+        return toEmployees(SalaryRanking.topK(store, k));
+    }
+
+    // One page in salary order; pass null for the first page, then page.getNextCursor()
+    public SalaryPage getSalaryPage(SalaryPage.Cursor after, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        int[] order = salaryOrder();
+        int from = after == null ? 0 : resumePosition(order, after);
+        int to = Math.min(from + pageSize, order.length);
+
+        List<Employee> employees = toEmployees(Arrays.copyOfRange(order, from, to));
+        SalaryPage.Cursor next = null;
+        if (to < order.length) {
+            int last = order[to - 1];
+            next = new SalaryPage.Cursor(store.salary(last), last, to, version, rowEpoch);
+        }
+        return new SalaryPage(employees, next);
     }
 
     // 3. Get Average Salary of Employees
     public double getAverageSalary() {
-        return employees.stream()
-                .mapToDouble(Employee::getSalary)
-                .average()
-                .orElse(0.0);
+        return aggregates().total().getMean();
+    }
+
+    // Count, sum, min, max and mean, kept up to date on every change (O(1) to read)
+    public SalaryStats getSalaryStats() {
+        return aggregates().total();
+    }
+
+    // Statistics of one department (count 0 if the department has no employees)
+    public SalaryStats getSalaryStats(String department) {
+        SalaryStats stats = aggregates().department(department);
+        return stats == null ? new SalaryStats(0, 0.0, 0.0, 0.0) : stats;
+    }
+
+    public Map<String, SalaryStats> getSalaryStatsByDepartment() {
+        SalaryAggregates aggregates = aggregates();
+        Map<String, SalaryStats> result = new HashMap<>();
+        for (int code : aggregates.codes()) {
+            result.put(DepartmentDictionary.department(code), aggregates.department(code));
+        }
+        return result;
+    }
+
+    // Approximate salary quantile: q = 0.5 is the median, 0.9 is p90, 0.99 is p99.
+    // Kept up to date on every change (see SalaryQuantiles for the error bound). NaN if empty.
+    public double getSalaryQuantile(double q) {
+        return quantiles().total(checkQuantile(q));
+    }
+
+    public double getSalaryQuantile(String department, double q) {
+        return quantiles().department(department, checkQuantile(q));
+    }
+
+    private static double checkQuantile(double q) {
+        if (!(q >= 0 && q <= 1)) throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        return q;
     }
 
     // 4. Group Employees by Department
     public Map<String, List<Employee>> groupByDepartment() {
-        return employees.stream()
-                .collect(Collectors.groupingBy(Employee::getDepartment));
+        if (queryCache != null) {
+            return queryCache.groups("groupByDepartment", null, version, this::departmentGroups);
+        }
+        return departmentGroups();
+    }
+
+    private Map<String, List<Employee>> departmentGroups() {
+        if (!indexed) return store.groupByDepartment();
+        DepartmentIndex index = departmentIndex();
+        Map<String, List<Employee>> groups = new HashMap<>();
+        for (int code : index.codes()) {
+            groups.put(DepartmentDictionary.department(code), toEmployees(index.rows(code)));
+        }
+        return groups;
+    }
+
+    // Employees of one department (answered by the department index)
+    public List<Employee> getByDepartment(String department) {
+        if (queryCache != null) {
+            return queryCache.list("byDepartment", department, version, () -> employeesInDepartment(department));
+        }
+        return employeesInDepartment(department);
+    }
+
+    private List<Employee> employeesInDepartment(String department) {
+        if (!indexed) return toEmployees(store.rowsInDepartment(department));
+        return toEmployees(departmentIndex().rows(department));
+    }
+
+    // Number of employees per department (no Employee objects are built)
+    public Map<String, Integer> countByDepartment() {
+        if (!indexed) return store.countByDepartment();
+        DepartmentIndex index = departmentIndex();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int code : index.codes()) {
+            counts.put(DepartmentDictionary.department(code), index.count(code));
+        }
+        return counts;
+    }
+
+    // Aggregates per department in one pass (e.g. count and avg), without building any lists
+    public GroupedAggregates aggregateByDepartment(Aggregate... aggregates) {
+        Aggregate[] spec = aggregates.clone();
+        if (runsInParallel()) {
+            // Each split folds into its own partial result; the partials are merged at the end
+            return runScan(() -> rowStream().collect(() -> new GroupedAggregates(spec),
+                    (result, row) -> result.add(store.departmentCode(row), store.salary(row)),
+                    GroupedAggregates::merge));
+        }
+        GroupedAggregates result = new GroupedAggregates(spec);
+        if (store instanceof ColumnarEmployeeStore) {
+            ColumnarEmployeeStore columnar = (ColumnarEmployeeStore) store;
+            double[] salaries = columnar.salaryColumn();
+            int[] departmentCodes = columnar.departmentCodeColumn();
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (store.isLive(row)) result.add(departmentCodes[row], salaries[row]);
+            }
+        } else {
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (store.isLive(row)) result.add(store.departmentCode(row), store.salary(row));
+            }
+        }
+        return result;
+    }
+
+    // 5. Salary range queries (answered by the sorted salary index)
+    public List<Employee> getEmployeesWithSalaryAtLeast(double salary) {
+        if (!indexed) return toEmployees(scanSalaryRange(salary, Double.POSITIVE_INFINITY));
+        return toEmployeesInRowOrder(salaryIndex().rowsAbove(salary, true));
+    }
+
+    public List<Employee> getEmployeesWithSalaryBelow(double salary) {
+        if (!indexed) return toEmployees(scanSalaryRange(Double.NEGATIVE_INFINITY, Math.nextDown(salary)));
+        return toEmployeesInRowOrder(salaryIndex().rowsBelow(salary, false));
+    }
+
+    // Both bounds are inclusive
+    public List<Employee> getEmployeesWithSalaryBetween(double min, double max) {
+        if (!indexed) return toEmployees(scanSalaryRange(min, max));
+        return toEmployeesInRowOrder(salaryIndex().rowsBetween(min, true, max, true));
+    }
+
+    public int countEmployeesWithSalaryBetween(double min, double max) {
+        if (!indexed) return scanSalaryRange(min, max).length;
+        return salaryIndex().countBetween(min, true, max, true);
+    }
+
+    public double sumOfSalariesBetween(double min, double max) {
+        if (!indexed) {
+            double sum = 0;
+            for (int row : scanSalaryRange(min, max)) {
+                sum += store.salary(row);
+            }
+            return sum;
+        }
+        return salaryIndex().sumBetween(min, true, max, true);
+    }
+
+    // Rows with min <= salary <= max, in row order (reads only the salary column)
+    private int[] scanSalaryRange(double min, double max) {
+        IntList rows = new IntList();
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (!store.isLive(row)) continue;
+            double salary = store.salary(row);
+            if (salary >= min && salary <= max) rows.add(row);
+        }
+        return rows.toArray();
+    }
+
+    // 6. Scans with any condition (use all cores in parallel mode)
+    public List<Employee> filter(Predicate<Employee> condition) {
+        return runScan(() -> rowStream()
+                .mapToObj(store::get)
+                .filter(condition)
+                .collect(Collectors.toList()));
+    }
+
+    public long count(Predicate<Employee> condition) {
+        return runScan(() -> rowStream()
+                .filter(row -> condition.test(store.get(row)))
+                .count());
+    }
+
+    /*
+     * Parallel mode
+     * - Scans run as parallel streams inside the given pool, not the shared common pool,
+     *   so this service cannot slow down (or be slowed down by) other parallel streams.
+     * - Stores smaller than rowThreshold are still scanned sequentially: for small inputs
+     *   the fork/join overhead is larger than the work.
+     */
+    public void enableParallelMode(ForkJoinPool pool, int rowThreshold) {
+        this.pool = Objects.requireNonNull(pool);
+        this.parallelThreshold = rowThreshold;
+    }
+
+    public void disableParallelMode() {
+        this.pool = null;
+    }
+
+    private boolean runsInParallel() {
+        return pool != null && store.rowCount() >= parallelThreshold;
+    }
+
+    // Live rows as a stream that splits evenly (parallel only when runsInParallel())
+    private IntStream rowStream() {
+        int minSplitSize = pool == null ? 1 : Math.max(1024, store.rowCount() / (4 * pool.getParallelism()));
+        return StreamSupport.intStream(new RowSpliterator(0, store.rowCount(), minSplitSize), runsInParallel())
+                .filter(store::isLive);
+    }
+
+    // A parallel stream started from inside a ForkJoinPool task uses that pool for its work
+    private <T> T runScan(Supplier<T> scan) {
+        return runsInParallel() ? pool.submit(scan::get).join() : scan.get();
+    }
+
+    // 7. Adding, updating and removing employees
+    public void addEmployee(Employee employee) {
+        int row = store.add(employee);
+        indexInsert(row, employee);
+        if (idIndex != null) idIndex.insert(employee.getId(), row);
+        version++;
+        changed(EmployeeChange.Type.INSERT, null, employee);
+    }
+
+    // Replaces the employee with the same id (e.g. new salary or department); false if not found
+    public boolean updateEmployee(Employee employee) {
+        int row = findRow(employee.getId());
+        if (row < 0) return false;
+        Employee old = store.get(row);
+        indexRemove(row, old);
+        store.set(row, employee);
+        indexInsert(row, employee);
+        version++;
+        changed(EmployeeChange.Type.UPDATE, old, employee);
+        return true;
+    }
+
+    // Returns false if no employee has the given id
+    public boolean removeEmployee(int id) {
+        int row = findRow(id);
+        if (row < 0) return false;
+        Employee old = store.get(row);
+        indexRemove(row, old);
+        if (idIndex.remove(id, row) && idIndex.hasDuplicates()) {
+            promoteDuplicate(id, row);
+        }
+        store.remove(row);
+        version++;
+        compactIfNeeded();
+        changed(EmployeeChange.Type.DELETE, old, null);
+        return true;
+    }
+
+    /*
+     * Bulk changes: one batch instead of one call per employee
+     * - The rows are changed in place (no second list or service is built).
+     * - A large batch (see rebuildsIndexes()) drops the indexes it affects instead of updating
+     *   them row by row; they are rebuilt in one pass on next use. Small batches update them.
+     * - The version is bumped once, so caches see one change; subscribers still get one
+     *   change event per employee.
+     * - In parallel mode the salary adjustment is split across the pool (every row is written
+     *   by exactly one task).
+     */
+    // Applies the adjustment to the salary of every matching employee; returns how many matched
+    public int adjustSalaries(EmployeeQuery query, DoubleUnaryOperator adjustment) {
+        return adjustSalaries(matchingRows(query), adjustment);
+    }
+
+    // Same with any condition (builds an Employee per row to test it; prefer an EmployeeQuery)
+    public int adjustSalaries(Predicate<Employee> condition, DoubleUnaryOperator adjustment) {
+        int[] rows = runScan(() -> rowStream().filter(row -> condition.test(store.get(row))).toArray());
+        return adjustSalaries(rows, adjustment);
+    }
+
+    public void bulkInsert(Collection<Employee> employees) {
+        if (employees.isEmpty()) return;
+        boolean rebuild = rebuildsIndexes(employees.size());
+        if (rebuild) dropIndexes();
+        version++;
+        for (Employee employee : employees) {
+            int row = store.add(employee);
+            if (!rebuild) indexInsert(row, employee);
+            if (idIndex != null) idIndex.insert(employee.getId(), row);
+            changed(EmployeeChange.Type.INSERT, null, employee);
+        }
+    }
+
+    // Removes the employees with the given ids; returns how many were found
+    public int bulkDelete(int... ids) {
+        if (ids.length == 0) return 0;
+        boolean rebuild = rebuildsIndexes(ids.length);
+        if (rebuild) dropIndexes();
+        version++;
+        int removed = 0;
+        for (int id : ids) {
+            int row = findRow(id);
+            if (row < 0) continue;
+            Employee old = rebuild && changeListener == null ? null : store.get(row);
+            if (!rebuild) indexRemove(row, old);
+            if (idIndex.remove(id, row) && idIndex.hasDuplicates()) {
+                promoteDuplicate(id, row);
+            }
+            store.remove(row);
+            changed(EmployeeChange.Type.DELETE, old, null);
+            removed++;
+        }
+        compactIfNeeded();
+        return removed;
+    }
+
+    private int adjustSalaries(int[] rows, DoubleUnaryOperator adjustment) {
+        if (rows.length == 0) return 0;
+        boolean rebuild = rebuildsIndexes(rows.length);
+        if (rebuild) {
+            // Only the salary changes: the department, id and name indexes stay valid
+            salaryIndex = null;
+            aggregates = null;
+            quantiles = null;
+        }
+        version++;
+        if (rebuild && changeListener == null && runsInParallel()) {
+            runScan(() -> {
+                Arrays.stream(rows).parallel()
+                        .forEach(row -> store.setSalary(row, adjustment.applyAsDouble(store.salary(row))));
+                return null;
+            });
+            return rows.length;
+        }
+        for (int row : rows) {
+            Employee old = changeListener == null ? null : store.get(row);
+            double before = store.salary(row);
+            double after = adjustment.applyAsDouble(before);
+            store.setSalary(row, after);
+            if (!rebuild) {
+                int code = store.departmentCode(row);
+                if (salaryIndex != null) {
+                    salaryIndex.remove(row, before);
+                    salaryIndex.insert(row, after);
+                }
+                if (aggregates != null) {
+                    aggregates.remove(before, code);
+                    aggregates.insert(after, code);
+                }
+                if (quantiles != null) {
+                    quantiles.remove(before, code);
+                    quantiles.insert(after, code);
+                }
+            }
+            if (old != null) changed(EmployeeChange.Type.UPDATE, old, store.get(row));
+        }
+        return rows.length;
+    }
+
+    // 8. Lookup by id (open-addressing int -> row index: O(1), no boxing)
+    // null if no employee has the id
+    public Employee getById(int id) {
+        int row = findRow(id);
+        return row < 0 ? null : store.get(row);
+    }
+
+    public boolean containsId(int id) {
+        return findRow(id) >= 0;
+    }
+
+    // One entry per id, in the same order; null where no employee has the id
+    public List<Employee> getByIds(int[] ids) {
+        IdIndex index = idIndex();
+        List<Employee> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            int row = index.get(id);
+            result.add(row < 0 ? null : store.get(row));
+        }
+        return result;
+    }
+
+    // 9. Name search (typeahead): prefix and substring, optionally ignoring case
+    // Matches come in name order, then row order; limit stops early (e.g. 10 suggestions)
+    public List<Employee> findByNamePrefix(String prefix) {
+        return findByNamePrefix(prefix, false, Integer.MAX_VALUE);
+    }
+
+    public List<Employee> findByNamePrefix(String prefix, boolean ignoreCase, int limit) {
+        checkLimit(limit);
+        if (!indexed) {
+            String key = NameIndex.normalize(prefix, ignoreCase);
+            return toEmployees(scanNames(name -> name.startsWith(key), ignoreCase, limit));
+        }
+        return toEmployees(nameIndex(ignoreCase).rowsWithPrefix(prefix, limit));
+    }
+
+    public List<Employee> findByNameContaining(String text) {
+        return findByNameContaining(text, false, Integer.MAX_VALUE);
+    }
+
+    public List<Employee> findByNameContaining(String text, boolean ignoreCase, int limit) {
+        checkLimit(limit);
+        if (!indexed) {
+            String key = NameIndex.normalize(text, ignoreCase);
+            return toEmployees(scanNames(name -> name.contains(key), ignoreCase, limit));
+        }
+        return toEmployees(nameIndex(ignoreCase).rowsContaining(text, limit));
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+
+    // Mapped snapshots and off-heap stores: check every name, then sort the matches like the index does
+    private int[] scanNames(Predicate<String> matches, boolean ignoreCase, int limit) {
+        String[] names = new String[16];
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (!store.isLive(row)) continue;
+            String name = store.name(row);
+            if (name == null) continue;
+            name = NameIndex.normalize(name, ignoreCase);
+            if (matches.test(name)) {
+                if (count == rows.length) {
+                    names = Arrays.copyOf(names, count * 2);
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                names[count] = name;
+                rows[count++] = row;
+            }
+        }
+        // Rows are ascending and the sort is stable: equal names keep row order
+        PrimitiveSort.sortByName(names, rows, count);
+        return Arrays.copyOf(rows, Math.min(count, limit));
+    }
+
+    // 10. Queries built from EmployeeQuery: compiled to one pass over the columns (see QueryCompiler)
+    public List<Employee> filter(EmployeeQuery query) {
+        return toEmployees(matchingRows(query));
+    }
+
+    public long count(EmployeeQuery query) {
+        QueryCompiler.RowMatcher matcher = new QueryCompiler(store).compile(query);
+        int[] rows = rowsById(query, matcher);
+        if (rows != null) return rows.length;
+        if (runsInParallel()) return runScan(() -> rowStream().filter(matcher::matches).count());
+        long count = 0;
+        int[] block = new int[QueryCompiler.BLOCK_SIZE];
+        for (int from = 0; from < store.rowCount(); from += block.length) {
+            count += matcher.filter(block, liveRows(from, block));
+        }
+        return count;
+    }
+
+    private int[] matchingRows(EmployeeQuery query) {
+        QueryCompiler.RowMatcher matcher = new QueryCompiler(store).compile(query);
+        int[] rows = rowsById(query, matcher);
+        if (rows != null) return rows;
+        return runsInParallel() ? runScan(() -> rowStream().filter(matcher::matches).toArray()) : scan(matcher);
+    }
+
+    // One pass over the rows, a block at a time
+    private int[] scan(QueryCompiler.RowMatcher matcher) {
+        IntList rows = new IntList();
+        int[] block = new int[QueryCompiler.BLOCK_SIZE];
+        for (int from = 0; from < store.rowCount(); from += block.length) {
+            int matches = matcher.filter(block, liveRows(from, block));
+            for (int i = 0; i < matches; i++) {
+                rows.add(block[i]);
+            }
+        }
+        return rows.toArray();
+    }
+
+    // Fills the block with the live rows from 'from' on (at most block.length rows); returns how many
+    private int liveRows(int from, int[] block) {
+        int to = Math.min(from + block.length, store.rowCount());
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            if (store.isLive(row)) block[count++] = row;
+        }
+        return count;
+    }
+
+    // A query that only accepts a few ids looks them up instead of scanning; null to scan
+    private int[] rowsById(EmployeeQuery query, QueryCompiler.RowMatcher matcher) {
+        int[] ids = query.requiredIds();
+        if (ids == null || ids.length > store.liveCount() / 8) return null;
+        IdIndex index = idIndex();
+        if (index.hasDuplicates()) return null; // the index only knows one row per id
+        IntList rows = new IntList(ids.length);
+        for (int id : ids) {
+            int row = index.get(id);
+            if (row >= 0 && matcher.matches(row)) rows.add(row);
+        }
+        int[] result = rows.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /*
+     * 11. Query result cache (off by default)
+     * - getEmployeesWithSalaryAbove, sortEmployeesBySalary, groupByDepartment and getByDepartment
+     *   remember their results until the next change (see QueryCache).
+     * - While the cache is on, these methods return unmodifiable lists and maps.
+     */
+    public void enableQueryCache(int maxEntries, long maxBytes) {
+        queryCache = new QueryCache(maxEntries, maxBytes);
+    }
+
+    public void disableQueryCache() {
+        queryCache = null;
+    }
+
+    // Hit / miss counters since the cache was enabled (null when it is off)
+    public QueryCache.Stats getQueryCacheStats() {
+        return queryCache == null ? null : queryCache.stats();
+    }
+
+    /*
+     * 12. Change events (java.util.concurrent.Flow)
+     * - Subscribers get batches of inserts, updates and deletes with before / after values,
+     *   e.g. to keep a cache or an export up to date instead of reloading everything.
+     * - Bounded buffer per subscriber, backpressure through request(n), delivery on the common
+     *   pool; a slow subscriber never slows down the changes (see EmployeeChangePublisher).
+     */
+    public Flow.Publisher<List<EmployeeChange>> changes() {
+        if (changePublisher == null) {
+            changePublisher = new EmployeeChangePublisher();
+            changeListener = changePublisher::publish;
+        }
+        return changePublisher;
+    }
+
+    // Gets every following change instead of the publisher (null to stop); see ConcurrentEmployeeService
+    void setChangeListener(Consumer<EmployeeChange> listener) {
+        changeListener = listener;
+    }
+
+    // Tells the listener (if any) about a change that was just applied
+    private void changed(EmployeeChange.Type type, Employee before, Employee after) {
+        if (changeListener != null) changeListener.accept(new EmployeeChange(type, before, after, version));
+    }
+
+    // Every built index sees every change
+    private void indexInsert(int row, Employee employee) {
+        if (salaryIndex != null) salaryIndex.insert(row, employee.getSalary());
+        if (departmentIndex != null) departmentIndex.insert(row, employee.getDepartmentCode());
+        if (aggregates != null) aggregates.insert(employee.getSalary(), employee.getDepartmentCode());
+        if (nameIndex != null) nameIndex.insert(row, employee.getName());
+        if (nameIndexIgnoreCase != null) nameIndexIgnoreCase.insert(row, employee.getName());
+        if (quantiles != null) quantiles.insert(employee.getSalary(), employee.getDepartmentCode());
+    }
+
+    private void indexRemove(int row, Employee employee) {
+        if (salaryIndex != null) salaryIndex.remove(row, employee.getSalary());
+        if (departmentIndex != null) departmentIndex.remove(row, employee.getDepartmentCode());
+        if (aggregates != null) aggregates.remove(employee.getSalary(), employee.getDepartmentCode());
+        if (nameIndex != null) nameIndex.remove(row, employee.getName());
+        if (nameIndexIgnoreCase != null) nameIndexIgnoreCase.remove(row, employee.getName());
+        if (quantiles != null) quantiles.remove(employee.getSalary(), employee.getDepartmentCode());
+    }
+
+    // Also used for mapped snapshots: the index is two int arrays, not Employee objects
+    private int findRow(int id) {
+        return idIndex().get(id);
+    }
+
+    // With duplicate ids the next live row with the id takes over the removed one (rare, O(n))
+    private void promoteDuplicate(int id, int removedRow) {
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (row != removedRow && store.isLive(row) && store.id(row) == id) {
+                idIndex.promoteDuplicate(id, row);
+                return;
+            }
+        }
+    }
+
+    // Rebuilding an index (one pass, one sort) beats updating it once per row for big batches
+    private boolean rebuildsIndexes(int batchSize) {
+        return batchSize >= 1024 && batchSize > store.liveCount() / 16;
+    }
+
+    // Built indexes are rebuilt on next use; the id index stays (bulk deletes look rows up in it)
+    private void dropIndexes() {
+        salaryIndex = null;
+        departmentIndex = null;
+        aggregates = null;
+        nameIndex = null;
+        nameIndexIgnoreCase = null;
+        quantiles = null;
+    }
+
+    // Once more than half of the rows are removed, drop them; indexes are rebuilt on next use
+    private void compactIfNeeded() {
+        int removed = store.rowCount() - store.liveCount();
+        if (removed > 1024 && removed > store.liveCount()) {
+            store.compact();
+            salaryIndex = null;
+            departmentIndex = null;
+            idIndex = null;
+            nameIndex = null;
+            nameIndexIgnoreCase = null;
+            rowEpoch++;
+        }
+    }
+
+    private SalaryIndex salaryIndex() {
+        if (salaryIndex == null) {
+            salaryIndex = new SalaryIndex(store);
+        }
+        return salaryIndex;
+    }
+
+    private IdIndex idIndex() {
+        if (idIndex == null) {
+            idIndex = new IdIndex(store);
+        }
+        return idIndex;
+    }
+
+    // Two threads of a shared snapshot may both build it; either result is correct
+    private NameIndex nameIndex(boolean ignoreCase) {
+        NameIndex index = ignoreCase ? nameIndexIgnoreCase : nameIndex;
+        if (index == null) {
+            index = new NameIndex(store, ignoreCase);
+            if (ignoreCase) {
+                nameIndexIgnoreCase = index;
+            } else {
+                nameIndex = index;
+            }
+        }
+        return index;
+    }
+
+    private DepartmentIndex departmentIndex() {
+        if (departmentIndex == null) {
+            departmentIndex = new DepartmentIndex(store);
+        }
+        return departmentIndex;
+    }
+
+    private int[] salaryOrder() {
+        SalaryOrder cached = salaryOrder;
+        if (cached == null || cached.version != version) {
+            cached = new SalaryOrder(store.rowsSortedBySalaryDescending(), version);
+            salaryOrder = cached;
+        }
+        return cached.rows;
+    }
+
+    // Row numbers, highest salary first (final fields: safe to publish without a lock)
+    private static final class SalaryOrder {
+        final int[] rows;
+        final long version;
+
+        SalaryOrder(int[] rows, long version) {
+            this.rows = rows;
+            this.version = version;
+        }
+    }
+
+    // First position in the salary order that comes after the cursor
+    private int resumePosition(int[] order, SalaryPage.Cursor after) {
+        if (after.version == version) return after.position;
+        if (after.rowEpoch != rowEpoch) {
+            throw new ConcurrentModificationException("Rows were compacted since this cursor was created");
+        }
+        int lo = 0, hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double salary = store.salary(order[mid]);
+            boolean beforeOrAtCursor = salary > after.salary || (salary == after.salary && order[mid] <= after.row);
+            if (beforeOrAtCursor) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Service over a copy of the store (see ColumnarEmployeeStore.copy()). The built indexes
+    // are copied too, so changes to the copy update them instead of rebuilding them.
+    // Version numbers continue, so cursors created on this service stay usable on the copy.
+    EmployeeService copyWith(EmployeeStore copy) {
+        EmployeeService service = new EmployeeService(copy, indexed);
+        if (salaryIndex != null) service.salaryIndex = salaryIndex.copy();
+        if (departmentIndex != null) service.departmentIndex = departmentIndex.copy();
+        if (aggregates != null) service.aggregates = aggregates.copy(copy);
+        if (idIndex != null) service.idIndex = idIndex.copy();
+        NameIndex names = nameIndex;
+        if (names != null) service.nameIndex = names.copy();
+        NameIndex namesIgnoreCase = nameIndexIgnoreCase;
+        if (namesIgnoreCase != null) service.nameIndexIgnoreCase = namesIgnoreCase.copy();
+        SalaryQuantiles sketches = quantiles;
+        if (sketches != null) service.quantiles = sketches.copy(copy);
+        service.salaryOrder = salaryOrder;
+        service.version = version;
+        service.rowEpoch = rowEpoch;
+        return service;
+    }
+
+    // Builds the lazy indexes and refreshes stale aggregates up front. Afterwards queries only
+    // read fields (the salary order cache is filled safely, see SalaryOrder), so threads can
+    // share the service as long as nobody changes it. Name indexes and quantile sketches are
+    // only built when a query needs them; their volatile fields make that safe too.
+    void prepareForSharing() {
+        if (indexed) {
+            salaryIndex();
+            departmentIndex();
+        }
+        idIndex();
+        SalaryAggregates aggregates = aggregates();
+        aggregates.total();
+        for (int code : aggregates.codes()) {
+            aggregates.department(code);
+        }
+        SalaryQuantiles sketches = quantiles;
+        if (sketches != null) sketches.refresh();
+    }
+
+    private SalaryAggregates aggregates() {
+        if (aggregates == null) {
+            aggregates = new SalaryAggregates(store);
+        }
+        return aggregates;
+    }
+
+    // Built in one pass; in parallel mode every split fills its own sketches, merged at the end
+    private SalaryQuantiles quantiles() {
+        SalaryQuantiles sketches = quantiles;
+        if (sketches == null) {
+            sketches = runScan(() -> rowStream().collect(() -> new SalaryQuantiles(store),
+                    (result, row) -> result.insert(store.salary(row), store.departmentCode(row)),
+                    SalaryQuantiles::merge));
+            quantiles = sketches;
+        }
+        return sketches;
+    }
+
+    // Index results come in index order; callers expect the original (row) order
+    private List<Employee> toEmployeesInRowOrder(int[] rows) {
+        Arrays.sort(rows);
+        return toEmployees(rows);
+    }
+
+    // Builds the Employee objects only for the rows a query returns
+    private List<Employee> toEmployees(int[] rows) {
+        List<Employee> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(store.get(row));
+        }
+        return result;
     }
 }
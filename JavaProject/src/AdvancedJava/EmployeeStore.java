@@ -0,0 +1,152 @@
+// Storage backend used by EmployeeService
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * EmployeeStore - where EmployeeService keeps its rows
+ * -----------------------------------------
+ * - Every employee lives at an int "row" number (0 .. rowCount() - 1).
+ * - Accessors read a single field of a row without building an Employee object.
+ * - Rows never move: remove() only marks a row as removed, so the row numbers kept by
+ *   indexes stay valid. compact() drops the removed rows (and renumbers the rest).
+ * - The scan methods (kernels) have simple default implementations built on the accessors;
+ *   a store with a better layout (e.g. ColumnarEmployeeStore) overrides them.
+ */
+public interface EmployeeStore {
+
+    // Number of rows in the store, including removed rows
+    int rowCount();
+
+    // Number of rows that are not removed
+    int liveCount();
+
+    boolean isLive(int row);
+
+    int id(int row);
+
+    String name(int row);
+
+    double salary(int row);
+
+    String department(int row);
+
+    // Code of the row's department in the shared DepartmentDictionary
+    default int departmentCode(int row) {
+        return DepartmentDictionary.code(department(row));
+    }
+
+    // Builds (or returns) the Employee stored at the given row
+    default Employee get(int row) {
+        return new Employee(id(row), name(row), salary(row), departmentCode(row));
+    }
+
+    // Appends the employee and returns its row number
+    int add(Employee employee);
+
+    // Replaces the employee stored at a live row
+    void set(int row, Employee employee);
+
+    // Changes only the salary of a live row (used by bulk salary adjustments)
+    default void setSalary(int row, double salary) {
+        set(row, new Employee(id(row), name(row), salary, departmentCode(row)));
+    }
+
+    // Marks the row as removed
+    void remove(int row);
+
+    // Drops the removed rows; live rows keep their relative order but get new row numbers
+    void compact();
+
+    // Kernel 1: rows whose salary is strictly greater than the given value, in row order
+    default int[] rowsWithSalaryAbove(double salary) {
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = 0; row < rowCount(); row++) {
+            if (isLive(row) && salary(row) > salary) {
+                if (count == rows.length) rows = Arrays.copyOf(rows, count * 2);
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    // Kernel 2: sum of all salaries (compensated, like DoubleStream.sum())
+    default double salarySum() {
+        double sum = 0, compensation = 0;
+        for (int row = 0; row < rowCount(); row++) {
+            if (!isLive(row)) continue;
+            double y = salary(row) - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+        }
+        return sum;
+    }
+
+    // Kernel 3: row numbers sorted by salary (highest first, ties keep row order)
+    default int[] rowsSortedBySalaryDescending() {
+        double[] salaries = new double[rowCount()];
+        int[] rows = new int[liveCount()];
+        int count = 0;
+        for (int row = 0; row < rowCount(); row++) {
+            if (!isLive(row)) continue;
+            salaries[row] = salary(row);
+            rows[count++] = row;
+        }
+        PrimitiveSort.sortRowsByKeyDescending(rows, salaries);
+        return rows;
+    }
+
+    // Kernel 4: rows of one department, in row order (compares department codes, not Strings)
+    default int[] rowsInDepartment(String department) {
+        int code = DepartmentDictionary.lookup(department);
+        IntList rows = new IntList();
+        if (code < 0) return rows.toArray();
+        for (int row = 0; row < rowCount(); row++) {
+            if (isLive(row) && departmentCode(row) == code) rows.add(row);
+        }
+        return rows.toArray();
+    }
+
+    // Kernel 5: number of employees per department (one array slot per department code)
+    default Map<String, Integer> countByDepartment() {
+        int[] counts = new int[DepartmentDictionary.size()];
+        for (int row = 0; row < rowCount(); row++) {
+            if (isLive(row)) counts[departmentCode(row)]++;
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) result.put(DepartmentDictionary.department(code), counts[code]);
+        }
+        return result;
+    }
+
+    // Kernel 6: employees grouped by department (groups keep row order)
+    default Map<String, List<Employee>> groupByDepartment() {
+        List<List<Employee>> groups = new ArrayList<>(Collections.nCopies(DepartmentDictionary.size(), null));
+        for (int row = 0; row < rowCount(); row++) {
+            if (!isLive(row)) continue;
+            int code = departmentCode(row);
+            if (groups.get(code) == null) groups.set(code, new ArrayList<>());
+            groups.get(code).add(get(row));
+        }
+        Map<String, List<Employee>> result = new HashMap<>();
+        for (int code = 0; code < groups.size(); code++) {
+            if (groups.get(code) != null) result.put(DepartmentDictionary.department(code), groups.get(code));
+        }
+        return result;
+    }
+
+    // Kernel 7: count, sum, min and max of the salaries in one call
+    default SalaryStats salaryStats() {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < rowCount(); row++) {
+            if (!isLive(row)) continue;
+            double salary = salary(row);
+            if (salary < min) min = salary;
+            if (salary > max) max = salary;
+        }
+        return new SalaryStats(liveCount(), salarySum(), min, max);
+    }
+}
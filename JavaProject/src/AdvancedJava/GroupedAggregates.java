@@ -0,0 +1,188 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Grouped aggregates - result of EmployeeService.aggregateByDepartment()
+ * -----------------------------------------
+ * Key Points:
+ * - Compared with groupByDepartment() + streams, no List<Employee> is built per group and
+ *   no Employee object per row: the rows are read once and folded into primitive slots.
+ * - All state is one double[]: for every department code a row of 'width' slots
+ *   (the group's count, then the slots of each aggregate).
+ * - In parallel mode every split fills its own array; the arrays are merged at the end
+ *   (counts and sums add up, min / max compare, custom aggregates use their combiner).
+ */
+public final class GroupedAggregates {
+    private final Aggregate[] aggregates;
+    private final int[] offsets; // slot of each aggregate within a group's row
+    private final int width;
+    private final double[] values;
+
+    GroupedAggregates(Aggregate[] aggregates) {
+        this.aggregates = aggregates;
+        this.offsets = new int[aggregates.length];
+        int width = 1;
+        for (int a = 0; a < aggregates.length; a++) {
+            offsets[a] = width;
+            width += aggregates[a].slots();
+        }
+        this.width = width;
+        int groups = DepartmentDictionary.size();
+        values = new double[groups * width];
+        for (int a = 0; a < aggregates.length; a++) {
+            Aggregate aggregate = aggregates[a];
+            if (aggregate.slots() == 1) {
+                for (int base = 0; base < values.length; base += width) {
+                    values[base + offsets[a]] = aggregate.identity;
+                }
+            }
+        }
+    }
+
+    // Adds one row of the group with the given department code
+    void add(int departmentCode, double salary) {
+        double[] values = this.values;
+        int base = departmentCode * width;
+        values[base]++;
+        for (int a = 0; a < aggregates.length; a++) {
+            int at = base + offsets[a];
+            switch (aggregates[a].kind) {
+                case Aggregate.SUM:
+                case Aggregate.AVG:
+                    kahanAdd(values, at, salary);
+                    break;
+                case Aggregate.MIN:
+                    if (salary < values[at]) values[at] = salary;
+                    break;
+                case Aggregate.MAX:
+                    if (salary > values[at]) values[at] = salary;
+                    break;
+                case Aggregate.CUSTOM:
+                    values[at] = aggregates[a].accumulator.applyAsDouble(values[at], salary);
+                    break;
+                default:
+                    break; // COUNT uses the group's count
+            }
+        }
+    }
+
+    // Folds another partial result (same aggregates) into this one
+    void merge(GroupedAggregates other) {
+        int length = Math.min(values.length, other.values.length);
+        for (int base = 0; base < length; base += width) {
+            if (other.values[base] == 0) continue;
+            values[base] += other.values[base];
+            for (int a = 0; a < aggregates.length; a++) {
+                int at = base + offsets[a];
+                double value = other.values[at];
+                switch (aggregates[a].kind) {
+                    case Aggregate.SUM:
+                    case Aggregate.AVG:
+                        kahanAdd(values, at, value);
+                        kahanAdd(values, at, -other.values[at + 1]);
+                        break;
+                    case Aggregate.MIN:
+                        if (value < values[at]) values[at] = value;
+                        break;
+                    case Aggregate.MAX:
+                        if (value > values[at]) values[at] = value;
+                        break;
+                    case Aggregate.CUSTOM:
+                        values[at] = aggregates[a].combiner.applyAsDouble(values[at], value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    // values[at] is the sum, values[at + 1] the compensation (see SalaryAggregates)
+    private static void kahanAdd(double[] values, int at, double value) {
+        double y = value - values[at + 1];
+        double t = values[at] + y;
+        values[at + 1] = (t - values[at]) - y;
+        values[at] = t;
+    }
+
+    // Departments with at least one employee
+    public Set<String> departments() {
+        Set<String> departments = new HashSet<>();
+        for (int code = 0; code * width < values.length; code++) {
+            if (values[code * width] > 0) departments.add(DepartmentDictionary.department(code));
+        }
+        return departments;
+    }
+
+    public long count(String department) {
+        int base = base(department);
+        return base < 0 ? 0 : (long) values[base];
+    }
+
+    // Value of one of the aggregates the result was computed with
+    public double get(String department, Aggregate aggregate) {
+        int a = indexOf(aggregate);
+        int base = base(department);
+        long count = base < 0 ? 0 : (long) values[base];
+        return value(base, a, count);
+    }
+
+    public Map<String, Double> toMap(Aggregate aggregate) {
+        int a = indexOf(aggregate);
+        Map<String, Double> result = new HashMap<>();
+        for (int code = 0; code * width < values.length; code++) {
+            long count = (long) values[code * width];
+            if (count > 0) result.put(DepartmentDictionary.department(code), value(code * width, a, count));
+        }
+        return result;
+    }
+
+    private double value(int base, int a, long count) {
+        Aggregate aggregate = aggregates[a];
+        if (count == 0) {
+            switch (aggregate.kind) {
+                case Aggregate.MIN:
+                case Aggregate.MAX: return Double.NaN;
+                case Aggregate.CUSTOM: return aggregate.identity;
+                default: return 0.0;
+            }
+        }
+        double value = values[base + offsets[a]];
+        switch (aggregate.kind) {
+            case Aggregate.COUNT: return count;
+            case Aggregate.AVG: return value / count;
+            default: return value;
+        }
+    }
+
+    private int base(String department) {
+        int code = DepartmentDictionary.lookup(department);
+        return code < 0 || code * width >= values.length ? -1 : code * width;
+    }
+
+    private int indexOf(Aggregate aggregate) {
+        for (int a = 0; a < aggregates.length; a++) {
+            if (aggregates[a] == aggregate) return a;
+        }
+        throw new IllegalArgumentException("Not computed in this result: " + aggregate);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("GroupedAggregates{");
+        String separator = "";
+        for (int code = 0; code * width < values.length; code++) {
+            long count = (long) values[code * width];
+            if (count == 0) continue;
+            text.append(separator).append(DepartmentDictionary.department(code)).append('=');
+            StringJoiner row = new StringJoiner(", ", "{", "}");
+            for (int a = 0; a < aggregates.length; a++) {
+                row.add(aggregates[a] + "=" + value(code * width, a, count));
+            }
+            text.append(row);
+            separator = ", ";
+        }
+        return text.append('}').toString();
+    }
+}
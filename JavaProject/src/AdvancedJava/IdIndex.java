@@ -0,0 +1,156 @@
+package AdvancedJava;
+
+import java.util.Arrays;
+
+/*
+ * Id index - employee id to row number, without boxing
+ * -----------------------------------------
+ * Key Points:
+ * - A HashMap<Integer, Integer> allocates an Integer per key/value and a node per entry
+ *   (about 50 bytes), and every lookup of an int key boxes it.
+ * - Here the table is two int arrays (keys and rows) with open addressing: an id goes to the
+ *   slot given by its hash; if that slot is taken, the next free slot is used (linear probing).
+ *   A lookup walks from the home slot until it finds the id or an empty slot.
+ * - The table is at most 3/4 full, so an entry costs 8 to 16 bytes and lookups stay O(1).
+ * - Removal shifts the following entries back instead of leaving "deleted" markers, so the
+ *   probe chains never fill up with garbage.
+ * - Ids are expected to be unique. If an id is added twice, the index keeps the first row
+ *   and counts the duplicate (see hasDuplicates()).
+ */
+final class IdIndex {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] rows; // EMPTY marks a free slot
+    private int mask;
+    private int size;
+    private int duplicates;
+
+    IdIndex(EmployeeStore store) {
+        allocate(capacityFor(store.liveCount()));
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (store.isLive(row)) insert(store.id(row), row);
+        }
+    }
+
+    private IdIndex(IdIndex source) {
+        keys = source.keys.clone();
+        rows = source.rows.clone();
+        mask = source.mask;
+        size = source.size;
+        duplicates = source.duplicates;
+    }
+
+    IdIndex copy() {
+        return new IdIndex(this);
+    }
+
+    // Row of the id, or -1 if no employee has it (no allocation)
+    int get(int id) {
+        int i = hash(id) & mask;
+        while (rows[i] != EMPTY) {
+            if (keys[i] == id) return rows[i];
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    // false if the id is already indexed (the existing row is kept)
+    boolean insert(int id, int row) {
+        int i = hash(id) & mask;
+        while (rows[i] != EMPTY) {
+            if (keys[i] == id) {
+                duplicates++;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        rows[i] = row;
+        if (++size > (mask + 1) / 4 * 3) resize();
+        return true;
+    }
+
+    // Removes the id if it maps to the given row; returns true if it did
+    boolean remove(int id, int row) {
+        int i = hash(id) & mask;
+        while (rows[i] != EMPTY) {
+            if (keys[i] == id) {
+                if (rows[i] != row) {
+                    duplicates--; // the removed row was a duplicate, the indexed one stays
+                    return false;
+                }
+                deleteSlot(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    // A duplicate becomes visible once the indexed row of its id is removed
+    void promoteDuplicate(int id, int row) {
+        duplicates--;
+        insert(id, row);
+    }
+
+    boolean hasDuplicates() {
+        return duplicates > 0;
+    }
+
+    // Backward-shift deletion: moves later entries of the chain into the hole
+    private void deleteSlot(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (rows[i] == EMPTY) break;
+            int home = hash(keys[i]) & mask;
+            // The entry may move into the hole only if the hole lies between its home and i
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keys[hole] = keys[i];
+                rows[hole] = rows[i];
+                hole = i;
+            }
+        }
+        rows[hole] = EMPTY;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldRows = rows;
+        allocate((mask + 1) * 2);
+        for (int i = 0; i < oldRows.length; i++) {
+            if (oldRows[i] == EMPTY) continue;
+            int j = hash(oldKeys[i]) & mask;
+            while (rows[j] != EMPTY) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = oldKeys[i];
+            rows[j] = oldRows[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, EMPTY);
+        mask = capacity - 1;
+    }
+
+    // Smallest power of two that keeps 'entries' below 3/4 load
+    private static int capacityFor(int entries) {
+        int capacity = 16;
+        while (capacity / 4 * 3 <= entries) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Ids are often consecutive; mixing the bits spreads them over the whole table
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
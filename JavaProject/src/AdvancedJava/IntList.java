@@ -0,0 +1,74 @@
+package AdvancedJava;
+
+import java.util.Arrays;
+
+/*
+ * Growable list of primitive ints
+ * -----------------------------------------
+ * - Like ArrayList<Integer>, but without one Integer object per element.
+ * - Used by the indexes to hold row numbers; the "Sorted" methods keep the list ascending.
+ */
+final class IntList {
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    IntList copy() {
+        IntList copy = new IntList(0);
+        copy.values = Arrays.copyOf(values, Math.max(size, 1));
+        copy.size = size;
+        return copy;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void add(int value) {
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    // Inserts the value at its sorted position (the list must already be sorted)
+    void addSorted(int value) {
+        if (size == 0 || values[size - 1] < value) {
+            add(value); // common case: new rows are appended at the end
+            return;
+        }
+        int i = Arrays.binarySearch(values, 0, size, value);
+        if (i >= 0) return;
+        i = -i - 1;
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        values[i] = value;
+        size++;
+    }
+
+    // Removes the value from a sorted list; returns false if it was not there
+    boolean removeSorted(int value) {
+        int i = Arrays.binarySearch(values, 0, size, value);
+        if (i < 0) return false;
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+        return true;
+    }
+
+    int removeLast() {
+        return values[--size];
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
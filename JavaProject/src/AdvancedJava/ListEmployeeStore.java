@@ -0,0 +1,88 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Object storage - one Employee object per row
+ * -----------------------------------------
+ * - This is the original layout of EmployeeService: a List<Employee>.
+ * - The list is copied, so the caller's list (e.g. Arrays.asList) is never modified.
+ * - A removed row is set to null until compact() is called.
+ * - Queries return the very same Employee objects that were passed in.
+ */
+public class ListEmployeeStore implements EmployeeStore {
+    private final List<Employee> employees;
+    private int removedCount;
+
+    public ListEmployeeStore(List<Employee> employees) {
+        this.employees = new ArrayList<>(employees);
+    }
+
+    @Override
+    public int rowCount() {
+        return employees.size();
+    }
+
+    @Override
+    public int liveCount() {
+        return employees.size() - removedCount;
+    }
+
+    @Override
+    public boolean isLive(int row) {
+        return employees.get(row) != null;
+    }
+
+    @Override
+    public int id(int row) {
+        return employees.get(row).getId();
+    }
+
+    @Override
+    public String name(int row) {
+        return employees.get(row).getName();
+    }
+
+    @Override
+    public double salary(int row) {
+        return employees.get(row).getSalary();
+    }
+
+    @Override
+    public String department(int row) {
+        return employees.get(row).getDepartment();
+    }
+
+    @Override
+    public int departmentCode(int row) {
+        return employees.get(row).getDepartmentCode();
+    }
+
+    @Override
+    public Employee get(int row) {
+        return employees.get(row);
+    }
+
+    @Override
+    public int add(Employee employee) {
+        employees.add(employee);
+        return employees.size() - 1;
+    }
+
+    @Override
+    public void set(int row, Employee employee) {
+        employees.set(row, employee);
+    }
+
+    @Override
+    public void remove(int row) {
+        employees.set(row, null);
+        removedCount++;
+    }
+
+    @Override
+    public void compact() {
+        employees.removeIf(Objects::isNull);
+        removedCount = 0;
+    }
+}
@@ -3,6 +3,10 @@ package AdvancedJava;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     public static void main(String[] args) {
@@ -33,5 +37,117 @@ public class Main {
         groupedByDept.forEach((dept, empList) -> {
             System.out.println(dept + ": " + empList);
         });
+
+        // 5. Same queries on columnar storage (primitive arrays instead of objects)
+        EmployeeService columnarService = EmployeeService.columnar(employees);
+        System.out.println("\nColumnar - employees with salary above 50,000:");
+        columnarService.getEmployeesWithSalaryAbove(50000).forEach(System.out::println);
+        System.out.println("Columnar - average salary: " + columnarService.getAverageSalary());
+
+        // 6. Salary range queries after adding and removing employees
+        columnarService.addEmployee(new Employee(6, "Frank", 55000, "HR"));
+        columnarService.removeEmployee(3);
+        System.out.println("\nEmployees with salary between 50,000 and 70,000:");
+        columnarService.getEmployeesWithSalaryBetween(50000, 70000).forEach(System.out::println);
+        System.out.println("Count: " + columnarService.countEmployeesWithSalaryBetween(50000, 70000)
+                + ", Sum: " + columnarService.sumOfSalariesBetween(50000, 70000));
+
+        // 7. Department lookup after moving an employee to another department
+        columnarService.updateEmployee(new Employee(2, "Bob", 52000, "IT"));
+        System.out.println("\nIT department: " + columnarService.getByDepartment("IT"));
+
+        // 8. Running statistics (kept up to date, no stream over all salaries)
+        System.out.println("\nAll employees: " + columnarService.getSalaryStats());
+        columnarService.getSalaryStatsByDepartment().forEach((dept, stats) -> {
+            System.out.println(dept + ": " + stats);
+        });
+
+        // 9. Top 2 earners and salary pages of 2 employees
+        System.out.println("\nTop 2 by salary: " + columnarService.topKBySalary(2));
+        SalaryPage page = columnarService.getSalaryPage(null, 2);
+        System.out.println("Page 1: " + page.getEmployees());
+        while (page.hasNext()) {
+            page = columnarService.getSalaryPage(page.getNextCursor(), 2);
+            System.out.println("Next page: " + page.getEmployees());
+        }
+
+        // 10. Parallel scans on the service's own pool (small inputs stay sequential)
+        ForkJoinPool pool = new ForkJoinPool(2);
+        columnarService.enableParallelMode(pool, 100_000);
+        System.out.println("\nIT employees earning over 60,000: "
+                + columnarService.filter(emp -> emp.getDepartment().equals("IT") && emp.getSalary() > 60000));
+        pool.shutdown();
+
+        // 11. Lookup by id (hash index on the int id, no scan)
+        System.out.println("\nEmployee 1: " + columnarService.getById(1));
+        System.out.println("Has employee 42? " + columnarService.containsId(42));
+        System.out.println("Employees 1 and 5: " + columnarService.getByIds(new int[] {1, 5}));
+
+        // 12. Name search: prefix (typeahead) and substring, optionally ignoring case
+        System.out.println("\nNames starting with 'Al': " + columnarService.findByNamePrefix("Al"));
+        System.out.println("Names containing 'LIC' (any case): "
+                + columnarService.findByNameContaining("LIC", true, 10));
+
+        // 13. Combined conditions as a query: compiled to one pass, cheapest selective checks first
+        EmployeeQuery report = EmployeeQuery.departmentIn("IT", "Finance")
+                .and(EmployeeQuery.salaryBetween(50000, 75000))
+                .and(EmployeeQuery.namePrefix("A").negate());
+        System.out.println("\n" + report + ": " + columnarService.filter(report));
+        System.out.println("Employees 1, 2 or 5 in IT: " + columnarService.count(
+                EmployeeQuery.idIn(1, 2, 5).and(EmployeeQuery.departmentIn("IT"))));
+
+        // 14. Query result cache: repeated queries are answered from memory until the next change
+        columnarService.enableQueryCache(100, 10_000_000);
+        columnarService.groupByDepartment();
+        columnarService.groupByDepartment();
+        columnarService.addEmployee(new Employee(7, "Grace", 65000, "Finance"));
+        System.out.println("\nAfter a change: " + columnarService.groupByDepartment().get("Finance"));
+        System.out.println(columnarService.getQueryCacheStats());
+
+        // 15. Department summary: count and average per department in one pass, no lists built
+        Aggregate count = Aggregate.count(), average = Aggregate.avg();
+        GroupedAggregates summary = columnarService.aggregateByDepartment(count, average);
+        for (String department : summary.departments()) {
+            System.out.println(department + ": " + summary.count(department) + " employees, average "
+                    + summary.get(department, average));
+        }
+
+        // 16. Salary percentiles from streaming sketches (no full sort; exact for small data)
+        System.out.println("\nMedian salary: " + columnarService.getSalaryQuantile(0.5)
+                + ", p90: " + columnarService.getSalaryQuantile(0.9)
+                + ", IT median: " + columnarService.getSalaryQuantile("IT", 0.5));
+
+        // 17. Change events: a subscriber gets inserts / updates / deletes in batches, on another thread
+        CountDownLatch received = new CountDownLatch(2);
+        columnarService.changes().subscribe(new Flow.Subscriber<List<EmployeeChange>>() {
+            public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+            public void onNext(List<EmployeeChange> batch) {
+                batch.forEach(change -> {
+                    System.out.println("Change: " + change);
+                    received.countDown();
+                });
+            }
+            public void onError(Throwable error) { System.out.println("Subscriber dropped: " + error); }
+            public void onComplete() { }
+        });
+        columnarService.updateEmployee(new Employee(7, "Grace", 70000, "Finance"));
+        columnarService.removeEmployee(4);
+        try {
+            received.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 18. Bulk change: a 5% raise for IT in one batch, rows changed in place
+        int raised = service.adjustSalaries(EmployeeQuery.departmentIn("IT"), salary -> salary * 1.05);
+        System.out.println("\nRaised " + raised + " salaries, IT now: " + service.getByDepartment("IT"));
+
+        // 19. Off-heap storage: records outside the GC heap, freed when the store is closed
+        try (OffHeapEmployeeStore offHeapStore = new OffHeapEmployeeStore(employees)) {
+            EmployeeService offHeap = EmployeeService.offHeap(offHeapStore);
+            System.out.println("\nOff-heap (" + offHeapStore.offHeapBytes() / 1024 + " KB of " + offHeapStore.memoryKind()
+                    + "), salary > 60000: "
+                    + offHeap.getEmployeesWithSalaryAbove(60000));
+        }
     }
 }
@@ -0,0 +1,341 @@
+package AdvancedJava;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/*
+ * Memory-mapped employee snapshot - query the file in place
+ * -----------------------------------------
+ * Key Points:
+ * - Rebuilding a List<Employee> on startup deserializes every object onto the heap.
+ * - A snapshot file is already laid out in columns; opening it only maps the file
+ *   (FileChannel.map) and reads a small header, so startup is nearly instant.
+ * - Salary and department scans read the values straight from the mapped memory;
+ *   the OS pages the file in and out, so the data does not count against the Java heap.
+ * - An Employee object is only built for the rows a query returns.
+ * - The store is read-only.
+ * - null names and departments are kept: a null name has the NULL_NAME bit set on its end
+ *   offset (and no bytes), a null department is stored in the table with length -1.
+ *   Version 1 files (written before nulls were allowed) read the same way.
+ *
+ * File layout (little-endian):
+ *   header          : magic "EMPS", version, rowCount, departmentCount, then the start offset
+ *                     of every section (long each)
+ *   ids             : int[rowCount]
+ *   salaries        : double[rowCount]   (8-byte aligned)
+ *   departmentCodes : int[rowCount]      (index into the department table)
+ *   nameData        : UTF-8 bytes of all names
+ *   departments     : for each department: int length (-1 = null) + UTF-8 bytes
+ *   nameOffsets     : int[rowCount + 1]  (name i = nameData[nameOffsets[i] .. nameOffsets[i + 1]),
+ *                                         null if nameOffsets[i + 1] has the NULL_NAME bit)
+ */
+public class MappedEmployeeStore implements EmployeeStore {
+    static final int MAGIC = 0x454D5053; // "EMPS"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 64;
+    // Set on the end offset of a null name; offsets themselves never exceed Integer.MAX_VALUE
+    private static final int NULL_NAME = 0x8000_0000;
+
+    private final int rowCount;
+    private final ByteBuffer ids;
+    private final ByteBuffer salaries;
+    private final ByteBuffer departmentCodes;
+    private final ByteBuffer nameOffsets;
+    private final ByteBuffer nameData;
+    private final String[] departments;
+    // File department code -> DepartmentDictionary code
+    private final int[] dictionaryCodes;
+
+    private MappedEmployeeStore(int rowCount, ByteBuffer ids, ByteBuffer salaries, ByteBuffer departmentCodes,
+                                ByteBuffer nameOffsets, ByteBuffer nameData, String[] departments) {
+        this.rowCount = rowCount;
+        this.ids = ids;
+        this.salaries = salaries;
+        this.departmentCodes = departmentCodes;
+        this.nameOffsets = nameOffsets;
+        this.nameData = nameData;
+        this.departments = departments;
+        dictionaryCodes = new int[departments.length];
+        for (int i = 0; i < departments.length; i++) {
+            dictionaryCodes[i] = DepartmentDictionary.code(departments[i]);
+        }
+    }
+
+    public static MappedEmployeeStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) throw new IOException("Not an employee snapshot: " + file);
+            int version = header.getInt(4);
+            if (version < 1 || version > VERSION) throw new IOException("Unsupported snapshot version " + version);
+            int rows = header.getInt(8);
+            int departmentCount = header.getInt(12);
+            long idsAt = header.getLong(16);
+            long salariesAt = header.getLong(24);
+            long departmentCodesAt = header.getLong(32);
+            long nameOffsetsAt = header.getLong(40);
+            long nameDataAt = header.getLong(48);
+            long departmentsAt = header.getLong(56);
+
+            // Each column is mapped on its own: one MappedByteBuffer can hold at most 2 GB
+            ByteBuffer ids = map(channel, idsAt, 4L * rows);
+            ByteBuffer salaries = map(channel, salariesAt, 8L * rows);
+            ByteBuffer departmentCodes = map(channel, departmentCodesAt, 4L * rows);
+            ByteBuffer nameOffsets = map(channel, nameOffsetsAt, 4L * (rows + 1));
+            ByteBuffer nameData = map(channel, nameDataAt, departmentsAt - nameDataAt);
+
+            // The department table is tiny, so it is decoded once
+            ByteBuffer table = map(channel, departmentsAt, nameOffsetsAt - departmentsAt);
+            String[] departments = new String[departmentCount];
+            for (int i = 0; i < departmentCount; i++) {
+                int length = table.getInt();
+                if (length < 0) continue; // null department
+                byte[] bytes = new byte[length];
+                table.get(bytes);
+                departments[i] = DepartmentDictionary.canonical(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return new MappedEmployeeStore(rows, ids, salaries, departmentCodes, nameOffsets, nameData, departments);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) throw new IOException("Snapshot section larger than 2 GB");
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public int rowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int liveCount() {
+        return rowCount;
+    }
+
+    @Override
+    public boolean isLive(int row) {
+        return true;
+    }
+
+    @Override
+    public int id(int row) {
+        return ids.getInt(row << 2);
+    }
+
+    @Override
+    public String name(int row) {
+        int from = nameOffsets.getInt(row << 2) & ~NULL_NAME;
+        int to = nameOffsets.getInt((row + 1) << 2);
+        if ((to & NULL_NAME) != 0) return null;
+        byte[] bytes = new byte[to - from];
+        nameData.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public double salary(int row) {
+        return salaries.getDouble(row << 3);
+    }
+
+    @Override
+    public String department(int row) {
+        return departments[departmentCodes.getInt(row << 2)];
+    }
+
+    @Override
+    public int departmentCode(int row) {
+        return dictionaryCodes[departmentCodes.getInt(row << 2)];
+    }
+
+    @Override
+    public int add(Employee employee) {
+        throw new UnsupportedOperationException("A snapshot store is read-only");
+    }
+
+    @Override
+    public void set(int row, Employee employee) {
+        throw new UnsupportedOperationException("A snapshot store is read-only");
+    }
+
+    @Override
+    public void remove(int row) {
+        throw new UnsupportedOperationException("A snapshot store is read-only");
+    }
+
+    @Override
+    public void compact() {
+        throw new UnsupportedOperationException("A snapshot store is read-only");
+    }
+
+    @Override
+    public int[] rowsWithSalaryAbove(double salary) {
+        IntList rows = new IntList();
+        for (int row = 0; row < rowCount; row++) {
+            if (salaries.getDouble(row << 3) > salary) rows.add(row);
+        }
+        return rows.toArray();
+    }
+
+    @Override
+    public int[] rowsInDepartment(String department) {
+        int code = Arrays.asList(departments).indexOf(department);
+        IntList rows = new IntList();
+        if (code < 0) return rows.toArray();
+        for (int row = 0; row < rowCount; row++) {
+            if (departmentCodes.getInt(row << 2) == code) rows.add(row);
+        }
+        return rows.toArray();
+    }
+
+    @Override
+    public Map<String, Integer> countByDepartment() {
+        int[] counts = new int[departments.length];
+        for (int row = 0; row < rowCount; row++) {
+            counts[departmentCodes.getInt(row << 2)]++;
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) result.put(departments[code], counts[code]);
+        }
+        return result;
+    }
+
+    // Writes the live rows of any store as a snapshot file
+    static void write(EmployeeStore store, Path file) throws IOException {
+        int rows = store.liveCount();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter out = new SectionWriter(channel, HEADER_SIZE);
+
+            long idsAt = out.position();
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (store.isLive(row)) out.putInt(store.id(row));
+            }
+            out.align(8);
+            long salariesAt = out.position();
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (store.isLive(row)) out.putDouble(store.salary(row));
+            }
+
+            StringDictionary departmentDictionary = new StringDictionary();
+            long departmentCodesAt = out.position();
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (store.isLive(row)) out.putInt(departmentDictionary.encode(store.department(row)));
+            }
+
+            // Name bytes first (their offsets are only known while writing them)
+            long nameDataAt = out.position();
+            int[] offsets = new int[rows + 1];
+            int i = 0;
+            long nameBytes = 0;
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (!store.isLive(row)) continue;
+                String name = store.name(row);
+                if (name == null) {
+                    offsets[++i] = (int) nameBytes | NULL_NAME;
+                    continue;
+                }
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.put(bytes);
+                nameBytes += bytes.length;
+                if (nameBytes > Integer.MAX_VALUE) throw new IOException("Names take more than 2 GB");
+                offsets[++i] = (int) nameBytes;
+            }
+            long departmentsAt = out.position();
+            for (int code = 0; code < departmentDictionary.size(); code++) {
+                String department = departmentDictionary.decode(code);
+                if (department == null) {
+                    out.putInt(-1);
+                    continue;
+                }
+                byte[] bytes = department.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+            out.align(4);
+            long nameOffsetsAt = out.position();
+            for (int offset : offsets) {
+                out.putInt(offset);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(departmentDictionary.size());
+            header.putLong(idsAt).putLong(salariesAt).putLong(departmentCodesAt).putLong(nameOffsetsAt)
+                    .putLong(nameDataAt).putLong(departmentsAt);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    // Sequential little-endian writer with a reused 1 MB buffer
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        SectionWriter(FileChannel channel, long start) {
+            this.channel = channel;
+            this.position = start;
+        }
+
+        long position() {
+            return position + buffer.position();
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                writeFully(ByteBuffer.wrap(bytes));
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void align(int alignment) throws IOException {
+            while (position() % alignment != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buffer.remaining() < n) flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        // A positional write may write fewer bytes than asked; keep going until all are out
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Name index - prefix and substring search on employee names
+ * -----------------------------------------
+ * Key Points:
+ * - filter(emp -> emp.getName().startsWith(...)) checks every employee on every keystroke.
+ * - The index works on the distinct names (far fewer than employees); each distinct name
+ *   has an id and a sorted IntList of its rows.
+ * - Prefix search: the distinct names are kept in sorted arrays (String[] plus the int[] of
+ *   their ids), so all names starting with a prefix are one contiguous range - found with one
+ *   binary search, then read in order. Two arrays per name set, no entry object or boxed id
+ *   per name (a TreeMap<String, Integer> costs ~70 bytes more per name).
+ * - Inserting into one big sorted array would shift half of it for every new name. New names
+ *   go into a small second sorted run instead; once it holds more than about sqrt(names)
+ *   entries both runs are merged in one pass. Searches walk the two runs side by side.
+ * - Substring search: every name is cut into trigrams (all runs of 3 characters,
+ *   "alice" -> "ali", "lic", "ice"). For each trigram the index keeps the ids of the names that
+ *   contain it, in an open-addressing map keyed by the primitive long (3 chars packed) - no
+ *   Long per lookup. A query intersects the lists of its own trigrams (smallest list first) and
+ *   only checks the few names left with String.contains(). Of those, only the first 'limit'
+ *   names in name order are kept (a bounded heap), so only they are sorted.
+ *   Queries shorter than 3 characters have no trigram: they walk the sorted names and stop as
+ *   soon as 'limit' rows are found.
+ * - A name is dropped (with its trigram entries) when its last row goes. Its run entry stays,
+ *   marked by the empty id slot, until the next merge frees the id for reuse; the same name
+ *   coming back before that takes the slot again.
+ * - Case-insensitive mode stores and searches lower-cased names (Locale.ROOT).
+ * - Results come in name order (then row order), so a typeahead can stop after 'limit' matches.
+ */
+final class NameIndex {
+    private static final int MIN_RECENT = 64;
+
+    private final boolean ignoreCase;
+
+    // Id -> (normalized) name and its rows; both null once the name is dropped
+    private String[] names = new String[16];
+    private IntList[] rowsByName = new IntList[16];
+    private int idCount;
+    private int liveNames;
+    // Ids that no run refers to any more
+    private final IntList freeIds = new IntList();
+
+    // The sorted runs; 'dropped' counts their entries whose name was dropped
+    private Run main = new Run(16);
+    private Run recent = new Run(MIN_RECENT);
+    private int dropped;
+
+    private final TrigramMap trigrams;
+
+    NameIndex(EmployeeStore store, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.trigrams = new TrigramMap();
+
+        // Bulk build: sort all (name, row) pairs once, then every distinct name is one entry
+        String[] keys = new String[store.liveCount()];
+        int[] rows = new int[keys.length];
+        int n = 0;
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (!store.isLive(row)) continue;
+            String name = store.name(row);
+            if (name == null) continue;
+            keys[n] = normalize(name);
+            rows[n++] = row;
+        }
+        PrimitiveSort.sortByName(keys, rows, n);
+        main = new Run(n);
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || !keys[i].equals(keys[i - 1])) {
+                int id = newId(keys[i]);
+                main.insert(main.size, keys[i], id);
+                addTrigrams(keys[i], id);
+            }
+            rowsByName[main.ids[main.size - 1]].add(rows[i]); // rows stay ascending (stable sort)
+        }
+    }
+
+    private NameIndex(NameIndex source) {
+        ignoreCase = source.ignoreCase;
+        names = Arrays.copyOf(source.names, source.names.length);
+        rowsByName = new IntList[source.rowsByName.length];
+        for (int id = 0; id < source.idCount; id++) {
+            if (source.rowsByName[id] != null) rowsByName[id] = source.rowsByName[id].copy();
+        }
+        idCount = source.idCount;
+        liveNames = source.liveNames;
+        for (int i = 0; i < source.freeIds.size(); i++) {
+            freeIds.add(source.freeIds.get(i));
+        }
+        main = source.main.copy();
+        recent = source.recent.copy();
+        dropped = source.dropped;
+        trigrams = source.trigrams.copy();
+    }
+
+    NameIndex copy() {
+        return new NameIndex(this);
+    }
+
+    private String normalize(String name) {
+        return normalize(name, ignoreCase);
+    }
+
+    static String normalize(String name, boolean ignoreCase) {
+        return ignoreCase ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    void insert(int row, String name) {
+        if (name == null) return;
+        String key = normalize(name);
+        int id = idOf(key);
+        if (id < 0) {
+            id = newId(key);
+            recent.insert(-recent.find(key) - 1, key, id);
+            addTrigrams(key, id);
+            if (recent.size > Math.max(MIN_RECENT, (int) Math.sqrt(main.size))) merge();
+        } else if (names[id] == null) {
+            // Dropped, but its entry is still in a run: take the slot again
+            names[id] = key;
+            rowsByName[id] = new IntList(1);
+            liveNames++;
+            dropped--;
+            addTrigrams(key, id);
+        }
+        rowsByName[id].addSorted(row);
+    }
+
+    void remove(int row, String name) {
+        if (name == null) return;
+        String key = normalize(name);
+        int id = idOf(key);
+        if (id < 0 || names[id] == null) return;
+        IntList rows = rowsByName[id];
+        rows.removeSorted(row);
+        if (rows.size() > 0) return;
+
+        // Last row gone: drop the name so searches never visit it again
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            long trigram = trigram(key, i);
+            IntList nameIds = trigrams.get(trigram);
+            if (nameIds != null && nameIds.removeSorted(id) && nameIds.size() == 0) trigrams.remove(trigram);
+        }
+        names[id] = null;
+        rowsByName[id] = null;
+        liveNames--;
+        dropped++;
+        if (dropped > MIN_RECENT && dropped * 2 > main.size + recent.size) merge();
+    }
+
+    // Number of distinct names that still have rows
+    int nameCount() {
+        return liveNames;
+    }
+
+    // Rows of the names starting with the prefix (name order), at most limit rows
+    int[] rowsWithPrefix(String prefix, int limit) {
+        String key = normalize(prefix);
+        IntList result = new IntList();
+        if (limit == 0) return result.toArray();
+        walk(main.lowerBound(key), recent.lowerBound(key), key, "", result, limit);
+        return result.toArray();
+    }
+
+    // Rows of the names containing the text (name order), at most limit rows
+    int[] rowsContaining(String text, int limit) {
+        String key = normalize(text);
+        IntList result = new IntList();
+        if (limit == 0) return result.toArray();
+        if (key.length() < 3) {
+            // No trigram to narrow the search: names come in order, so stop at the limit
+            walk(0, 0, null, key, result, limit);
+            return result.toArray();
+        }
+
+        // Every name has at least one row, so the first 'limit' matching names are enough.
+        // The heap keeps them with the largest on top, to be replaced by any smaller match.
+        PriorityQueue<String> first = new PriorityQueue<>(Comparator.reverseOrder());
+        for (int id : candidateNameIds(key)) {
+            String name = names[id];
+            if (!name.contains(key)) continue;
+            if (first.size() < limit) {
+                first.add(name);
+            } else if (name.compareTo(first.peek()) < 0) {
+                first.poll();
+                first.add(name);
+            }
+        }
+        String[] matches = first.toArray(new String[0]);
+        Arrays.sort(matches);
+        for (String name : matches) {
+            if (!addRows(result, idOf(name), limit)) break;
+        }
+        return result.toArray();
+    }
+
+    /*
+     * Walks both runs in name order from the given positions, adding the rows of every live
+     * name that contains 'text'. Stops at the first name without the prefix (null = no prefix)
+     * or when the limit is reached.
+     */
+    private void walk(int i, int j, String prefix, String text, IntList result, int limit) {
+        while (i < main.size || j < recent.size) {
+            boolean fromMain = j == recent.size || (i < main.size && main.keys[i].compareTo(recent.keys[j]) < 0);
+            String name = fromMain ? main.keys[i] : recent.keys[j];
+            int id = fromMain ? main.ids[i++] : recent.ids[j++];
+            if (prefix != null && !name.startsWith(prefix)) return;
+            if (names[id] == null || !name.contains(text)) continue;
+            if (!addRows(result, id, limit)) return;
+        }
+    }
+
+    // Id of the run entry for the name (live or dropped), -1 if there is none
+    private int idOf(String key) {
+        int i = main.find(key);
+        if (i >= 0) return main.ids[i];
+        i = recent.find(key);
+        return i >= 0 ? recent.ids[i] : -1;
+    }
+
+    private int newId(String key) {
+        int id;
+        if (freeIds.size() > 0) {
+            id = freeIds.removeLast();
+        } else {
+            id = idCount++;
+            if (id == names.length) {
+                names = Arrays.copyOf(names, id * 2);
+                rowsByName = Arrays.copyOf(rowsByName, id * 2);
+            }
+        }
+        names[id] = key;
+        rowsByName[id] = new IntList(1);
+        liveNames++;
+        return id;
+    }
+
+    private void addTrigrams(String key, int id) {
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            // A new id is usually the largest so far, so this appends (and a trigram that
+            // appears twice in one name is only added once)
+            trigrams.getOrCreate(trigram(key, i)).addSorted(id);
+        }
+    }
+
+    // One pass over both runs: the result is the new main run, without the dropped names
+    private void merge() {
+        Run merged = new Run(Math.max(liveNames, 16));
+        int i = 0, j = 0;
+        while (i < main.size || j < recent.size) {
+            boolean fromMain = j == recent.size || (i < main.size && main.keys[i].compareTo(recent.keys[j]) < 0);
+            String name = fromMain ? main.keys[i] : recent.keys[j];
+            int id = fromMain ? main.ids[i++] : recent.ids[j++];
+            if (names[id] == null) {
+                freeIds.add(id);
+            } else {
+                merged.insert(merged.size, name, id);
+            }
+        }
+        main = merged;
+        recent = new Run(MIN_RECENT);
+        dropped = 0;
+    }
+
+    // Names that contain every trigram of the key (a superset of the real matches)
+    private int[] candidateNameIds(String key) {
+        int count = key.length() - 2;
+        IntList[] lists = new IntList[count];
+        for (int i = 0; i < count; i++) {
+            lists[i] = trigrams.get(trigram(key, i));
+            if (lists[i] == null) return new int[0]; // some trigram occurs in no name at all
+        }
+        Arrays.sort(lists, Comparator.comparingInt(IntList::size));
+
+        int[] result = lists[0].toArray();
+        int size = result.length;
+        for (int l = 1; l < count && size > 0; l++) {
+            size = intersect(result, size, lists[l]);
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Keeps the first 'size' values of ids that also occur in list (both ascending); returns the new size
+    private static int intersect(int[] ids, int size, IntList list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            int id = ids[i];
+            while (j < list.size() && list.get(j) < id) j++;
+            if (j == list.size()) break;
+            if (list.get(j) == id) ids[kept++] = id;
+        }
+        return kept;
+    }
+
+    // false once the limit is reached
+    private boolean addRows(IntList result, int nameId, int limit) {
+        IntList rows = rowsByName[nameId];
+        for (int i = 0; i < rows.size(); i++) {
+            if (result.size() == limit) return false;
+            result.add(rows.get(i));
+        }
+        return result.size() < limit;
+    }
+
+    private static long trigram(String key, int i) {
+        return ((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2);
+    }
+
+    // Names in String.compareTo order, each with its id
+    private static final class Run {
+        String[] keys;
+        int[] ids;
+        int size;
+
+        Run(int capacity) {
+            keys = new String[Math.max(capacity, 1)];
+            ids = new int[keys.length];
+        }
+
+        Run copy() {
+            Run copy = new Run(0);
+            copy.keys = Arrays.copyOf(keys, keys.length);
+            copy.ids = Arrays.copyOf(ids, ids.length);
+            copy.size = size;
+            return copy;
+        }
+
+        // Like Arrays.binarySearch: the index, or -(insertion point) - 1
+        int find(String key) {
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        // First index whose name is >= key
+        int lowerBound(String key) {
+            int i = find(key);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        void insert(int at, String key, int id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(keys, at, keys, at + 1, size - at);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            keys[at] = key;
+            ids[at] = id;
+            size++;
+        }
+    }
+
+    /*
+     * Trigram -> name ids, open addressing with linear probing on a long[] of keys.
+     * Trigrams are at most 48 bits, so -1 marks an empty slot. remove() shifts the following
+     * entries back instead of leaving a tombstone.
+     */
+    private static final class TrigramMap {
+        private static final long EMPTY = -1;
+
+        private long[] keys;
+        private IntList[] values;
+        private int size;
+
+        TrigramMap() {
+            this(64);
+        }
+
+        private TrigramMap(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new IntList[capacity];
+        }
+
+        TrigramMap copy() {
+            TrigramMap copy = new TrigramMap(0);
+            copy.keys = Arrays.copyOf(keys, keys.length);
+            copy.values = new IntList[values.length];
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] != null) copy.values[slot] = values[slot].copy();
+            }
+            copy.size = size;
+            return copy;
+        }
+
+        private int home(long trigram) {
+            long h = trigram * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+        }
+
+        IntList get(long trigram) {
+            int mask = keys.length - 1;
+            for (int slot = home(trigram); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == trigram) return values[slot];
+                if (keys[slot] == EMPTY) return null;
+            }
+        }
+
+        IntList getOrCreate(long trigram) {
+            int mask = keys.length - 1;
+            int slot = home(trigram);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == trigram) return values[slot];
+                slot = (slot + 1) & mask;
+            }
+            IntList list = new IntList(4);
+            keys[slot] = trigram;
+            values[slot] = list;
+            if (++size * 2 > keys.length) grow();
+            return list;
+        }
+
+        void remove(long trigram) {
+            int mask = keys.length - 1;
+            int hole = home(trigram);
+            while (keys[hole] != trigram) {
+                if (keys[hole] == EMPTY) return;
+                hole = (hole + 1) & mask;
+            }
+            // Move back every following entry that may sit in the hole (its home is not
+            // between the hole and its slot), so lookups never meet a gap before it
+            for (int slot = (hole + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (((slot - home(keys[slot])) & mask) >= ((slot - hole) & mask)) {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    hole = slot;
+                }
+            }
+            keys[hole] = EMPTY;
+            values[hole] = null;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            IntList[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            values = new IntList[keys.length];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int slot = home(oldKeys[i]);
+                while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package AdvancedJava;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Off-heap arena - memory outside the Java heap with an explicit lifetime
+ * -----------------------------------------
+ * Key Points:
+ * - allocate() returns a direct ByteBuffer: the bytes live outside the heap, the GC never
+ *   copies or scans them. Only the small buffer object is on the heap.
+ * - close() frees every buffer of the arena at once, right away - not whenever the GC
+ *   happens to collect the buffer objects. Afterwards the arena refuses to hand out memory.
+ * - create() picks the implementation:
+ *   1. ForeignOffHeapArena (folder src-foreign): the buffers are views of MemorySegments of one
+ *      shared ResourceScope (Foreign Memory API, incubator module jdk.incubator.foreign in
+ *      JDK 17). Every access checks that the scope is still alive, and closing it while another
+ *      thread is in the middle of an access is detected: a read racing close() fails with an
+ *      IllegalStateException instead of touching freed memory.
+ *   2. Otherwise (module missing, other JDK) plain direct buffers, freed through the JDK's own
+ *      cleaner (sun.misc.Unsafe.invokeCleaner, module jdk.unsupported). Nothing protects
+ *      these: like closing a file, close() only when no thread still reads the buffers.
+ * - Like SalaryKernels, the foreign version is only loaded by name; the JVM needs
+ *   --add-modules jdk.incubator.foreign. -Demployees.offheap=buffers forces the fallback.
+ * - Direct memory is limited by -XX:MaxDirectMemorySize (default: the maximum heap size).
+ */
+abstract class OffHeapArena implements AutoCloseable {
+    private static final Constructor<? extends OffHeapArena> FOREIGN = foreign();
+
+    private long allocatedBytes;
+    private boolean closed;
+
+    // The safest implementation this JVM can run
+    static OffHeapArena create() {
+        if (FOREIGN != null) {
+            try {
+                return FOREIGN.newInstance();
+            } catch (ReflectiveOperationException e) {
+                // Fall through to the direct buffers
+            }
+        }
+        return new DirectBuffers();
+    }
+
+    static OffHeapArena directBuffers() {
+        return new DirectBuffers();
+    }
+
+    static boolean foreignAvailable() {
+        return FOREIGN != null;
+    }
+
+    private static Constructor<? extends OffHeapArena> foreign() {
+        if ("buffers".equals(System.getProperty("employees.offheap"))) return null;
+        try {
+            Class<? extends OffHeapArena> foreign =
+                    Class.forName("AdvancedJava.ForeignOffHeapArena").asSubclass(OffHeapArena.class);
+            Constructor<? extends OffHeapArena> constructor = foreign.getDeclaredConstructor();
+            constructor.newInstance().close(); // fails here if the module is missing
+            return constructor;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Zero-filled, native byte order
+    final ByteBuffer allocate(int bytes) {
+        checkOpen();
+        ByteBuffer buffer = newBuffer(bytes).order(ByteOrder.nativeOrder());
+        allocatedBytes += bytes;
+        return buffer;
+    }
+
+    abstract ByteBuffer newBuffer(int bytes);
+
+    // Frees everything allocated so far
+    abstract void free();
+
+    abstract String name();
+
+    final long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    final void checkOpen() {
+        if (closed) throw new IllegalStateException("Off-heap memory was already freed (closed)");
+    }
+
+    @Override
+    public final void close() {
+        if (closed) return;
+        free(); // may throw while another thread still uses the memory: close() can be repeated
+        closed = true;
+        allocatedBytes = 0;
+    }
+
+    // The fallback: direct buffers, freed through the cleaner
+    private static final class DirectBuffers extends OffHeapArena {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Not available: close() leaves the freeing to the GC
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+
+        @Override
+        ByteBuffer newBuffer(int bytes) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes);
+            buffers.add(buffer);
+            return buffer;
+        }
+
+        @Override
+        void free() {
+            for (ByteBuffer buffer : buffers) {
+                free(buffer);
+            }
+            buffers.clear();
+        }
+
+        @Override
+        String name() {
+            return "direct buffers";
+        }
+
+        private static void free(ByteBuffer buffer) {
+            if (INVOKE_CLEANER == null) return;
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException e) {
+                // Left to the GC
+            }
+        }
+    }
+}
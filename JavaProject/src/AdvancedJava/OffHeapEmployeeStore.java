@@ -0,0 +1,341 @@
+package AdvancedJava;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * Off-heap storage - employee records outside the Java heap
+ * -----------------------------------------
+ * Key Points:
+ * - Every object on the heap is work for the GC: with 100M employees a full collection
+ *   has to walk 100M objects (and their Strings), which means pauses of seconds.
+ * - Here every employee is a fixed-size record of 32 bytes in direct memory (OffHeapArena).
+ *   The heap only holds one buffer object per 65,536 rows, so heap use stays flat however
+ *   many employees are stored.
+ * - Names are UTF-8 bytes in an off-heap string area; the record keeps their position and
+ *   length. Departments are stored as their DepartmentDictionary code.
+ * - Rows are never moved by add / set / remove (removed rows get a flag in the record);
+ *   compact() drops them and rewrites the string area without the unused names.
+ * - Explicit lifetime: close() (try-with-resources) frees all off-heap memory at once.
+ *   Using the store afterwards throws IllegalStateException.
+ * - With the Foreign Memory API (see OffHeapArena) a query racing close() or compact() fails
+ *   with an exception instead of reading freed memory. The store is still not thread-safe:
+ *   that is only a safety net, not a way to share it.
+ * - Employee objects are only built for the rows a query returns.
+ *
+ * Record layout (native byte order):
+ *   0  id             int
+ *   4  departmentCode int
+ *   8  salary         double
+ *   16 name position  long   (in the string area)
+ *   24 name length    int    (-1 for a null name)
+ *   28 flags          int    (REMOVED)
+ */
+public class OffHeapEmployeeStore implements EmployeeStore, AutoCloseable {
+    static final int RECORD_SIZE = 32;
+    private static final int ID = 0;
+    private static final int DEPARTMENT = 4;
+    private static final int SALARY = 8;
+    private static final int NAME_POSITION = 16;
+    private static final int NAME_LENGTH = 24;
+    private static final int FLAGS = 28;
+    private static final int REMOVED = 1;
+
+    // Records are allocated in chunks of 65,536 rows (2 MB), never moved or resized
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+
+    private final OffHeapArena arena = OffHeapArena.create();
+    private ByteBuffer[] chunks = new ByteBuffer[16];
+    private int chunkCount;
+    private StringArea names = new StringArea();
+    private int size;
+    private int removedCount;
+
+    public OffHeapEmployeeStore(List<Employee> employees) {
+        for (Employee employee : employees) {
+            add(employee);
+        }
+    }
+
+    // Bytes of off-heap memory in use (records and names)
+    public long offHeapBytes() {
+        return arena.allocatedBytes() + names.arena.allocatedBytes();
+    }
+
+    // Which memory the arenas use ("foreign memory segments" or "direct buffers")
+    public String memoryKind() {
+        return arena.name();
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+        names.arena.close();
+        chunks = new ByteBuffer[0];
+        chunkCount = 0;
+        size = 0;
+        removedCount = 0;
+    }
+
+    private ByteBuffer chunk(int row) {
+        arena.checkOpen();
+        return chunks[row >>> CHUNK_SHIFT];
+    }
+
+    // Byte offset of the row's record within its chunk
+    private static int at(int row) {
+        return (row & (CHUNK_ROWS - 1)) * RECORD_SIZE;
+    }
+
+    @Override
+    public int rowCount() {
+        arena.checkOpen();
+        return size;
+    }
+
+    @Override
+    public int liveCount() {
+        arena.checkOpen();
+        return size - removedCount;
+    }
+
+    @Override
+    public boolean isLive(int row) {
+        return removedCount == 0 || (chunk(row).getInt(at(row) + FLAGS) & REMOVED) == 0;
+    }
+
+    @Override
+    public int id(int row) {
+        return chunk(row).getInt(at(row) + ID);
+    }
+
+    @Override
+    public String name(int row) {
+        ByteBuffer chunk = chunk(row);
+        int at = at(row);
+        return names.read(chunk.getLong(at + NAME_POSITION), chunk.getInt(at + NAME_LENGTH));
+    }
+
+    @Override
+    public double salary(int row) {
+        return chunk(row).getDouble(at(row) + SALARY);
+    }
+
+    @Override
+    public String department(int row) {
+        return DepartmentDictionary.department(departmentCode(row));
+    }
+
+    @Override
+    public int departmentCode(int row) {
+        return chunk(row).getInt(at(row) + DEPARTMENT);
+    }
+
+    // Reads the record once instead of once per field
+    @Override
+    public Employee get(int row) {
+        ByteBuffer chunk = chunk(row);
+        int at = at(row);
+        String name = names.read(chunk.getLong(at + NAME_POSITION), chunk.getInt(at + NAME_LENGTH));
+        return new Employee(chunk.getInt(at + ID), name, chunk.getDouble(at + SALARY), chunk.getInt(at + DEPARTMENT));
+    }
+
+    @Override
+    public int add(Employee employee) {
+        arena.checkOpen();
+        if (size == chunkCount * CHUNK_ROWS) {
+            if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            chunks[chunkCount++] = arena.allocate(CHUNK_ROWS * RECORD_SIZE);
+        }
+        int row = size++;
+        ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+        int at = at(row);
+        chunk.putInt(at + FLAGS, 0);
+        writeFields(chunk, at, employee);
+        putName(chunk, at, employee.getName());
+        return row;
+    }
+
+    @Override
+    public void set(int row, Employee employee) {
+        ByteBuffer chunk = chunk(row);
+        int at = at(row);
+        writeFields(chunk, at, employee);
+        // An unchanged name keeps its bytes; a new one is appended (the old bytes stay until compact())
+        if (!Objects.equals(name(row), employee.getName())) putName(chunk, at, employee.getName());
+    }
+
+    private static void writeFields(ByteBuffer chunk, int at, Employee employee) {
+        chunk.putInt(at + ID, employee.getId());
+        chunk.putInt(at + DEPARTMENT, employee.getDepartmentCode());
+        chunk.putDouble(at + SALARY, employee.getSalary());
+    }
+
+    private void putName(ByteBuffer chunk, int at, String name) {
+        if (name == null) {
+            chunk.putLong(at + NAME_POSITION, 0);
+            chunk.putInt(at + NAME_LENGTH, -1);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        chunk.putLong(at + NAME_POSITION, names.append(bytes));
+        chunk.putInt(at + NAME_LENGTH, bytes.length);
+    }
+
+    @Override
+    public void setSalary(int row, double salary) {
+        chunk(row).putDouble(at(row) + SALARY, salary);
+    }
+
+    @Override
+    public void remove(int row) {
+        ByteBuffer chunk = chunk(row);
+        chunk.putInt(at(row) + FLAGS, chunk.getInt(at(row) + FLAGS) | REMOVED);
+        removedCount++;
+    }
+
+    // Moves the live records down and copies their names into a new string area
+    @Override
+    public void compact() {
+        arena.checkOpen();
+        StringArea compacted = new StringArea();
+        int target = 0;
+        for (int row = 0; row < size; row++) {
+            ByteBuffer from = chunks[row >>> CHUNK_SHIFT];
+            int at = at(row);
+            if ((from.getInt(at + FLAGS) & REMOVED) != 0) continue;
+            ByteBuffer to = chunks[target >>> CHUNK_SHIFT];
+            int targetAt = at(target);
+            if (target != row) {
+                for (int field = 0; field < RECORD_SIZE; field += 8) {
+                    to.putLong(targetAt + field, from.getLong(at + field));
+                }
+            }
+            int length = to.getInt(targetAt + NAME_LENGTH);
+            if (length >= 0) {
+                to.putLong(targetAt + NAME_POSITION, compacted.append(names.bytes(to.getLong(targetAt + NAME_POSITION), length)));
+            }
+            target++;
+        }
+        names.arena.close();
+        names = compacted;
+        size = target;
+        removedCount = 0;
+    }
+
+    // The kernels walk the records chunk by chunk: no chunk lookup per row
+    @Override
+    public int[] rowsWithSalaryAbove(double salary) {
+        IntList rows = new IntList();
+        for (int first = 0; first < rowCount(); first += CHUNK_ROWS) {
+            ByteBuffer chunk = chunks[first >>> CHUNK_SHIFT];
+            int end = Math.min(CHUNK_ROWS, size - first) * RECORD_SIZE;
+            for (int at = 0; at < end; at += RECORD_SIZE) {
+                if (chunk.getDouble(at + SALARY) > salary && (chunk.getInt(at + FLAGS) & REMOVED) == 0) {
+                    rows.add(first + at / RECORD_SIZE);
+                }
+            }
+        }
+        return rows.toArray();
+    }
+
+    @Override
+    public double salarySum() {
+        return salaryStats().getSum();
+    }
+
+    @Override
+    public SalaryStats salaryStats() {
+        double sum = 0, compensation = 0;
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int first = 0; first < rowCount(); first += CHUNK_ROWS) {
+            ByteBuffer chunk = chunks[first >>> CHUNK_SHIFT];
+            int end = Math.min(CHUNK_ROWS, size - first) * RECORD_SIZE;
+            for (int at = 0; at < end; at += RECORD_SIZE) {
+                if ((chunk.getInt(at + FLAGS) & REMOVED) != 0) continue;
+                double salary = chunk.getDouble(at + SALARY);
+                double y = salary - compensation;
+                double t = sum + y;
+                compensation = (t - sum) - y;
+                sum = t;
+                min = Math.min(min, salary);
+                max = Math.max(max, salary);
+            }
+        }
+        return new SalaryStats(liveCount(), sum, min, max);
+    }
+
+    @Override
+    public int[] rowsInDepartment(String department) {
+        int code = DepartmentDictionary.lookup(department);
+        IntList rows = new IntList();
+        if (code < 0) return rows.toArray();
+        for (int first = 0; first < rowCount(); first += CHUNK_ROWS) {
+            ByteBuffer chunk = chunks[first >>> CHUNK_SHIFT];
+            int end = Math.min(CHUNK_ROWS, size - first) * RECORD_SIZE;
+            for (int at = 0; at < end; at += RECORD_SIZE) {
+                if (chunk.getInt(at + DEPARTMENT) == code && (chunk.getInt(at + FLAGS) & REMOVED) == 0) {
+                    rows.add(first + at / RECORD_SIZE);
+                }
+            }
+        }
+        return rows.toArray();
+    }
+
+    @Override
+    public Map<String, Integer> countByDepartment() {
+        int[] counts = new int[DepartmentDictionary.size()];
+        for (int first = 0; first < rowCount(); first += CHUNK_ROWS) {
+            ByteBuffer chunk = chunks[first >>> CHUNK_SHIFT];
+            int end = Math.min(CHUNK_ROWS, size - first) * RECORD_SIZE;
+            for (int at = 0; at < end; at += RECORD_SIZE) {
+                if ((chunk.getInt(at + FLAGS) & REMOVED) == 0) counts[chunk.getInt(at + DEPARTMENT)]++;
+            }
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) result.put(DepartmentDictionary.department(code), counts[code]);
+        }
+        return result;
+    }
+
+    /*
+     * String area - UTF-8 bytes appended to off-heap chunks of 4 MB
+     * - A position is chunk index * 4 MB + offset; a string never spans two chunks.
+     * - Strings are never overwritten; compact() copies the ones still used into a new area.
+     */
+    private static final class StringArea {
+        private static final int CHUNK_SHIFT = 22;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+        final OffHeapArena arena = OffHeapArena.create();
+        private ByteBuffer[] chunks = new ByteBuffer[4];
+        private int chunkCount;
+        private int position; // free offset in the last chunk
+
+        long append(byte[] bytes) {
+            if (bytes.length > CHUNK_SIZE) throw new IllegalArgumentException("Name longer than 4 MB");
+            if (chunkCount == 0 || position + bytes.length > CHUNK_SIZE) {
+                if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+                chunks[chunkCount++] = arena.allocate(CHUNK_SIZE);
+                position = 0;
+            }
+            chunks[chunkCount - 1].put(position, bytes);
+            long at = ((long) (chunkCount - 1) << CHUNK_SHIFT) + position;
+            position += bytes.length;
+            return at;
+        }
+
+        byte[] bytes(long at, int length) {
+            byte[] bytes = new byte[length];
+            chunks[(int) (at >>> CHUNK_SHIFT)].get((int) (at & (CHUNK_SIZE - 1)), bytes);
+            return bytes;
+        }
+
+        String read(long at, int length) {
+            return length < 0 ? null : new String(bytes(at, length), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package AdvancedJava;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Per-thread counter (ScalableCounter.Mode.PER_THREAD)
+ * - Each thread owns one cell, found through a ThreadLocal. Only the owner writes it, so an
+ *   increment is a read plus a release-store: no CAS, no retry, no shared cache line.
+ * - Readers walk the array of all cells. New cells are added under a lock (copy-on-write),
+ *   which happens once per thread.
+ * - Readers never write a cell (that would race with the owner's plain add). sumThenReset()
+ *   instead remembers per cell how much was already reported and returns the difference.
+ *   That bookkeeping lives in a separate array, not in the cell: the JVM is free to order the
+ *   fields of one class, and a field written by readers must not land next to 'value'.
+ */
+final class PerThreadCounter implements ScalableCounter {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ThreadLocal<Cell> local = ThreadLocal.withInitial(this::register);
+    private final Lock lock = new ReentrantLock();
+    private volatile Cell[] cells = new Cell[0];
+
+    // reported[i]: part of cells[i] already returned by sumThenReset() (only used under the lock)
+    private long[] reported = new long[0];
+
+    // Sum of everything returned by sumThenReset() so far
+    private volatile long reportedTotal;
+
+    @Override
+    public void add(long delta) {
+        Cell cell = local.get();
+        VALUE.setRelease(cell, (long) VALUE.getAcquire(cell) + delta);
+    }
+
+    private Cell register() {
+        Cell cell = new Cell();
+        lock.lock();
+        try {
+            Cell[] grown = Arrays.copyOf(cells, cells.length + 1);
+            grown[grown.length - 1] = cell;
+            reported = Arrays.copyOf(reported, grown.length);
+            cells = grown;
+        } finally {
+            lock.unlock();
+        }
+        return cell;
+    }
+
+    @Override
+    public long sum() {
+        // Read before the cells: with increments only the cells never shrink, so this never goes negative
+        long reported = reportedTotal;
+        long sum = 0;
+        for (Cell cell : cells) {
+            sum += (long) VALUE.getAcquire(cell);
+        }
+        return sum - reported;
+    }
+
+    // Serialized by the lock, so two concurrent calls never report the same increments
+    @Override
+    public long sumThenReset() {
+        lock.lock();
+        try {
+            Cell[] cells = this.cells;
+            long sum = 0;
+            for (int i = 0; i < cells.length; i++) {
+                long value = (long) VALUE.getAcquire(cells[i]);
+                sum += value - reported[i];
+                reported[i] = value;
+            }
+            reportedTotal += sum;
+            return sum;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes the lock (to read 'reported'); writers are not blocked
+    @Override
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            Cell[] cells = this.cells;
+            long[] values = new long[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                values[i] = (long) VALUE.getAcquire(cells[i]) - reported[i];
+            }
+            return new Snapshot(values);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Padding on both sides keeps 'value' on a cache line of its own (fields of a superclass
+    // are laid out before those of a subclass)
+    static class LeftPad {
+        long p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+    }
+
+    static class Value extends LeftPad {
+        long value;
+    }
+
+    static final class Cell extends Value {
+        long p17, p18, p19, p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p30, p31;
+    }
+}
@@ -0,0 +1,35 @@
+package AdvancedJava;
+
+import java.io.Serializable;
+
+// Serializable class
+// Implements Serializable interface to allow object serialization.
+class Person implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private int age;
+
+    // The 'transient' keyword prevents this field from being serialized.
+    private transient String sensitiveData = "This will not be serialized";
+
+    public Person(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+    // Used by BinaryCodec: like Java deserialization, a restored Person has no transient data
+    static Person restore(String name, int age) {
+        Person person = new Person(name, age);
+        person.sensitiveData = null;
+        return person;
+    }
+
+    String getName() { return name; }
+    int getAge() { return age; }
+    String getSensitiveData() { return sensitiveData; }
+
+    @Override
+    public String toString() {
+        return "Person{name='" + name + "', age=" + age + "}";
+    }
+}
@@ -0,0 +1,221 @@
+package AdvancedJava;
+
+/*
+ * Sorting row numbers by a double key without boxing
+ * -----------------------------------------
+ * - Comparator-based sorting needs Integer objects; here the rows stay in an int[].
+ * - keys[row] holds the sort key of each row.
+ * - Merge sort is stable, so rows with equal keys keep their original order.
+ * - sortByKey() sorts (key, row) pairs instead: the keys move along with the rows, so every
+ *   pass reads both arrays front to back. Looking up keys[row] for rows in salary order jumps
+ *   all over the key array, which is several times slower once the keys do not fit in cache.
+ * - sortByName() does the same for (name, row) pairs, e.g. name search results without an index.
+ */
+final class PrimitiveSort {
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private PrimitiveSort() {
+    }
+
+    static void sortRowsByKey(int[] rows, double[] keys) {
+        sort(rows, keys, false);
+    }
+
+    static void sortRowsByKeyDescending(int[] rows, double[] keys) {
+        sort(rows, keys, true);
+    }
+
+    // Sorts keys ascending; rows[i] moves with keys[i] (equal keys keep their order)
+    static void sortByKey(double[] keys, int[] rows, int n) {
+        for (int from = 0; from < n; from += INSERTION_SORT_THRESHOLD) {
+            insertionSortPairs(keys, rows, from, Math.min(from + INSERTION_SORT_THRESHOLD, n));
+        }
+        if (n <= INSERTION_SORT_THRESHOLD) return;
+
+        double[] srcKeys = keys, dstKeys = new double[n];
+        int[] srcRows = rows, dstRows = new int[n];
+        for (int width = INSERTION_SORT_THRESHOLD; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                mergePairs(srcKeys, srcRows, dstKeys, dstRows, lo, mid, hi);
+            }
+            double[] tmpKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmpKeys;
+            int[] tmpRows = srcRows;
+            srcRows = dstRows;
+            dstRows = tmpRows;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcRows, 0, rows, 0, n);
+        }
+    }
+
+    // Sorts names ascending (String.compareTo); rows[i] moves with names[i] (equal names keep their order)
+    static void sortByName(String[] names, int[] rows, int n) {
+        for (int from = 0; from < n; from += INSERTION_SORT_THRESHOLD) {
+            insertionSortNames(names, rows, from, Math.min(from + INSERTION_SORT_THRESHOLD, n));
+        }
+        if (n <= INSERTION_SORT_THRESHOLD) return;
+
+        String[] srcNames = names, dstNames = new String[n];
+        int[] srcRows = rows, dstRows = new int[n];
+        for (int width = INSERTION_SORT_THRESHOLD; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                mergeNames(srcNames, srcRows, dstNames, dstRows, lo, mid, hi);
+            }
+            String[] tmpNames = srcNames;
+            srcNames = dstNames;
+            dstNames = tmpNames;
+            int[] tmpRows = srcRows;
+            srcRows = dstRows;
+            dstRows = tmpRows;
+        }
+        if (srcNames != names) {
+            System.arraycopy(srcNames, 0, names, 0, n);
+            System.arraycopy(srcRows, 0, rows, 0, n);
+        }
+    }
+
+    private static void sort(int[] rows, double[] keys, boolean descending) {
+        int n = rows.length;
+        // 1. Sort small runs with insertion sort
+        for (int from = 0; from < n; from += INSERTION_SORT_THRESHOLD) {
+            insertionSort(rows, keys, from, Math.min(from + INSERTION_SORT_THRESHOLD, n), descending);
+        }
+        if (n <= INSERTION_SORT_THRESHOLD) return;
+
+        // 2. Merge runs bottom-up, swapping the source and destination arrays each pass
+        int[] src = rows;
+        int[] dst = new int[n];
+        for (int width = INSERTION_SORT_THRESHOLD; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                merge(src, dst, keys, lo, mid, hi, descending);
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != rows) {
+            System.arraycopy(src, 0, rows, 0, n);
+        }
+    }
+
+    private static void insertionSort(int[] rows, double[] keys, int from, int to, boolean descending) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            double key = keys[row];
+            int j = i - 1;
+            while (j >= from && before(key, keys[rows[j]], descending)) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void merge(int[] src, int[] dst, double[] keys, int lo, int mid, int hi, boolean descending) {
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi) {
+            // Take from the right run only if it is strictly before the left one (keeps the sort stable)
+            if (before(keys[src[j]], keys[src[i]], descending)) {
+                dst[k++] = src[j++];
+            } else {
+                dst[k++] = src[i++];
+            }
+        }
+        while (i < mid) dst[k++] = src[i++];
+        while (j < hi) dst[k++] = src[j++];
+    }
+
+    private static void insertionSortPairs(double[] keys, int[] rows, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            double key = keys[i];
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && key < keys[j]) {
+                keys[j + 1] = keys[j];
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void mergePairs(double[] srcKeys, int[] srcRows, double[] dstKeys, int[] dstRows,
+                                   int lo, int mid, int hi) {
+        int i = lo, j = mid, k = lo;
+        // Runs that are already in order (common after small changes) are copied as they are
+        if (mid == hi || srcKeys[mid - 1] <= srcKeys[mid]) {
+            System.arraycopy(srcKeys, lo, dstKeys, lo, hi - lo);
+            System.arraycopy(srcRows, lo, dstRows, lo, hi - lo);
+            return;
+        }
+        while (i < mid && j < hi) {
+            if (srcKeys[j] < srcKeys[i]) {
+                dstKeys[k] = srcKeys[j];
+                dstRows[k++] = srcRows[j++];
+            } else {
+                dstKeys[k] = srcKeys[i];
+                dstRows[k++] = srcRows[i++];
+            }
+        }
+        while (i < mid) {
+            dstKeys[k] = srcKeys[i];
+            dstRows[k++] = srcRows[i++];
+        }
+        while (j < hi) {
+            dstKeys[k] = srcKeys[j];
+            dstRows[k++] = srcRows[j++];
+        }
+    }
+
+    private static void insertionSortNames(String[] names, int[] rows, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            String name = names[i];
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && name.compareTo(names[j]) < 0) {
+                names[j + 1] = names[j];
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            names[j + 1] = name;
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void mergeNames(String[] srcNames, int[] srcRows, String[] dstNames, int[] dstRows,
+                                   int lo, int mid, int hi) {
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi) {
+            // Take from the right run only if it is strictly before the left one (keeps the sort stable)
+            if (srcNames[j].compareTo(srcNames[i]) < 0) {
+                dstNames[k] = srcNames[j];
+                dstRows[k++] = srcRows[j++];
+            } else {
+                dstNames[k] = srcNames[i];
+                dstRows[k++] = srcRows[i++];
+            }
+        }
+        while (i < mid) {
+            dstNames[k] = srcNames[i];
+            dstRows[k++] = srcRows[i++];
+        }
+        while (j < hi) {
+            dstNames[k] = srcNames[j];
+            dstRows[k++] = srcRows[j++];
+        }
+    }
+
+    private static boolean before(double a, double b, boolean descending) {
+        return descending ? a > b : a < b;
+    }
+}
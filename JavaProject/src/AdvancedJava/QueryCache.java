@@ -0,0 +1,180 @@
+package AdvancedJava;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/*
+ * Query result cache - repeated queries answered without running them again
+ * -----------------------------------------
+ * Key Points:
+ * - Results are stored under (query name, argument), e.g. ("salaryAbove", 50000.0).
+ * - Every change to the service bumps its version. The cache remembers the version its
+ *   results belong to; the first lookup with a newer version drops all of them at once
+ *   (one change can affect every result, so there is nothing to keep).
+ * - Bounded by entry count and by estimated size: a list counts 4 bytes per slot plus one
+ *   Employee object (about 32 bytes) per employee, which most stores build per query.
+ * - Eviction is LRU (LinkedHashMap in access order): the least recently used result goes first.
+ *   A frequency-based policy (e.g. W-TinyLFU) pays off when entries live long enough to
+ *   collect history; here every change empties the cache, so recency is all there is.
+ * - Cached results are shared between callers, so they are returned as unmodifiable views.
+ * - Not thread-safe, like EmployeeService itself.
+ */
+public final class QueryCache {
+    private static final long LIST_BYTES = 40;
+    private static final long BYTES_PER_EMPLOYEE = 4 + 32;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version = -1;
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    QueryCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache limits must be positive: " + maxEntries + ", " + maxBytes);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    List<Employee> list(String query, Object argument, long version, Supplier<List<Employee>> compute) {
+        Entry entry = lookup(query, argument, version);
+        if (entry != null) return entry.list;
+        List<Employee> result = Collections.unmodifiableList(compute.get());
+        store(new Key(query, argument), new Entry(result, null, listBytes(result)));
+        return result;
+    }
+
+    Map<String, List<Employee>> groups(String query, Object argument, long version,
+                                       Supplier<Map<String, List<Employee>>> compute) {
+        Entry entry = lookup(query, argument, version);
+        if (entry != null) return entry.groups;
+        Map<String, List<Employee>> groups = new HashMap<>();
+        long size = LIST_BYTES;
+        for (Map.Entry<String, List<Employee>> group : compute.get().entrySet()) {
+            groups.put(group.getKey(), Collections.unmodifiableList(group.getValue()));
+            size += listBytes(group.getValue());
+        }
+        Map<String, List<Employee>> result = Collections.unmodifiableMap(groups);
+        store(new Key(query, argument), new Entry(null, result, size));
+        return result;
+    }
+
+    private Entry lookup(String query, Object argument, long version) {
+        if (version != this.version) {
+            invalidations += entries.size();
+            entries.clear();
+            bytes = 0;
+            this.version = version;
+        }
+        Entry entry = entries.get(new Key(query, argument));
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    private void store(Key key, Entry entry) {
+        if (entry.bytes > maxBytes) return; // would evict everything else and still not fit
+        entries.put(key, entry);
+        bytes += entry.bytes;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long listBytes(List<Employee> list) {
+        return LIST_BYTES + BYTES_PER_EMPLOYEE * list.size();
+    }
+
+    Stats stats() {
+        return new Stats(hits, misses, evictions, invalidations, entries.size(), bytes);
+    }
+
+    private static final class Key {
+        final String query;
+        final Object argument;
+
+        Key(String query, Object argument) {
+            this.query = query;
+            this.argument = argument;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return query.equals(other.query) && Objects.equals(argument, other.argument);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + Objects.hashCode(argument);
+        }
+    }
+
+    private static final class Entry {
+        final List<Employee> list;
+        final Map<String, List<Employee>> groups;
+        final long bytes;
+
+        Entry(List<Employee> list, Map<String, List<Employee>> groups, long bytes) {
+            this.list = list;
+            this.groups = groups;
+            this.bytes = bytes;
+        }
+    }
+
+    // Counters since the cache was enabled
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int entries;
+        private final long bytes;
+
+        Stats(long hits, long misses, long evictions, long invalidations, int entries, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        // Entries dropped because the data changed
+        public long getInvalidations() { return invalidations; }
+        public int getEntries() { return entries; }
+        public long getEstimatedBytes() { return bytes; }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        public double getMissRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) misses / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("QueryCache{hits=%d, misses=%d, hitRate=%.2f, evictions=%d, invalidations=%d, "
+                    + "entries=%d, bytes=%d}", hits, misses, getHitRate(), evictions, invalidations, entries, bytes);
+        }
+    }
+}
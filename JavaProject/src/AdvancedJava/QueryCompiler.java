@@ -0,0 +1,363 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Query compiler - turns an EmployeeQuery into one matcher over the store's rows
+ * -----------------------------------------
+ * Key Points:
+ * - Each condition becomes a small RowMatcher that reads a single column. On a
+ *   ColumnarEmployeeStore it reads the column arrays directly.
+ * - Rows are checked in blocks: the caller collects up to BLOCK_SIZE live rows and each part
+ *   of an and removes the rows it rejects, in its own tight loop (like a hand-written loop over
+ *   one column). A tree of per-row matcher calls would instead go through a virtual call per
+ *   part and row, which the JIT cannot inline once many queries have been compiled.
+ *   The data is still read in a single pass: a block stays in the CPU cache for all parts.
+ * - and / or check their parts in a fixed order and stop at the first part that decides
+ *   the result (false for and, true for or).
+ * - The order comes from statistics: each part is run on a sample of up to 1024 rows to
+ *   estimate its selectivity (the fraction of rows it accepts).
+ *   - and: parts with the lowest cost per rejected row run first, cost / (1 - selectivity).
+ *   - or: parts with the lowest cost per accepted row run first, cost / selectivity.
+ *   So a cheap salary check that rejects 95% of the rows runs before a name check.
+ * - Small stores are not sampled (the sample would cost as much as the query); their
+ *   parts are ordered by cost alone.
+ * - A compiled matcher is only valid until the store changes: compile once per query run.
+ */
+final class QueryCompiler {
+    static final int BLOCK_SIZE = 1024;
+    private static final int SAMPLE_SIZE = 1024;
+
+    // Matches rows of the store; the caller only passes live rows
+    abstract static class RowMatcher {
+        abstract boolean matches(int row);
+
+        // Keeps the first 'count' rows that match at the start of the array; returns how many
+        int filter(int[] rows, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (matches(row)) rows[kept++] = row;
+            }
+            return kept;
+        }
+    }
+
+    private final EmployeeStore store;
+
+    // Column arrays of a ColumnarEmployeeStore, otherwise null (read through the accessors)
+    private final double[] salaries;
+    private final int[] departmentCodes;
+    private final int[] ids;
+
+    private final int[] sample;
+
+    QueryCompiler(EmployeeStore store) {
+        this.store = store;
+        if (store instanceof ColumnarEmployeeStore) {
+            ColumnarEmployeeStore columnar = (ColumnarEmployeeStore) store;
+            salaries = columnar.salaryColumn();
+            departmentCodes = columnar.departmentCodeColumn();
+            ids = columnar.idColumn();
+        } else {
+            salaries = null;
+            departmentCodes = null;
+            ids = null;
+        }
+        int[] rows = store.liveCount() >= 16 * SAMPLE_SIZE ? sampleRows(store) : null;
+        sample = rows == null || rows.length == 0 ? null : rows;
+    }
+
+    RowMatcher compile(EmployeeQuery query) {
+        return query.compile(this);
+    }
+
+    // 1. Conditions
+    RowMatcher salaryBetween(double min, double max) {
+        return salaries != null ? new SalaryColumnRange(salaries, min, max) : new SalaryRange(store, min, max);
+    }
+
+    RowMatcher departmentIn(boolean[] accepted) {
+        return departmentCodes != null
+                ? new DepartmentColumnIn(departmentCodes, accepted)
+                : new DepartmentIn(store, accepted);
+    }
+
+    RowMatcher namePrefix(String prefix) {
+        return new NamePrefix(store, prefix);
+    }
+
+    RowMatcher idIn(int[] sortedIds) {
+        return ids != null ? new IdColumnIn(ids, sortedIds) : new IdIn(store, sortedIds);
+    }
+
+    RowMatcher not(RowMatcher matcher) {
+        return new Not(matcher);
+    }
+
+    // 2. Combinations, most useful part first
+    RowMatcher and(List<EmployeeQuery> queries) {
+        if (queries.isEmpty()) return new Constant(true);
+        RowMatcher[] parts = ordered(queries, true);
+        return parts.length == 1 ? parts[0] : new And(parts);
+    }
+
+    RowMatcher or(List<EmployeeQuery> queries) {
+        if (queries.isEmpty()) return new Constant(false);
+        RowMatcher[] parts = ordered(queries, false);
+        return parts.length == 1 ? parts[0] : new Or(parts);
+    }
+
+    // Compiles the parts and sorts them by expected cost to decide the result
+    private RowMatcher[] ordered(List<EmployeeQuery> queries, boolean and) {
+        int n = queries.size();
+        RowMatcher[] matchers = new RowMatcher[n];
+        double[] rank = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            EmployeeQuery query = queries.get(i);
+            matchers[i] = query.compile(this);
+            double selectivity = sample == null ? 0.5 : selectivity(matchers[i]);
+            // A part that (almost) never decides the result goes last
+            double decides = Math.max(and ? 1 - selectivity : selectivity, 1e-6);
+            rank[i] = query.cost() / decides;
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> rank[i]));
+        RowMatcher[] result = new RowMatcher[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = matchers[order[i]];
+        }
+        return result;
+    }
+
+    private double selectivity(RowMatcher matcher) {
+        int matches = 0;
+        for (int row : sample) {
+            if (matcher.matches(row)) matches++;
+        }
+        return (double) matches / sample.length;
+    }
+
+    // Live rows spread evenly over the whole store
+    private static int[] sampleRows(EmployeeStore store) {
+        int step = Math.max(1, store.rowCount() / SAMPLE_SIZE);
+        IntList rows = new IntList(SAMPLE_SIZE);
+        for (int row = 0; row < store.rowCount() && rows.size() < SAMPLE_SIZE; row += step) {
+            if (store.isLive(row)) rows.add(row);
+        }
+        return rows.toArray();
+    }
+
+    // 3. Matchers (the filter() loops of the column matchers are what the JIT turns into
+    // the same code as a hand-written loop)
+    private static final class SalaryColumnRange extends RowMatcher {
+        private final double[] salaries;
+        private final double min;
+        private final double max;
+
+        SalaryColumnRange(double[] salaries, double min, double max) {
+            this.salaries = salaries;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean matches(int row) {
+            double salary = salaries[row];
+            return salary >= min && salary <= max;
+        }
+
+        @Override
+        int filter(int[] rows, int count) {
+            double[] salaries = this.salaries;
+            double min = this.min, max = this.max;
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                double salary = salaries[row];
+                if (salary >= min && salary <= max) rows[kept++] = row;
+            }
+            return kept;
+        }
+    }
+
+    private static final class SalaryRange extends RowMatcher {
+        private final EmployeeStore store;
+        private final double min;
+        private final double max;
+
+        SalaryRange(EmployeeStore store, double min, double max) {
+            this.store = store;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean matches(int row) {
+            double salary = store.salary(row);
+            return salary >= min && salary <= max;
+        }
+    }
+
+    private static final class DepartmentColumnIn extends RowMatcher {
+        private final int[] departmentCodes;
+        private final boolean[] accepted; // indexed by department code
+
+        DepartmentColumnIn(int[] departmentCodes, boolean[] accepted) {
+            this.departmentCodes = departmentCodes;
+            this.accepted = accepted;
+        }
+
+        @Override
+        boolean matches(int row) {
+            return accepted[departmentCodes[row]];
+        }
+
+        @Override
+        int filter(int[] rows, int count) {
+            int[] departmentCodes = this.departmentCodes;
+            boolean[] accepted = this.accepted;
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (accepted[departmentCodes[row]]) rows[kept++] = row;
+            }
+            return kept;
+        }
+    }
+
+    private static final class DepartmentIn extends RowMatcher {
+        private final EmployeeStore store;
+        private final boolean[] accepted;
+
+        DepartmentIn(EmployeeStore store, boolean[] accepted) {
+            this.store = store;
+            this.accepted = accepted;
+        }
+
+        @Override
+        boolean matches(int row) {
+            return accepted[store.departmentCode(row)];
+        }
+    }
+
+    private static final class NamePrefix extends RowMatcher {
+        private final EmployeeStore store;
+        private final String prefix;
+
+        NamePrefix(EmployeeStore store, String prefix) {
+            this.store = store;
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean matches(int row) {
+            String name = store.name(row);
+            return name != null && name.startsWith(prefix);
+        }
+    }
+
+    private static final class IdColumnIn extends RowMatcher {
+        private final int[] ids;
+        private final int[] accepted; // sorted
+
+        IdColumnIn(int[] ids, int[] accepted) {
+            this.ids = ids;
+            this.accepted = accepted;
+        }
+
+        @Override
+        boolean matches(int row) {
+            return Arrays.binarySearch(accepted, ids[row]) >= 0;
+        }
+    }
+
+    private static final class IdIn extends RowMatcher {
+        private final EmployeeStore store;
+        private final int[] accepted; // sorted
+
+        IdIn(EmployeeStore store, int[] accepted) {
+            this.store = store;
+            this.accepted = accepted;
+        }
+
+        @Override
+        boolean matches(int row) {
+            return Arrays.binarySearch(accepted, store.id(row)) >= 0;
+        }
+    }
+
+    private static final class Constant extends RowMatcher {
+        private final boolean result;
+
+        Constant(boolean result) {
+            this.result = result;
+        }
+
+        @Override
+        boolean matches(int row) {
+            return result;
+        }
+
+        @Override
+        int filter(int[] rows, int count) {
+            return result ? count : 0;
+        }
+    }
+
+    private static final class Not extends RowMatcher {
+        private final RowMatcher matcher;
+
+        Not(RowMatcher matcher) {
+            this.matcher = matcher;
+        }
+
+        @Override
+        boolean matches(int row) {
+            return !matcher.matches(row);
+        }
+    }
+
+    // Each part only sees the rows the parts before it kept
+    private static final class And extends RowMatcher {
+        private final RowMatcher[] parts;
+
+        And(RowMatcher[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        boolean matches(int row) {
+            for (RowMatcher part : parts) {
+                if (!part.matches(row)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        int filter(int[] rows, int count) {
+            for (RowMatcher part : parts) {
+                if (count == 0) break;
+                count = part.filter(rows, count);
+            }
+            return count;
+        }
+    }
+
+    private static final class Or extends RowMatcher {
+        private final RowMatcher[] parts;
+
+        Or(RowMatcher[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        boolean matches(int row) {
+            for (RowMatcher part : parts) {
+                if (part.matches(row)) return true;
+            }
+            return false;
+        }
+    }
+}
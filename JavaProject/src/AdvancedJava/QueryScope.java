@@ -0,0 +1,228 @@
+package AdvancedJava;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * QueryScope - run many blocking requests together, with one deadline
+ * -----------------------------------------
+ * Key Points:
+ * - Every fork() runs on its own virtual thread (Java 21+). A virtual thread that blocks on
+ *   I/O or a lock gives its carrier thread back, so thousands of blocking requests can run
+ *   at once without sizing a pool. On older JDKs a cached pool of platform threads is used.
+ * - Structured concurrency: the tasks belong to the scope. join() waits for all of them;
+ *   close() (try-with-resources) cancels whatever is still running and waits for it, so no
+ *   task outlives the block that started it.
+ * - Fail fast: the first task that fails cancels (interrupts) all the others, and join()
+ *   throws an ExecutionException with that failure.
+ * - One deadline for the whole scope: when it passes, join() cancels the rest and throws
+ *   TimeoutException.
+ * - Tasks run at the same time, so they may only share thread-safe objects
+ *   (ConcurrentEmployeeService, not a plain EmployeeService).
+ * - Written by hand on purpose: java.util.concurrent.StructuredTaskScope is still a preview API.
+ *
+ * Example:
+ *   try (QueryScope scope = new QueryScope(Duration.ofSeconds(2))) {
+ *       QueryScope.Task<List<Employee>> it = scope.fork(() -> service.getByDepartment("IT"));
+ *       QueryScope.Task<SalaryStats> stats = scope.fork(service::getSalaryStats);
+ *       scope.join();
+ *       System.out.println(it.get() + " " + stats.get());
+ *   }
+ */
+public final class QueryScope implements AutoCloseable {
+    private static final MethodHandle VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+    private final ExecutorService executor;
+    private final Thread owner = Thread.currentThread();
+    private final long deadline;
+
+    private final List<Task<?>> tasks = new ArrayList<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition finished = lock.newCondition();
+    private int running;
+    private Throwable failure;
+    private boolean shutdown;
+
+    public QueryScope(Duration timeout) {
+        this(timeout, newThreadPerTaskExecutor());
+    }
+
+    // For tests: runs the tasks on the given executor, which the scope shuts down on close()
+    QueryScope(Duration timeout, ExecutorService executor) {
+        this.executor = executor;
+        this.deadline = System.nanoTime() + timeout.toNanos();
+    }
+
+    // Runs every callable in its own task and returns the results in the same order
+    public static <T> List<T> invokeAll(Duration timeout, List<? extends Callable<? extends T>> calls)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try (QueryScope scope = new QueryScope(timeout)) {
+            List<Task<? extends T>> tasks = new ArrayList<>(calls.size());
+            for (Callable<? extends T> call : calls) {
+                tasks.add(scope.fork(call));
+            }
+            scope.join();
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Task<? extends T> task : tasks) {
+                results.add(task.get());
+            }
+            return results;
+        }
+    }
+
+    // Starts the call on a new (virtual) thread
+    public <T> Task<T> fork(Callable<? extends T> call) {
+        checkOwner();
+        Task<T> task = new Task<>();
+        lock.lock();
+        try {
+            if (shutdown) throw new IllegalStateException("Scope is already shut down");
+            running++;
+            tasks.add(task);
+        } finally {
+            lock.unlock();
+        }
+        Future<?> future = executor.submit(() -> run(task, call));
+        lock.lock();
+        try {
+            task.future = future;
+            // A task that failed before this line already cancelled the others
+            if (shutdown) future.cancel(true);
+        } finally {
+            lock.unlock();
+        }
+        return task;
+    }
+
+    private <T> void run(Task<T> task, Callable<? extends T> call) {
+        T result = null;
+        Throwable error = null;
+        try {
+            result = call.call();
+        } catch (Throwable e) {
+            error = e;
+        }
+        lock.lock();
+        try {
+            running--;
+            if (error == null) {
+                task.result = result;
+                task.done = true;
+            } else if (!shutdown && failure == null) {
+                // First real failure; errors of tasks we cancel afterwards are not reported
+                failure = error;
+                cancelAll();
+            }
+            finished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits until every task succeeded, one failed, or the deadline passed
+    public void join() throws InterruptedException, ExecutionException, TimeoutException {
+        checkOwner();
+        lock.lock();
+        try {
+            while (running > 0 && failure == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    cancelAll();
+                    throw new TimeoutException("Deadline passed with " + running + " task(s) still running");
+                }
+                finished.awaitNanos(remaining);
+            }
+            if (failure != null) throw new ExecutionException(failure);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Cancels the tasks that are still running and waits for their threads to end
+    // (a task that ignores interrupts, e.g. a long CPU loop, is waited for)
+    @Override
+    public void close() {
+        checkOwner();
+        lock.lock();
+        try {
+            cancelAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.DAYS)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Caller holds the lock
+    private void cancelAll() {
+        shutdown = true;
+        for (Task<?> task : tasks) {
+            if (task.future != null && !task.done) task.future.cancel(true);
+        }
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Only the thread that opened the scope may use it");
+        }
+    }
+
+    // A forked call; get() is valid after a successful join()
+    public static final class Task<T> {
+        private Future<?> future;
+        private T result;
+        private boolean done;
+
+        public T get() {
+            if (!done) throw new IllegalStateException("Task has not completed successfully");
+            return result;
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when the JDK has it (looked up once, so the
+    // sources still compile for Java 17)
+    static ExecutorService newThreadPerTaskExecutor() {
+        return newThreadPerTaskExecutor(VIRTUAL_EXECUTOR);
+    }
+
+    // The factory is null on Java 17-20: then the cached pool is the fallback
+    static ExecutorService newThreadPerTaskExecutor(MethodHandle virtualFactory) {
+        if (virtualFactory != null) {
+            try {
+                return (ExecutorService) virtualFactory.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot create a virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    static boolean usesVirtualThreads() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    private static MethodHandle findVirtualExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
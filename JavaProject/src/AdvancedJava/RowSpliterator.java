@@ -0,0 +1,66 @@
+package AdvancedJava;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/*
+ * Spliterator over a range of row numbers [from, to)
+ * -----------------------------------------
+ * - A parallel stream asks its Spliterator to split the work into pieces for each core.
+ * - Splitting a range of rows is exact: each half gets the same number of rows, so all
+ *   threads get an even share (unlike splitting a LinkedList or a filtered stream).
+ * - Pieces smaller than minSplitSize are not split again; tiny tasks cost more than they save.
+ */
+final class RowSpliterator implements Spliterator.OfInt {
+    private int from;
+    private final int to;
+    private final int minSplitSize;
+
+    RowSpliterator(int from, int to, int minSplitSize) {
+        this.from = from;
+        this.to = to;
+        this.minSplitSize = Math.max(minSplitSize, 1);
+    }
+
+    @Override
+    public OfInt trySplit() {
+        int remaining = to - from;
+        if (remaining < 2 * minSplitSize) return null;
+        int mid = from + (remaining >>> 1);
+        RowSpliterator prefix = new RowSpliterator(from, mid, minSplitSize);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (from >= to) return false;
+        action.accept(from++);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        int end = to;
+        for (int row = from; row < end; row++) {
+            action.accept(row);
+        }
+        from = end;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        return null; // natural order of row numbers
+    }
+}
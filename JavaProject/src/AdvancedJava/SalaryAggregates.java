@@ -0,0 +1,163 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Running salary aggregates - count, sum, min, max, mean in O(1)
+ * -----------------------------------------
+ * Key Points:
+ * - Instead of streaming every salary on each call, the totals are updated on every change.
+ * - Sums use Kahan (compensated) summation: a second variable keeps the low-order bits
+ *   lost by each addition, so the total does not drift after millions of updates.
+ * - One accumulator for all employees plus one per department, in an array slot indexed by
+ *   the DepartmentDictionary code (no String hashing on updates).
+ * - min / max cannot be "un-added": when the current min or max is removed, that
+ *   accumulator is marked stale and recomputed from the store on its next read.
+ */
+final class SalaryAggregates {
+    private static final int ALL = -1;
+
+    private final EmployeeStore store;
+    private final Accumulator total = new Accumulator();
+    private Accumulator[] byCode = new Accumulator[DepartmentDictionary.size()];
+
+    SalaryAggregates(EmployeeStore store) {
+        this.store = store;
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (store.isLive(row)) insert(store.salary(row), store.departmentCode(row));
+        }
+    }
+
+    // Copy whose stale accumulators rescan the given store (a copy of the original one)
+    private SalaryAggregates(SalaryAggregates source, EmployeeStore store) {
+        this.store = store;
+        total.copyFrom(source.total);
+        byCode = new Accumulator[source.byCode.length];
+        for (int code = 0; code < byCode.length; code++) {
+            if (source.byCode[code] == null) continue;
+            byCode[code] = new Accumulator();
+            byCode[code].copyFrom(source.byCode[code]);
+        }
+    }
+
+    SalaryAggregates copy(EmployeeStore store) {
+        return new SalaryAggregates(this, store);
+    }
+
+    void insert(double salary, int code) {
+        total.add(salary);
+        if (code >= byCode.length) {
+            byCode = Arrays.copyOf(byCode, Math.max(code + 1, DepartmentDictionary.size()));
+        }
+        if (byCode[code] == null) byCode[code] = new Accumulator();
+        byCode[code].add(salary);
+    }
+
+    void remove(double salary, int code) {
+        total.remove(salary);
+        Accumulator acc = code < byCode.length ? byCode[code] : null;
+        if (acc != null) {
+            acc.remove(salary);
+            if (acc.count == 0) byCode[code] = null;
+        }
+    }
+
+    SalaryStats total() {
+        if (total.stale) total.recompute(ALL);
+        return total.toStats();
+    }
+
+    // null if the department has no employees
+    SalaryStats department(String department) {
+        int code = DepartmentDictionary.lookup(department);
+        return code < 0 ? null : department(code);
+    }
+
+    SalaryStats department(int code) {
+        Accumulator acc = code < byCode.length ? byCode[code] : null;
+        if (acc == null) return null;
+        if (acc.stale) acc.recompute(code);
+        return acc.toStats();
+    }
+
+    // Codes of the departments that have employees
+    int[] codes() {
+        IntList codes = new IntList();
+        for (int code = 0; code < byCode.length; code++) {
+            if (byCode[code] != null) codes.add(code);
+        }
+        return codes.toArray();
+    }
+
+    private final class Accumulator {
+        long count;
+        double sum;
+        double compensation;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        boolean stale;
+
+        void add(double salary) {
+            count++;
+            kahanAdd(salary);
+            if (salary < min) min = salary;
+            if (salary > max) max = salary;
+        }
+
+        void remove(double salary) {
+            count--;
+            kahanAdd(-salary);
+            if (count == 0) {
+                sum = 0;
+                compensation = 0;
+                min = Double.POSITIVE_INFINITY;
+                max = Double.NEGATIVE_INFINITY;
+                stale = false;
+            } else if (salary == min || salary == max) {
+                stale = true;
+            }
+        }
+
+        void copyFrom(Accumulator source) {
+            count = source.count;
+            sum = source.sum;
+            compensation = source.compensation;
+            min = source.min;
+            max = source.max;
+            stale = source.stale;
+        }
+
+        private void kahanAdd(double value) {
+            double y = value - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+        }
+
+        // Rescans the store for min / max (code ALL means all employees)
+        void recompute(int code) {
+            if (code == ALL) {
+                // All rows: the store's own scan (SIMD for columnar stores)
+                SalaryStats stats = store.salaryStats();
+                min = stats.getMin();
+                max = stats.getMax();
+                stale = false;
+                return;
+            }
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (!store.isLive(row)) continue;
+                if (code != ALL && store.departmentCode(row) != code) continue;
+                double salary = store.salary(row);
+                if (salary < min) min = salary;
+                if (salary > max) max = salary;
+            }
+            stale = false;
+        }
+
+        SalaryStats toStats() {
+            return new SalaryStats(count, sum, min, max);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Sorted salary index - range queries without a full scan
+ * -----------------------------------------
+ * Key Points:
+ * - Keeps (salary, row) pairs sorted by salary in primitive arrays.
+ * - A range query finds its first and last entry with binary search: O(log n + k)
+ *   instead of checking every employee.
+ * - prefixSums[i] is the sum of the first i salaries, so the count and the sum of a range
+ *   are two subtractions - no Employee objects are touched.
+ * - Inserting into a sorted array costs O(n), so changes first go to two small unsorted
+ *   buffers (added / removed). Queries also look at those buffers. When the buffers grow
+ *   past ~sqrt(n) entries they are merged into the sorted arrays in one O(n) pass.
+ */
+final class SalaryIndex {
+    private static final int MIN_PENDING = 64;
+
+    // Sorted part: keys ascending
+    private double[] keys;
+    private int[] rows;
+    private double[] prefixSums;
+    private int size;
+
+    // Pending changes, not sorted
+    private double[] addedKeys = new double[MIN_PENDING];
+    private int[] addedRows = new int[MIN_PENDING];
+    private int addedCount;
+    private double[] removedKeys = new double[MIN_PENDING];
+    private int[] removedRows = new int[MIN_PENDING];
+    private int removedCount;
+
+    SalaryIndex(EmployeeStore store) {
+        double[] sortedKeys = new double[store.liveCount()];
+        int[] sortedRows = new int[store.liveCount()];
+        int count = 0;
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (!store.isLive(row)) continue;
+            sortedKeys[count] = store.salary(row);
+            sortedRows[count++] = row;
+        }
+        PrimitiveSort.sortByKey(sortedKeys, sortedRows, count);
+        load(sortedKeys, sortedRows, count);
+    }
+
+    private SalaryIndex(SalaryIndex source) {
+        // The sorted arrays are never changed in place (merge() replaces them), so they are shared
+        keys = source.keys;
+        rows = source.rows;
+        prefixSums = source.prefixSums;
+        size = source.size;
+        addedKeys = source.addedKeys.clone();
+        addedRows = source.addedRows.clone();
+        addedCount = source.addedCount;
+        removedKeys = source.removedKeys.clone();
+        removedRows = source.removedRows.clone();
+        removedCount = source.removedCount;
+    }
+
+    // Independent copy; only the small pending buffers are copied
+    SalaryIndex copy() {
+        return new SalaryIndex(this);
+    }
+
+    // Number of indexed employees
+    int size() {
+        return size + addedCount - removedCount;
+    }
+
+    void insert(int row, double salary) {
+        // Undo a pending removal of the same entry (e.g. a salary changed back)
+        int i = find(removedKeys, removedRows, removedCount, salary, row);
+        if (i >= 0) {
+            removedCount = delete(removedKeys, removedRows, removedCount, i);
+            return;
+        }
+        if (addedCount == addedKeys.length) {
+            addedKeys = Arrays.copyOf(addedKeys, addedCount * 2);
+            addedRows = Arrays.copyOf(addedRows, addedCount * 2);
+        }
+        addedKeys[addedCount] = salary;
+        addedRows[addedCount++] = row;
+        mergeIfNeeded();
+    }
+
+    void remove(int row, double salary) {
+        // An entry that was never merged is simply dropped from the added buffer
+        int i = find(addedKeys, addedRows, addedCount, salary, row);
+        if (i >= 0) {
+            addedCount = delete(addedKeys, addedRows, addedCount, i);
+            return;
+        }
+        if (removedCount == removedKeys.length) {
+            removedKeys = Arrays.copyOf(removedKeys, removedCount * 2);
+            removedRows = Arrays.copyOf(removedRows, removedCount * 2);
+        }
+        removedKeys[removedCount] = salary;
+        removedRows[removedCount++] = row;
+        mergeIfNeeded();
+    }
+
+    // Rows with salary > min (or >= min when inclusive), in salary order
+    int[] rowsAbove(double min, boolean inclusive) {
+        return rowsBetween(min, inclusive, Double.POSITIVE_INFINITY, true);
+    }
+
+    // Rows with salary < max (or <= max when inclusive), in salary order
+    int[] rowsBelow(double max, boolean inclusive) {
+        return rowsBetween(Double.NEGATIVE_INFINITY, true, max, inclusive);
+    }
+
+    int[] rowsBetween(double min, boolean minInclusive, double max, boolean maxInclusive) {
+        int from = lowerBound(min, minInclusive);
+        int to = upperBound(max, maxInclusive);
+        int[] skip = removedRowsBetween(min, minInclusive, max, maxInclusive);
+
+        int[] result = new int[Math.max(to - from, 0) + addedCount];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (skip.length == 0 || Arrays.binarySearch(skip, rows[i]) < 0) {
+                result[count++] = rows[i];
+            }
+        }
+        for (int i = 0; i < addedCount; i++) {
+            if (inRange(addedKeys[i], min, minInclusive, max, maxInclusive)) {
+                result[count++] = addedRows[i];
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    int countBetween(double min, boolean minInclusive, double max, boolean maxInclusive) {
+        int count = Math.max(upperBound(max, maxInclusive) - lowerBound(min, minInclusive), 0);
+        for (int i = 0; i < addedCount; i++) {
+            if (inRange(addedKeys[i], min, minInclusive, max, maxInclusive)) count++;
+        }
+        for (int i = 0; i < removedCount; i++) {
+            if (inRange(removedKeys[i], min, minInclusive, max, maxInclusive)) count--;
+        }
+        return count;
+    }
+
+    double sumBetween(double min, boolean minInclusive, double max, boolean maxInclusive) {
+        int from = lowerBound(min, minInclusive);
+        int to = upperBound(max, maxInclusive);
+        double sum = to > from ? prefixSums[to] - prefixSums[from] : 0.0;
+        for (int i = 0; i < addedCount; i++) {
+            if (inRange(addedKeys[i], min, minInclusive, max, maxInclusive)) sum += addedKeys[i];
+        }
+        for (int i = 0; i < removedCount; i++) {
+            if (inRange(removedKeys[i], min, minInclusive, max, maxInclusive)) sum -= removedKeys[i];
+        }
+        return sum;
+    }
+
+    // First position whose key is > min (or >= min when inclusive)
+    private int lowerBound(double min, boolean inclusive) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < min || (!inclusive && keys[mid] == min)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // First position whose key is >= max (or > max when inclusive)
+    private int upperBound(double max, boolean inclusive) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < max || (inclusive && keys[mid] == max)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int[] removedRowsBetween(double min, boolean minInclusive, double max, boolean maxInclusive) {
+        int[] result = new int[removedCount];
+        int count = 0;
+        for (int i = 0; i < removedCount; i++) {
+            if (inRange(removedKeys[i], min, minInclusive, max, maxInclusive)) {
+                result[count++] = removedRows[i];
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static boolean inRange(double key, double min, boolean minInclusive, double max, boolean maxInclusive) {
+        return (minInclusive ? key >= min : key > min) && (maxInclusive ? key <= max : key < max);
+    }
+
+    private static int find(double[] keys, int[] rows, int count, double key, int row) {
+        for (int i = 0; i < count; i++) {
+            if (rows[i] == row && keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    // Removes entry i by moving the last entry into its place; returns the new count
+    private static int delete(double[] keys, int[] rows, int count, int i) {
+        count--;
+        keys[i] = keys[count];
+        rows[i] = rows[count];
+        return count;
+    }
+
+    private void mergeIfNeeded() {
+        int limit = Math.max(MIN_PENDING, (int) Math.sqrt(size));
+        if (addedCount + removedCount > limit) {
+            merge();
+        }
+    }
+
+    // Merges both pending buffers into the sorted arrays in a single pass
+    private void merge() {
+        int[] added = new int[addedCount];
+        for (int i = 0; i < addedCount; i++) added[i] = i;
+        PrimitiveSort.sortRowsByKey(added, addedKeys);
+        int[] removedSorted = Arrays.copyOf(removedRows, removedCount);
+        Arrays.sort(removedSorted);
+
+        int capacity = size + addedCount - removedCount;
+        double[] newKeys = new double[capacity];
+        int[] newRows = new int[capacity];
+        int n = 0, a = 0;
+        for (int i = 0; i <= size; i++) {
+            // Added entries that sort before the current entry go first
+            while (a < added.length && (i == size || addedKeys[added[a]] < keys[i])) {
+                newKeys[n] = addedKeys[added[a]];
+                newRows[n++] = addedRows[added[a++]];
+            }
+            if (i < size && Arrays.binarySearch(removedSorted, rows[i]) < 0) {
+                newKeys[n] = keys[i];
+                newRows[n++] = rows[i];
+            }
+        }
+        addedCount = 0;
+        removedCount = 0;
+        load(newKeys, newRows, n);
+    }
+
+    private void load(double[] sortedKeys, int[] sortedRows, int count) {
+        keys = sortedKeys;
+        rows = sortedRows;
+        size = count;
+        prefixSums = new double[count + 1];
+        for (int i = 0; i < count; i++) {
+            prefixSums[i + 1] = prefixSums[i] + sortedKeys[i];
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package AdvancedJava;
+
+import java.util.BitSet;
+
+/*
+ * Salary kernels - the inner loops of salary scans over a double[] column
+ * -----------------------------------------
+ * Key Points:
+ * - masksAbove() compares a block of salaries with a threshold and writes one bit per row
+ *   (selection masks, 64 rows per long). One AND with the removed-row bits drops the removed
+ *   rows, and only the set bits become row numbers - no branch per row.
+ * - Kernels work on whole blocks (BLOCK rows per call): one call per 64 rows would leave the
+ *   JIT too little inlining depth to keep the vectors in registers.
+ * - sum() (compensated), min() and max() over a range of the column. Removed rows are
+ *   skipped by running them on the stretches between removed rows.
+ * - This class is the scalar version. VectorSalaryKernels (folder src-vector) does the same
+ *   with the Vector API: one instruction compares or adds 4 doubles on AVX2, 8 on AVX-512.
+ * - The Vector API is an incubator module, only present when the JVM is started with
+ *   --add-modules jdk.incubator.vector. get() loads the vector version by name and falls back
+ *   to this class when it cannot be used (not built, module missing, no SIMD registers).
+ * - -Demployees.kernels=scalar forces the scalar version.
+ */
+class SalaryKernels {
+    private static final SalaryKernels SCALAR = new SalaryKernels();
+    private static final SalaryKernels BEST = load();
+    static final int BLOCK = 4096; // rows per masksAbove() call
+
+    SalaryKernels() {
+    }
+
+    // The fastest kernels this JVM can run
+    static SalaryKernels get() {
+        return BEST;
+    }
+
+    static SalaryKernels scalar() {
+        return SCALAR;
+    }
+
+    private static SalaryKernels load() {
+        if ("scalar".equals(System.getProperty("employees.kernels"))) return SCALAR;
+        try {
+            Class<?> vector = Class.forName("AdvancedJava.VectorSalaryKernels");
+            return (SalaryKernels) vector.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return SCALAR;
+        }
+    }
+
+    String name() {
+        return "scalar";
+    }
+
+    // 1. Kernels over salaries[from .. to)
+    // Bit j of masks[w] is set if salaries[from + 64 * w + j] > threshold (to - from <= BLOCK)
+    void masksAbove(double[] salaries, int from, int to, double threshold, long[] masks) {
+        for (int w = 0, start = from; start < to; w++, start += 64) {
+            int end = Math.min(start + 64, to);
+            long bits = 0;
+            for (int i = start; i < end; i++) {
+                bits |= (salaries[i] > threshold ? 1L : 0L) << (i - start);
+            }
+            masks[w] = bits;
+        }
+    }
+
+    // Compensated (Kahan) sum, like DoubleStream.sum()
+    double sum(double[] salaries, int from, int to) {
+        double sum = 0, compensation = 0;
+        for (int i = from; i < to; i++) {
+            double y = salaries[i] - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+        }
+        return sum;
+    }
+
+    double min(double[] salaries, int from, int to) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, salaries[i]);
+        }
+        return min;
+    }
+
+    double max(double[] salaries, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, salaries[i]);
+        }
+        return max;
+    }
+
+    // 2. Whole-column scans built on the kernels (removed may be null if no row is removed)
+    // Rows 0 .. size - 1 with a salary above the threshold, in row order
+    final int[] rowsAbove(double[] salaries, int size, BitSet removed, double threshold) {
+        long[] removedWords = removed == null ? new long[0] : removed.toLongArray();
+        long[] masks = new long[BLOCK / 64];
+        IntList rows = new IntList();
+        for (int block = 0; block < size; block += BLOCK) {
+            int blockEnd = Math.min(block + BLOCK, size);
+            masksAbove(salaries, block, blockEnd, threshold, masks);
+            for (int w = 0, from = block; from < blockEnd; w++, from += 64) {
+                long bits = masks[w];
+                int word = from >>> 6;
+                if (word < removedWords.length) bits &= ~removedWords[word];
+                while (bits != 0) {
+                    rows.add(from + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return rows.toArray();
+    }
+
+    final double liveSum(double[] salaries, int size, BitSet removed) {
+        double sum = 0, compensation = 0;
+        for (int from = nextLive(removed, 0, size); from < size; ) {
+            int to = spanEnd(removed, from, size);
+            double y = sum(salaries, from, to) - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            from = nextLive(removed, to, size);
+        }
+        return sum;
+    }
+
+    final SalaryStats liveStats(double[] salaries, int size, BitSet removed, long liveCount) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int from = nextLive(removed, 0, size); from < size; ) {
+            int to = spanEnd(removed, from, size);
+            min = Math.min(min, min(salaries, from, to));
+            max = Math.max(max, max(salaries, from, to));
+            from = nextLive(removed, to, size);
+        }
+        return new SalaryStats(liveCount, liveSum(salaries, size, removed), min, max);
+    }
+
+    // First live row at or after 'from' (size if none)
+    private static int nextLive(BitSet removed, int from, int size) {
+        return removed == null ? from : Math.min(removed.nextClearBit(from), size);
+    }
+
+    // End of the stretch of live rows that starts at 'from'
+    private static int spanEnd(BitSet removed, int from, int size) {
+        if (removed == null) return size;
+        int next = removed.nextSetBit(from);
+        return next < 0 ? size : Math.min(next, size);
+    }
+}
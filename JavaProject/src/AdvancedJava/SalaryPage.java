@@ -0,0 +1,45 @@
+package AdvancedJava;
+
+import java.util.List;
+
+/*
+ * One page of employees in salary order (highest first).
+ * Pass getNextCursor() to EmployeeService.getSalaryPage() to read the following page;
+ * it is null on the last page.
+ */
+public final class SalaryPage {
+    private final List<Employee> employees;
+    private final Cursor nextCursor;
+
+    SalaryPage(List<Employee> employees, Cursor nextCursor) {
+        this.employees = employees;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Employee> getEmployees() { return employees; }
+    public Cursor getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+
+    /*
+     * Position after the last employee of a page.
+     * - While nothing changes, the next page starts directly at 'position'.
+     * - After a change, the page continues after (salary, row) in the new order.
+     * - Row numbers are renumbered when removed rows are compacted; a cursor from before
+     *   that cannot be resumed (ConcurrentModificationException).
+     */
+    public static final class Cursor {
+        final double salary;
+        final int row;
+        final int position;
+        final long version;
+        final long rowEpoch;
+
+        Cursor(double salary, int row, int position, long version, long rowEpoch) {
+            this.salary = salary;
+            this.row = row;
+            this.position = position;
+            this.version = version;
+            this.rowEpoch = rowEpoch;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Salary quantiles - median, p90, p99 without sorting all salaries
+ * -----------------------------------------
+ * Key Points:
+ * - One SalarySketch for all employees plus one per department (array slot indexed by the
+ *   DepartmentDictionary code, like SalaryAggregates). Every change updates them.
+ * - A sketch cannot forget a value, so removed salaries go into a second sketch and are
+ *   subtracted: rank(x) = (added salaries <= x) - (removed salaries <= x).
+ * - The error of each sketch is relative to the salaries it has seen, so removals make the
+ *   answer less precise. Once more than half as many salaries were removed as are left,
+ *   the group is marked stale and rebuilt from the store on its next read. The rank error
+ *   therefore stays below twice the sketch's own bound (about 3.4% of the group's count).
+ * - Building from the store can run in parallel: every split fills its own sketches and
+ *   the partial results are merged (see merge()).
+ */
+final class SalaryQuantiles {
+    private static final int ALL = -1;
+
+    private final EmployeeStore store;
+    private final Group total = new Group();
+    private Group[] byCode = new Group[DepartmentDictionary.size()];
+
+    // Empty; filled by insert() (see EmployeeService.quantiles())
+    SalaryQuantiles(EmployeeStore store) {
+        this.store = store;
+    }
+
+    // Copy whose stale groups rescan the given store (a copy of the original one)
+    private SalaryQuantiles(SalaryQuantiles source, EmployeeStore store) {
+        this.store = store;
+        total.copyFrom(source.total);
+        byCode = new Group[source.byCode.length];
+        for (int code = 0; code < byCode.length; code++) {
+            if (source.byCode[code] == null) continue;
+            byCode[code] = new Group();
+            byCode[code].copyFrom(source.byCode[code]);
+        }
+    }
+
+    SalaryQuantiles copy(EmployeeStore store) {
+        return new SalaryQuantiles(this, store);
+    }
+
+    void insert(double salary, int code) {
+        total.add(salary);
+        if (code >= byCode.length) {
+            byCode = Arrays.copyOf(byCode, Math.max(code + 1, DepartmentDictionary.size()));
+        }
+        if (byCode[code] == null) byCode[code] = new Group();
+        byCode[code].add(salary);
+    }
+
+    void remove(double salary, int code) {
+        total.remove(salary);
+        Group group = code < byCode.length ? byCode[code] : null;
+        if (group != null) {
+            group.remove(salary);
+            if (group.count == 0) byCode[code] = null;
+        }
+    }
+
+    // Folds the partial result of another split of the rows into this one (no removals yet)
+    void merge(SalaryQuantiles other) {
+        total.merge(other.total);
+        if (other.byCode.length > byCode.length) byCode = Arrays.copyOf(byCode, other.byCode.length);
+        for (int code = 0; code < other.byCode.length; code++) {
+            Group group = other.byCode[code];
+            if (group == null) continue;
+            if (byCode[code] == null) {
+                byCode[code] = group;
+            } else {
+                byCode[code].merge(group);
+            }
+        }
+    }
+
+    // NaN if there are no employees
+    double total(double q) {
+        if (total.stale) total.rebuild(ALL);
+        return total.quantile(q);
+    }
+
+    // NaN if the department has no employees
+    double department(String department, double q) {
+        int code = DepartmentDictionary.lookup(department);
+        Group group = code >= 0 && code < byCode.length ? byCode[code] : null;
+        if (group == null) return Double.NaN;
+        if (group.stale) group.rebuild(code);
+        return group.quantile(q);
+    }
+
+    // Rebuilds every stale group now, so later reads do not change anything
+    void refresh() {
+        if (total.stale) total.rebuild(ALL);
+        for (int code = 0; code < byCode.length; code++) {
+            if (byCode[code] != null && byCode[code].stale) byCode[code].rebuild(code);
+        }
+    }
+
+    private final class Group {
+        SalarySketch added = new SalarySketch();
+        SalarySketch removed; // null until the first removal
+        long count;
+        boolean stale;
+
+        void add(double salary) {
+            added.add(salary);
+            count++;
+        }
+
+        void remove(double salary) {
+            count--;
+            if (count == 0) {
+                added = new SalarySketch();
+                removed = null;
+                stale = false;
+                return;
+            }
+            if (removed == null) removed = new SalarySketch();
+            removed.add(salary);
+            if (removed.count() > count / 2) stale = true;
+        }
+
+        void merge(Group other) {
+            added.merge(other.added);
+            count += other.count;
+        }
+
+        void copyFrom(Group source) {
+            added = source.added.copy();
+            removed = source.removed == null ? null : source.removed.copy();
+            count = source.count;
+            stale = source.stale;
+        }
+
+        // Rescans the store (code ALL means all employees)
+        void rebuild(int code) {
+            added = new SalarySketch();
+            removed = null;
+            for (int row = 0; row < store.rowCount(); row++) {
+                if (!store.isLive(row)) continue;
+                if (code != ALL && store.departmentCode(row) != code) continue;
+                added.add(store.salary(row));
+            }
+            stale = false;
+        }
+
+        // Smallest kept salary whose estimated rank reaches q * count
+        double quantile(double q) {
+            if (count == 0) return Double.NaN;
+            int size = added.retained() + (removed == null ? 0 : removed.retained());
+            double[] values = new double[size];
+            long[] weights = new long[size];
+            int at = added.collect(values, weights, 0, false);
+            if (removed != null) removed.collect(values, weights, at, true);
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            PrimitiveSort.sortRowsByKey(order, values);
+
+            double target = Math.max(1, q * count);
+            double candidate = Double.NaN;
+            long rank = 0;
+            int i = 0;
+            while (i < size) {
+                // Equal salaries (added and removed) count together
+                double value = values[order[i]];
+                boolean kept = false;
+                while (i < size && values[order[i]] == value) {
+                    rank += weights[order[i]];
+                    kept |= weights[order[i]] > 0;
+                    i++;
+                }
+                if (!kept) continue;
+                candidate = value;
+                if (rank >= target) return value;
+            }
+            return candidate; // estimated ranks fell short of the target: the largest salary
+        }
+    }
+}
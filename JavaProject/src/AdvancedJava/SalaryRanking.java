@@ -0,0 +1,75 @@
+package AdvancedJava;
+
+/*
+ * Top-K by salary with a bounded heap
+ * -----------------------------------------
+ * Key Points:
+ * - Sorting everything costs O(n log n) and copies n rows, even if only 10 are needed.
+ * - A min-heap that never grows past k entries keeps the k best rows seen so far;
+ *   its root is the weakest of them and is replaced whenever a better row shows up.
+ * - Cost: O(n log k) time and O(k) memory.
+ * - Order is the same as sortEmployeesBySalary(): highest salary first, ties in row order.
+ */
+final class SalaryRanking {
+
+    private SalaryRanking() {
+    }
+
+    // Rows of the k highest salaries, best first
+    static int[] topK(EmployeeStore store, int k) {
+        int[] heap = new int[Math.min(k, store.liveCount())];
+        int size = 0;
+        if (heap.length == 0) return heap;
+
+        for (int row = 0; row < store.rowCount(); row++) {
+            if (!store.isLive(row)) continue;
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(store, heap, size++);
+            } else if (better(store, row, heap[0])) {
+                heap[0] = row;
+                siftDown(store, heap, 0, size);
+            }
+        }
+
+        // Pop the weakest row into the last free slot until the heap is empty: best ends up first
+        for (int end = size - 1; end > 0; end--) {
+            int weakest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = weakest;
+            siftDown(store, heap, 0, end);
+        }
+        return heap;
+    }
+
+    // true if row a ranks before row b (higher salary, or same salary and lower row)
+    static boolean better(EmployeeStore store, int a, int b) {
+        double sa = store.salary(a), sb = store.salary(b);
+        return sa > sb || (sa == sb && a < b);
+    }
+
+    private static void siftUp(EmployeeStore store, int[] heap, int i) {
+        int row = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(store, heap[parent], row)) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = row;
+    }
+
+    private static void siftDown(EmployeeStore store, int[] heap, int i, int size) {
+        int row = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            // Pick the weaker child - the root must be the weakest row in the heap
+            if (child + 1 < size && better(store, heap[child], heap[child + 1])) child++;
+            if (!better(store, row, heap[child])) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = row;
+    }
+}
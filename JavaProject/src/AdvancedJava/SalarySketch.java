@@ -0,0 +1,153 @@
+package AdvancedJava;
+
+import java.util.Arrays;
+
+/*
+ * Salary sketch - approximate quantiles in a few KB (KLL sketch)
+ * -----------------------------------------
+ * Key Points:
+ * - Exact percentiles need every salary sorted. A sketch keeps a small sample instead:
+ *   about 3 * K values, however many salaries were added.
+ * - The sample is kept in levels. A value on level h stands for 2^h salaries.
+ *   New salaries go to level 0. When a level is full it is sorted and every second value
+ *   (starting at a random one of the first two) moves up one level; the others are dropped.
+ *   Total weight stays exact, only the positions get fuzzy.
+ * - Upper levels get more room than lower ones (capacity shrinks by 2/3 per level down),
+ *   which is what keeps the error independent of the number of salaries (Karnin, Lang, Liberty).
+ * - Error bound: with K = 200 the rank of a returned quantile is within about 1.7% of the
+ *   count of added salaries, for 99% of queries. (The median of 1M salaries is the value
+ *   at a rank between 483,000 and 517,000.) Until the first level fills up (about K
+ *   salaries) the result is exact.
+ * - Memory: about 3 * K doubles, i.e. roughly 5 KB for K = 200.
+ * - Two sketches can be merged (e.g. partial results of parallel splits): the levels are
+ *   concatenated and compacted again. The error bound still holds.
+ */
+final class SalarySketch {
+    static final int K = 200;
+    private static final int MIN_CAPACITY = 8;
+
+    private double[][] levels = {new double[16]};
+    private int[] sizes = {0};
+    private long count;
+    private long seed = 0x9E3779B97F4A7C15L; // for the random offsets (xorshift)
+
+    SalarySketch copy() {
+        SalarySketch copy = new SalarySketch();
+        copy.levels = new double[levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            copy.levels[h] = Arrays.copyOf(levels[h], Math.max(sizes[h], 1));
+        }
+        copy.sizes = sizes.clone();
+        copy.count = count;
+        copy.seed = seed;
+        return copy;
+    }
+
+    long count() {
+        return count;
+    }
+
+    void add(double salary) {
+        append(0, salary);
+        count++;
+        compress();
+    }
+
+    void merge(SalarySketch other) {
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        count += other.count;
+        compress();
+    }
+
+    // Copies the kept values and their weights from position at on (weights negated if negative)
+    int collect(double[] values, long[] weights, int at, boolean negative) {
+        for (int h = 0; h < levels.length; h++) {
+            long weight = negative ? -(1L << h) : 1L << h;
+            for (int i = 0; i < sizes[h]; i++) {
+                values[at] = levels[h][i];
+                weights[at] = weight;
+                at++;
+            }
+        }
+        return at;
+    }
+
+    int retained() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            // merge() may bring values for several levels this sketch does not have yet
+            int existing = levels.length;
+            levels = Arrays.copyOf(levels, level + 1);
+            for (int h = existing; h <= level; h++) {
+                levels[h] = new double[16];
+            }
+            sizes = Arrays.copyOf(sizes, level + 1);
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], sizes[level] * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    // Compacts the lowest full level until the sketch fits its total capacity again
+    private void compress() {
+        while (retained() > totalCapacity()) {
+            for (int h = 0; h < levels.length; h++) {
+                if (sizes[h] >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void compact(int h) {
+        double[] level = levels[h];
+        int size = sizes[h];
+        Arrays.sort(level, 0, size);
+        // With an odd size the largest value stays on this level (weights must pair up)
+        int pairs = size / 2;
+        int offset = nextBit();
+        for (int i = 0; i < pairs; i++) {
+            append(h + 1, level[2 * i + offset]);
+        }
+        level = levels[h]; // append() may have added a level, but never replaces this array
+        if (size % 2 == 1) {
+            level[0] = level[size - 1];
+            sizes[h] = 1;
+        } else {
+            sizes[h] = 0;
+        }
+    }
+
+    private int capacity(int h) {
+        int depth = levels.length - 1 - h;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(K * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private int totalCapacity() {
+        int total = 0;
+        for (int h = 0; h < levels.length; h++) {
+            total += capacity(h);
+        }
+        return total;
+    }
+
+    private int nextBit() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) (seed >>> 63);
+    }
+}
@@ -0,0 +1,36 @@
+package AdvancedJava;
+
+/*
+ * Read-only snapshot of salary statistics: count, sum, min, max and mean.
+ * For an empty group min and max are NaN and the mean is 0.0 (like getAverageSalary()).
+ */
+public final class SalaryStats {
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    public SalaryStats(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = count == 0 ? Double.NaN : min;
+        this.max = count == 0 ? Double.NaN : max;
+    }
+
+    public long getCount() { return count; }
+    public double getSum() { return sum; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    public double getMean() { return count == 0 ? 0.0 : sum / count; }
+
+    @Override
+    public String toString() {
+        return "SalaryStats{" +
+                "count=" + count +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                ", mean=" + getMean() +
+                '}';
+    }
+}
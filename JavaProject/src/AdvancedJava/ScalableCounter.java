@@ -0,0 +1,80 @@
+package AdvancedJava;
+
+/*
+ * Scalable counters - counting from many threads without a shared lock
+ * -----------------------------------------
+ * Key Points:
+ * - A lock or a single AtomicLong makes every increment write the same cache line;
+ *   with many cores that line bounces between them and the counter stops scaling.
+ * - These counters split the count into several cells, each on its own cache line,
+ *   so threads mostly write different lines. Reading adds the cells up.
+ * - Modes:
+ *   STRIPED    - a fixed number of padded AtomicLong slots; a thread starts on the slot
+ *                picked by its thread id and moves to another one when its CAS fails.
+ *   CELLS      - java.util.concurrent.atomic.LongAdder: starts with one value and adds
+ *                cells only when threads actually collide.
+ *   PER_THREAD - every thread gets a private padded cell the first time it counts, so an
+ *                increment is a plain write (no CAS). Each cell lives as long as the counter:
+ *                meant for a fixed set of threads (e.g. a thread pool), not short-lived threads.
+ *
+ * Read semantics (the same for every mode):
+ * - sum(): adds the cells one by one without stopping writers. An increment that happens-before
+ *   the call (same thread, or handed over through join(), a lock, a volatile...) is always
+ *   included; one that runs at the same time may or may not be. It is not an atomic snapshot.
+ * - sumThenReset(): every increment is counted by exactly one call, none is lost or counted
+ *   twice (STRIPED and CELLS move each cell to 0 atomically; PER_THREAD never writes the
+ *   owner's cell but remembers how much of it was already reported).
+ * - snapshot(): the per-cell values read in one pass plus their total (total == sum of cells),
+ *   weakly consistent in the same way as sum(). Shows whether the load is spread out.
+ */
+public interface ScalableCounter {
+
+    enum Mode { STRIPED, CELLS, PER_THREAD }
+
+    static ScalableCounter create(Mode mode) {
+        switch (mode) {
+            case STRIPED:
+                return new StripedCounter(Runtime.getRuntime().availableProcessors() * 2);
+            case CELLS:
+                return new CellCounter();
+            default:
+                return new PerThreadCounter();
+        }
+    }
+
+    default void increment() {
+        add(1);
+    }
+
+    void add(long delta);
+
+    long sum();
+
+    long sumThenReset();
+
+    Snapshot snapshot();
+
+    // Values of the individual cells at the time of one read pass
+    final class Snapshot {
+        private final long total;
+        private final long[] cells;
+
+        Snapshot(long[] cells) {
+            long total = 0;
+            for (long cell : cells) {
+                total += cell;
+            }
+            this.total = total;
+            this.cells = cells;
+        }
+
+        public long getTotal() { return total; }
+        public int getCellCount() { return cells.length; }
+        public long getCell(int index) { return cells[index]; }
+
+        @Override
+        public String toString() {
+            return "Snapshot{total=" + total + ", cells=" + java.util.Arrays.toString(cells) + '}';
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package AdvancedJava;
+
+import java.util.*;
+
+/*
+ * Dictionary encoding for repeated strings
+ * -----------------------------------------
+ * - Each distinct string gets a small int code (0, 1, 2, ...) in the order it was first seen.
+ * - Columns store the int code instead of a String reference.
+ * - Comparing two codes is much cheaper than String.equals().
+ * - The lookup table is an int[] of codes with open addressing (like IdIndex), not a
+ *   HashMap<String, Integer>: a distinct string costs one String reference and about two
+ *   ints, no Integer box and no map node - that matters when most values are unique.
+ * - null is a value like any other.
+ */
+final class StringDictionary {
+    private static final int EMPTY = -1;
+
+    private String[] values = new String[16];
+    private int size;
+    private int[] table; // code of each slot's string, EMPTY marks a free slot
+    private int mask;
+
+    StringDictionary() {
+        allocate(16);
+    }
+
+    // Returns the code of the value, adding it to the dictionary if it is new
+    int encode(String value) {
+        int i = hash(value) & mask;
+        while (table[i] != EMPTY) {
+            if (Objects.equals(values[table[i]], value)) return table[i];
+            i = (i + 1) & mask;
+        }
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size] = value;
+        table[i] = size;
+        if (++size > (mask + 1) / 4 * 3) resize();
+        return size - 1;
+    }
+
+    // Returns the code of the value, or -1 if the value was never added
+    int lookup(String value) {
+        int i = hash(value) & mask;
+        while (table[i] != EMPTY) {
+            if (Objects.equals(values[table[i]], value)) return table[i];
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    String decode(int code) {
+        if (code < 0 || code >= size) throw new IndexOutOfBoundsException("No string with code " + code);
+        return values[code];
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Independent copy (encode() on the copy does not change this dictionary)
+    StringDictionary copy() {
+        StringDictionary copy = new StringDictionary();
+        copy.values = values.clone();
+        copy.size = size;
+        copy.table = table.clone();
+        copy.mask = mask;
+        return copy;
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void resize() {
+        allocate((mask + 1) * 2);
+        for (int code = 0; code < size; code++) {
+            int i = hash(values[code]) & mask;
+            while (table[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            table[i] = code;
+        }
+    }
+
+    // Spreads the String hash so similar strings do not cluster in the table
+    private static int hash(String value) {
+        int h = Objects.hashCode(value) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
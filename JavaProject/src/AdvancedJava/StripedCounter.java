@@ -0,0 +1,83 @@
+package AdvancedJava;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Striped counter (ScalableCounter.Mode.STRIPED)
+ * - One AtomicLongArray holds all stripes; stripe i lives at index i * PAD, so two stripes
+ *   are 128 bytes apart and never share a cache line (or an adjacent-line prefetch pair).
+ * - A thread starts on the stripe picked by its (mixed) thread id. Many threads share a stripe
+ *   when there are more threads than stripes, which only costs something when two of them
+ *   add at the same moment: then the CAS fails and the thread moves to another stripe for
+ *   good (like LongAdder's rehash). Hot threads spread out by themselves, even on a small
+ *   machine with few stripes.
+ */
+final class StripedCounter implements ScalableCounter {
+    private static final int PAD = 16; // longs between two stripes
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    // The thread's current stripe hash; changed after a failed CAS
+    private final ThreadLocal<int[]> probe = ThreadLocal.withInitial(() -> new int[] {initialProbe()});
+
+    StripedCounter(int minStripes) {
+        int stripes = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        slots = new AtomicLongArray(stripes * PAD);
+        mask = stripes - 1;
+    }
+
+    @Override
+    public void add(long delta) {
+        int[] probe = this.probe.get();
+        int index = (probe[0] & mask) * PAD;
+        long current = slots.get(index);
+        if (slots.compareAndSet(index, current, current + delta)) return;
+
+        // Collision: move to another stripe (xorshift) and add there without retrying
+        int h = probe[0];
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        probe[0] = h;
+        slots.getAndAdd((h & mask) * PAD, delta);
+    }
+
+    // Spreads consecutive thread ids over the stripes (never 0: xorshift would stay at 0)
+    private static int initialProbe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        return h == 0 ? 1 : h;
+    }
+
+    int stripeCount() {
+        return mask + 1;
+    }
+
+    @Override
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += slots.get(i * PAD);
+        }
+        return sum;
+    }
+
+    @Override
+    public long sumThenReset() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += slots.getAndSet(i * PAD, 0);
+        }
+        return sum;
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        long[] cells = new long[mask + 1];
+        for (int i = 0; i <= mask; i++) {
+            cells[i] = slots.get(i * PAD);
+        }
+        return new Snapshot(cells);
+    }
+}
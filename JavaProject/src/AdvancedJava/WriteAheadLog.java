@@ -0,0 +1,283 @@
+package AdvancedJava;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/*
+ * Write-ahead log with group commit
+ * -----------------------------------------
+ * Key Points:
+ * - Every change is appended to the log before the caller is told it succeeded,
+ *   so a crash never loses an acknowledged change.
+ * - Making a write durable needs FileChannel.force (fsync) - usually the slowest step.
+ * - Group commit: append() only copies the record into an in-memory buffer and returns its
+ *   sequence number (LSN). sync(lsn) then waits until that record is on disk.
+ *   The first waiter becomes the "leader": it writes the whole buffer and calls force once;
+ *   every writer that appended in the meantime is made durable by that same force.
+ *   While the leader is flushing, new records collect in a second buffer for the next round.
+ * - Record layout (little-endian):
+ *     length (int, of the body) | CRC32 (int, of the body) | body
+ *     body: lsn (long), type (byte), id (int) [, salary (double), name, department]
+ *     string: int UTF-8 length (-1 = null) followed by the bytes
+ * - A crash in the middle of a write leaves a torn record at the end of the file;
+ *   replay() stops at the first record whose length or CRC does not match and cuts it off.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    static final byte ADD = 1;
+    static final byte UPDATE = 2;
+    static final byte REMOVE = 3;
+
+    private static final int RECORD_HEADER = 8;
+
+    // Receives the records found by replay()
+    interface Visitor {
+        void record(long lsn, byte type, Employee employee, int id);
+    }
+
+    private final FileChannel channel;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+
+    // Records appended but not yet written; the leader swaps it with flushBuffer
+    private ByteBuffer pending = newBuffer(64 * 1024);
+    private ByteBuffer flushBuffer = newBuffer(64 * 1024);
+    private final CRC32 crc = new CRC32();
+
+    private long appendedLsn;
+    private long durableLsn;
+    private boolean flushing;
+    private IOException failure;
+
+    private WriteAheadLog(FileChannel channel, long lastLsn) {
+        this.channel = channel;
+        this.appendedLsn = lastLsn;
+        this.durableLsn = lastLsn;
+    }
+
+    // Opens (or creates) the log, passes every intact record to the visitor and
+    // positions the log after the last one
+    static WriteAheadLog open(Path file, long minLsn, Visitor visitor) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long lastLsn = replay(channel, minLsn, visitor);
+            return new WriteAheadLog(channel, Math.max(lastLsn, minLsn));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long replay(FileChannel channel, long minLsn, Visitor visitor) throws IOException {
+        ByteBuffer buffer = newBuffer(64 * 1024);
+        CRC32 crc = new CRC32();
+        long position = 0; // start of the next unread record
+        long lastLsn = 0;
+        long size = channel.size();
+        buffer.flip();
+        while (true) {
+            if (!fill(channel, buffer, position, RECORD_HEADER)) break;
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + 4);
+            if (length < 13 || position + RECORD_HEADER + length > size) break;
+            if (buffer.capacity() < RECORD_HEADER + length) {
+                buffer = newBuffer(RECORD_HEADER + length);
+                buffer.flip();
+            }
+            if (!fill(channel, buffer, position, RECORD_HEADER + length)) break;
+            ByteBuffer body = buffer.slice(buffer.position() + RECORD_HEADER, length).order(ByteOrder.LITTLE_ENDIAN);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+
+            long lsn = body.getLong();
+            byte type = body.get();
+            int id = body.getInt();
+            Employee employee = null;
+            if (type != REMOVE) {
+                double salary = body.getDouble();
+                String name = readString(body);
+                String department = readString(body);
+                employee = new Employee(id, name, salary, department);
+            }
+            // Records already contained in the snapshot are skipped
+            if (lsn > minLsn) visitor.record(lsn, type, employee, id);
+            lastLsn = lsn;
+
+            buffer.position(buffer.position() + RECORD_HEADER + length);
+            position += RECORD_HEADER + length;
+        }
+        if (position < size) {
+            channel.truncate(position); // torn or corrupt tail
+            channel.force(false);
+        }
+        channel.position(position);
+        return lastLsn;
+    }
+
+    // Makes sure n bytes of the record starting at filePosition are in the buffer
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, long filePosition, int n) throws IOException {
+        if (buffer.remaining() >= n) return true;
+        buffer.compact();
+        long readAt = filePosition + buffer.position();
+        while (buffer.position() < n) {
+            int read = channel.read(buffer, readAt);
+            if (read < 0) break;
+            readAt += read;
+        }
+        buffer.flip();
+        return buffer.remaining() >= n;
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Copies the record into the pending buffer and returns its LSN (nothing is written yet)
+    long append(byte type, Employee employee, int id) throws IOException {
+        byte[] name = type == REMOVE ? null : bytes(employee.getName());
+        byte[] department = type == REMOVE ? null : bytes(employee.getDepartment());
+        int length = 13 + (type == REMOVE ? 0 : 8 + 8 + length(name) + length(department));
+
+        lock.lock();
+        try {
+            if (failure != null) throw new IOException("Write-ahead log failed earlier", failure);
+            if (pending.remaining() < RECORD_HEADER + length) {
+                ByteBuffer bigger = newBuffer(Math.max(pending.capacity() * 2, pending.position() + RECORD_HEADER + length));
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            long lsn = ++appendedLsn;
+            int start = pending.position();
+            pending.position(start + RECORD_HEADER);
+            pending.putLong(lsn).put(type).putInt(id);
+            if (type != REMOVE) {
+                pending.putDouble(employee.getSalary());
+                putString(name);
+                putString(department);
+            }
+            crc.reset();
+            crc.update(pending.slice(start + RECORD_HEADER, length));
+            pending.putInt(start, length);
+            pending.putInt(start + 4, (int) crc.getValue());
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until every record up to lsn is on disk
+    void sync(long lsn) throws IOException {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (failure != null) throw new IOException("Write-ahead log failed earlier", failure);
+                if (flushing) {
+                    // Someone else is flushing; our record is in this or the next round
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                // Become the leader: take everything appended so far
+                flushing = true;
+                ByteBuffer batch = pending;
+                pending = flushBuffer;
+                long batchLsn = appendedLsn;
+                lock.unlock();
+                IOException error = null;
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        channel.write(batch);
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                batch.clear();
+                flushBuffer = batch;
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableLsn = batchLsn;
+                }
+                flushed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // LSN of the last appended record
+    long lastLsn() {
+        lock.lock();
+        try {
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops every record (after a checkpoint has saved them in a snapshot);
+    // the caller makes sure nothing is appended meanwhile
+    void reset() throws IOException {
+        sync(lastLsn());
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync(lastLsn());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putString(byte[] bytes) {
+        if (bytes == null) {
+            pending.putInt(-1);
+        } else {
+            pending.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -9,10 +9,16 @@
  *   2. Creating Threads - Extending Thread class or implementing Runnable interface.
  *   3. Synchronization - Prevents thread interference (synchronized keyword, Locks, Atomic Variables).
  *   4. Executors Framework - Manages thread pools efficiently.
+ *   5. Scalable counters - Many threads counting without one shared lock (ScalableCounter).
+ *   6. Virtual threads - Thousands of blocking requests, one deadline, fail fast (QueryScope).
  */
 
 package AdvancedJava;
 // Import necessary classes
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.*;
 
@@ -42,30 +48,86 @@ public class _3_MultithreadingExample {
 
         // 3. Synchronization Example
         SharedResource resource = new SharedResource();
-        Thread t1 = new Thread(() -> resource.increment(), "T1");
-        Thread t2 = new Thread(() -> resource.increment(), "T2");
+        Runnable work = () -> {
+            for (int i = 0; i < 1_000; i++) {
+                resource.lockedIncrement();
+                resource.increment();
+            }
+            System.out.println(Thread.currentThread().getName() + " - done");
+        };
+        Thread t1 = new Thread(work, "T1");
+        Thread t2 = new Thread(work, "T2");
         t1.start();
         t2.start();
+        try {
+            t1.join();
+            t2.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Final count (lock): " + resource.getLockedCount()
+                + ", (scalable counter): " + resource.getCount());
 
         // 4. Using Executor Framework
         ExecutorService executor = Executors.newFixedThreadPool(2);
         executor.execute(() -> System.out.println("Task executed using ExecutorService"));
         executor.shutdown();
+
+        // 5. Many blocking requests at once - one virtual thread each, no pool to size.
+        // They share one deadline; if one fails, the others are cancelled.
+        ConcurrentEmployeeService service = new ConcurrentEmployeeService(Arrays.asList(
+                new Employee(1, "Alice", 70000, "IT"),
+                new Employee(2, "Bob", 50000, "HR"),
+                new Employee(3, "Charlie", 60000, "IT")
+        ));
+        List<Callable<Integer>> requests = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            requests.add(() -> {
+                Thread.sleep(10); // e.g. waiting for a remote call
+                return service.countEmployeesWithSalaryBetween(55000, 75000);
+            });
+        }
+        try {
+            List<Integer> results = QueryScope.invokeAll(Duration.ofSeconds(5), requests);
+            System.out.println("Requests answered: " + results.size() + ", first answer: " + results.get(0));
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
     }
 }
 
 // Shared Resource class demonstrating synchronization
+// - lockedIncrement(): a lock makes count++ safe, but every thread waits for the others.
+// - increment(): the counter spreads the writes over cells instead, so no lock is needed.
+// Neither prints: printing inside the hot path is slow and makes the threads wait even longer.
 class SharedResource {
-    private int count = 0;
+    private int lockedCount = 0;
     private final Lock lock = new ReentrantLock();
+    private final ScalableCounter count = ScalableCounter.create(ScalableCounter.Mode.STRIPED);
 
-    public void increment() {
+    public void lockedIncrement() {
         lock.lock(); // Locking to ensure thread safety
         try {
-            count++;
-            System.out.println(Thread.currentThread().getName() + " - Count: " + count);
+            lockedCount++;
         } finally {
             lock.unlock(); // Unlocking after operation
         }
     }
+
+    public int getLockedCount() {
+        lock.lock();
+        try {
+            return lockedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
 }
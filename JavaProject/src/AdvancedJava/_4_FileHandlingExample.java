@@ -10,9 +10,16 @@
  *   3. Serialization - Convert objects into a byte stream for storage or transfer.
  *   4. Deserialization - Convert byte stream back into objects.
  *   5. transient keyword - Used to prevent serialization of specific fields.
+ *   6. Memory-mapped files - Load large CSV/NDJSON files in parallel (EmployeeBulkLoader).
+ *   7. Binary codec - Compact schema-based format instead of ObjectOutputStream (BinaryCodec).
+ *   8. Snapshots - Map a columnar file and query it in place, no deserialization (MappedEmployeeStore).
+ *   9. Write-ahead log - Changes survive a restart; concurrent writers share one fsync (DurableEmployeeService).
  */
 package AdvancedJava;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
 
 public class _4_FileHandlingExample {
     public static void main(String[] args) {
@@ -64,26 +71,75 @@ public class _4_FileHandlingExample {
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
         }
-    }
-}
 
-// Serializable class
-// Implements Serializable interface to allow object serialization.
-class Person implements Serializable {
-    private static final long serialVersionUID = 1L;
-    private String name;
-    private int age;
+        // 5. Bulk loading with a memory-mapped file
+        // EmployeeBulkLoader maps the file and parses it in parallel chunks straight from the bytes.
+        // Bad lines are skipped and reported with their byte offset.
+        String csvFile = "employees.csv";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvFile))) {
+            writer.write("id,name,salary,department\n");
+            writer.write("1,Alice,70000,IT\n");
+            writer.write("2,Bob,not-a-number,HR\n");
+            writer.write("3,Charlie,60000,IT\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            EmployeeBulkLoader.LoadResult result = new EmployeeBulkLoader(EmployeeBulkLoader.Format.CSV)
+                    .load(java.nio.file.Paths.get(csvFile));
+            System.out.println("Loaded " + result.getRowCount() + " employees, errors: " + result.getErrors());
+            System.out.println("Average salary: " + result.getService().getAverageSalary());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-    // The 'transient' keyword prevents this field from being serialized.
-    private transient String sensitiveData = "This will not be serialized";
+        // 6. Binary codec - only the field values are written (no class metadata)
+        // The transient field is skipped, just like with ObjectOutputStream.
+        String binaryFile = "persons.bin";
+        BinaryCodec codec = new BinaryCodec();
+        List<Person> persons = Arrays.asList(new Person("John Doe", 30), new Person("Jane Doe", 28));
+        try (FileOutputStream fileOut = new FileOutputStream(binaryFile)) {
+            codec.writePersons(persons, Channels.newChannel(fileOut));
+            System.out.println("Binary batch written: " + new File(binaryFile).length() + " bytes");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try (FileInputStream fileIn = new FileInputStream(binaryFile)) {
+            System.out.println("Decoded persons: " + codec.readPersons(Channels.newChannel(fileIn)));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-    public Person(String name, int age) {
-        this.name = name;
-        this.age = age;
-    }
+        // 7. Snapshot - written once, then opened with FileChannel.map on every start.
+        // Queries read the mapped columns; only the returned rows become Employee objects.
+        String snapshotFile = "employees.snap";
+        try {
+            EmployeeService.columnar(Arrays.asList(
+                    new Employee(1, "Alice", 70000, "IT"),
+                    new Employee(2, "Bob", 50000, "HR"),
+                    new Employee(3, "Charlie", 60000, "IT")
+            )).saveSnapshot(java.nio.file.Paths.get(snapshotFile));
+            EmployeeService snapshot = EmployeeService.openSnapshot(java.nio.file.Paths.get(snapshotFile));
+            System.out.println("Snapshot employees with salary above 55,000: "
+                    + snapshot.getEmployeesWithSalaryAbove(55000));
+            System.out.println("Snapshot department counts: " + snapshot.countByDepartment());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-    @Override
-    public String toString() {
-        return "Person{name='" + name + "', age=" + age + "}";
+        // 8. Durable changes - logged before they are acknowledged, replayed after a restart
+        java.nio.file.Path dataDir = java.nio.file.Paths.get("employee-data");
+        try (DurableEmployeeService durable = DurableEmployeeService.open(dataDir, 1000)) {
+            durable.addEmployee(new Employee(10, "Grace", 90000, "IT"));
+            durable.updateEmployee(new Employee(10, "Grace", 95000, "IT"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try (DurableEmployeeService durable = DurableEmployeeService.open(dataDir, 1000)) {
+            System.out.println("Recovered employees: " + durable.query(EmployeeService::sortEmployeesBySalary));
+            durable.removeEmployee(10);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 }
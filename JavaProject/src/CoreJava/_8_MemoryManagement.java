@@ -7,6 +7,8 @@ package CoreJava;/*
  *
  * Java's Garbage Collector automatically removes unused objects from the heap.
  * The 'finalize()' method is called before an object is removed.
+ * Very large data can also be kept outside the heap, where the GC never scans it
+ * (see AdvancedJava.OffHeapEmployeeStore).
  */
 
 // Example to demonstrate Stack and Heap Memory allocation